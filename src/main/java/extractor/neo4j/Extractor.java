@@ -103,15 +103,32 @@ public class Extractor implements Runnable {
         proteinsToReactions = getProteinsToReactions(outputPath);
         System.out.println("Finished map proteins to reactions.");
 
+        RsidIndex.Builder rsIds = new RsidIndex.Builder();
         for (int chr = 1; chr <= 22; chr++) {
             rsIdsToProteins = getRsIdsToProteins(chr, outputPath);
+            rsIds.add(chr, rsIdsToProteins);
             System.out.println("Finished map rsids to proteins, chromosome " + chr);
         }
+        try {
+            rsIds.build().write(outputPath);
+            System.out.println("Finished index of rsids.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
+        RegionIndex.Builder regions = new RegionIndex.Builder();
         for (int chr = 1; chr <= 22; chr++) {
             chrBpToProteins = getChrBpToProteins(chr, outputPath);
+            regions.add(chr, chrBpToProteins);
             System.out.println("Finished map chrBp to proteins, chromosome " + chr);
         }
+        try {
+            regions.build().write(outputPath);
+            System.out.println("Finished index of the regions of the proteins.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        regions = null;
 
         genesToProteins = getGenesToProteinsReactome(outputPath);
         System.out.println("Finished map genes to proteins.");
@@ -128,6 +145,16 @@ public class Extractor implements Runnable {
         pathwaysToTopLevelPathways = getPathwaysToTopLevelPathways(outputPath);
         System.out.println("Finished map pathways to top level pathways.");
 
+        try {
+            PathwayClosure.build(proteinsToReactions, MappingStore.STRING, reactionsToPathways, pathwaysToTopLevelPathways)
+                    .write(outputPath, PathwayClosure.PROTEINS_FILE_NAME);
+            PathwayClosure.build(proteoformsToReactions, MappingStore.PROTEOFORM, reactionsToPathways, pathwaysToTopLevelPathways)
+                    .write(outputPath, PathwayClosure.PROTEOFORMS_FILE_NAME);
+            System.out.println("Finished closure of the proteins and proteoforms to pathways.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
         proteinsToNames = getProteinNames(outputPath);
         System.out.println("Finished getting the protein names.");
 
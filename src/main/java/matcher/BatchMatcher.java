@@ -0,0 +1,209 @@
+package matcher;
+
+import com.google.common.io.Files;
+import methods.ora.Analysis;
+import methods.ora.AnalysisResult;
+import methods.ora.EmpiricalPValues;
+import methods.ora.StatisticalTest;
+import methods.search.Search;
+import methods.search.SearchResult;
+import model.InputType;
+import model.Mapping;
+import model.MatchType;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static matcher.tools.FileHandler.createOutputStream;
+import static matcher.tools.FileHandler.readFile;
+
+/**
+ * Matches many input files of the same type against one static mapping, loaded once for all of them.
+ * <p>
+ * The files are given by a directory, with all its files, or by a manifest with the path of one file per line. The
+ * files are searched and analysed on a pool of threads, and each one gets its own search.tsv and analysis.tsv in a
+ * directory of the output named as the file without its extension. The searches never modify the mapping, so they run
+ * at the same time as the requests of the {@link MatchServer}.</p>
+ */
+public class BatchMatcher {
+
+    static final Set<InputType> INPUT_TYPES = Collections.unmodifiableSet(EnumSet.of(InputType.GENE, InputType.UNIPROT,
+            InputType.ENSEMBL, InputType.VCF, InputType.CHRBP, InputType.RSID, InputType.PROTEOFORM));
+
+    private static final String separator = "\t";
+
+    private final InputType inputType;
+    private final String mapping_path;
+    private final boolean topLevelPathways;
+    private final Mapping mapping;
+    MatchType matchType = MatchType.SUBSET;
+    Long range = 0L;
+    long window = -1;
+    StatisticalTest test = StatisticalTest.BINOMIAL;
+    EmpiricalPValues permutations;    // Null for the p-values of the test
+    OutputFormat format = OutputFormat.TSV;
+
+    /**
+     * Loads the static mapping for the input type.
+     *
+     * @param mapping_path Path to the static mapping files, empty to use the files in the jar
+     */
+    public BatchMatcher(InputType inputType, String mapping_path, boolean topLevelPathways) throws FileNotFoundException {
+        if (!INPUT_TYPES.contains(inputType)) {
+            throw new IllegalArgumentException("The input type " + inputType + " is not supported in batches.");
+        }
+        this.inputType = inputType;
+        this.mapping_path = mapping_path;
+        this.topLevelPathways = topLevelPathways;
+        System.out.println("Loading mapping...");
+        mapping = new Mapping(inputType, topLevelPathways, mapping_path);
+        mapping.awaitLoaded();
+    }
+
+    /**
+     * Gets the input files of a batch.
+     *
+     * @param input A directory, for all the files in it sorted by name, or a manifest with the path of one file per
+     *              line. The relative paths of a manifest are relative to the directory of the manifest. Empty lines
+     *              and lines starting with # are skipped.
+     */
+    static List<File> getInputFiles(String input) throws IOException {
+        File file = new File(input);
+        List<File> files = new ArrayList<>();
+        if (file.isDirectory()) {
+            File[] children = file.listFiles(child -> child.isFile() && !child.isHidden());
+            if (children != null) {
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            }
+            return files;
+        }
+        if (!file.isFile()) {
+            throw new FileNotFoundException("The input file: " + input + " was not found.");
+        }
+        for (String line : Files.readLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            File inputFile = new File(line);
+            files.add(inputFile.isAbsolute() ? inputFile : new File(file.getAbsoluteFile().getParentFile(), line));
+        }
+        return files;
+    }
+
+    /**
+     * Gets the names of the output directories of the input files: the name of each file without its extension,
+     * followed by a number when another file has the same name.
+     */
+    static List<String> getOutputNames(List<File> files) {
+        List<String> names = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        for (File file : files) {
+            String base = Files.getNameWithoutExtension(file.getName());
+            String name = base;
+            for (int i = 2; !used.add(name); i++) {
+                name = base + "_" + i;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Matches the files on a pool of threads. A file that cannot be matched is reported and the others continue.
+     *
+     * @param output  Directory of the output, empty for the working directory
+     * @param threads Number of files matched at the same time
+     * @return The number of files that could not be matched
+     */
+    public int run(List<File> files, String output, int threads) {
+        List<String> names = getOutputNames(files);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> matches = new ArrayList<>();
+            for (int f = 0; f < files.size(); f++) {
+                File file = files.get(f);
+                String prefix = (output.isEmpty() || output.endsWith("/") ? output : output + "/") + names.get(f) + "/";
+                matches.add(workers.submit(() -> {
+                    match(file, prefix);
+                    return null;
+                }));
+            }
+            int failed = 0;
+            for (int f = 0; f < files.size(); f++) {
+                try {
+                    matches.get(f).get();
+                    System.out.println("Matched " + files.get(f).getPath() + " into " + names.get(f) + "/");
+                } catch (ExecutionException e) {
+                    System.err.println("Could not match " + files.get(f).getPath() + ": " + e.getCause().getMessage());
+                    failed++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return files.size() - f;
+                }
+            }
+            return failed;
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Searches and analyses one file, and writes the search and analysis files in the format with the prefix.
+     */
+    void match(File file, String prefix) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException("The input file: " + file.getPath() + " was not found.");
+        }
+        SearchResult searchResult = search(file);
+        AnalysisResult analysisResult = Analysis.analysis(searchResult, getPopulationSize(), test, permutations);
+
+        // The streams are closed also when the other one cannot be created or written
+        try (OutputStream output_search = createOutputStream(prefix, format.getFileName("search"));
+             OutputStream output_analysis = createOutputStream(prefix, format.getFileName("analysis"))) {
+            if (output_search == null || output_analysis == null) {
+                throw new IOException("Could not create the output files at: " + prefix);
+            }
+            format.write(output_search, searchResult, separator);
+            format.write(output_analysis, analysisResult, inputType, separator);
+        }
+    }
+
+    private SearchResult search(File file) throws IOException {
+        if (inputType == InputType.VCF) {
+            // The search reads the records from the file one at a time
+            return Search.searchWithVcf(file.getPath(), mapping, topLevelPathways, mapping_path, 1, window);
+        }
+        List<String> input = readFile(file.getPath());
+        switch (inputType) {
+            case GENE:
+                return Search.searchWithGene(input, mapping, topLevelPathways);
+            case ENSEMBL:
+                return Search.searchWithEnsembl(input, mapping, topLevelPathways);
+            case CHRBP:
+                return Search.searchWithChrBp(input, mapping, topLevelPathways, mapping_path, 1, window);
+            case RSID:
+                return Search.searchWithRsId(input, mapping, topLevelPathways, mapping_path);
+            case PROTEOFORM:
+                return Search.searchWithProteoform(input, mapping, topLevelPathways, matchType, range);
+            default:
+                return Search.searchWithUniProt(input, mapping, topLevelPathways);
+        }
+    }
+
+    private int getPopulationSize() {
+        if (inputType == InputType.PROTEOFORM) {
+            return mapping.getProteoformsToReactions().keySet().size();
+        }
+        return mapping.getProteinsToReactions().keySet().size();
+    }
+}
@@ -3,6 +3,8 @@ package matcher;
 import com.google.common.base.Stopwatch;
 import methods.ora.Analysis;
 import methods.ora.AnalysisResult;
+import methods.ora.EmpiricalPValues;
+import methods.ora.StatisticalTest;
 import methods.search.Search;
 import methods.search.SearchResult;
 import model.InputType;
@@ -13,14 +15,15 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 
-import static matcher.tools.FileHandler.createFile;
+import static matcher.tools.FileHandler.createOutputStream;
 import static matcher.tools.FileHandler.readFile;
 
 /**
@@ -49,6 +52,8 @@ public class Main {
                     MatchRsIdsCommand.class,
                     MatchPeptidesCommand.class,
                     MatchModifiedPeptidesCommand.class,
+                    MatchBatchCommand.class,
+                    ServeCommand.class,
                     CommandLine.HelpCommand.class
             }
     )
@@ -81,7 +86,7 @@ public class Main {
             return output_prefix;
         }
 
-        @Option(names = {"--mapping"}, description = "Path to directory with the static mapping files. By default uses the mapping files integrated in the jar file.")
+        @Option(names = {"--mapping"}, description = "Path to directory with the static mapping files, either the serialized .gz files or a binary mapping store created with matcher.tools.MappingConverter. By default uses the mapping files integrated in the jar file.")
         String mapping_path = "";
 
         public String getMapping_path() {
@@ -119,6 +124,37 @@ public class Main {
             return doUniprotGraph;
         }
 
+        @Option(names = {"--threads"}, converter = PositiveIntegerConverter.class, description = "Number of threads of the search and of the permutations. The variants of different chromosomes are searched at the same time. %nDefault: ${DEFAULT-VALUE}")
+        int threads = 1;
+
+        int getThreads() {
+            return threads;
+        }
+
+        @Option(names = {"--test"}, description = "Statistical test of the over representation analysis. %nValid values: ${COMPLETION-CANDIDATES}. %nDefault: ${DEFAULT-VALUE}")
+        StatisticalTest test = StatisticalTest.BINOMIAL;
+
+        StatisticalTest getTest() {
+            return test;
+        }
+
+        @Option(names = {"--format"}, description = "Format of the search and analysis files: tab separated values, compressed with gzip, or a binary table of dictionary encoded columns. %nValid values: ${COMPLETION-CANDIDATES}. %nDefault: ${DEFAULT-VALUE}")
+        OutputFormat format = OutputFormat.TSV;
+
+        OutputFormat getFormat() {
+            return format;
+        }
+
+        @Option(names = {"--permutations"}, converter = NonNegativeIntegerConverter.class, description = "Number of random samples of the population for empirical p-values of the over representation analysis, instead of the p-values of the test. %nBy default the p-values of the test are used.")
+        int permutations = 0;
+
+        int getPermutations() {
+            return permutations;
+        }
+
+        @Option(names = {"--seed"}, description = "Seed of the random samples of the permutations. %nDefault: ${DEFAULT-VALUE}")
+        long seed = EmpiricalPValues.DEFAULT_SEED;
+
         boolean wasExecuted = false;
 
         boolean isWasExecuted() {
@@ -139,8 +175,8 @@ public class Main {
             return mapping;
         }
 
-        BufferedWriter output_search;
-        BufferedWriter output_analysis;
+        OutputStream output_search;
+        OutputStream output_analysis;
         SearchResult searchResult;
         AnalysisResult analysisResult;
 
@@ -152,23 +188,21 @@ public class Main {
         protected void match() {
             Stopwatch stopwatch = Stopwatch.createStarted();
             try {
-                input = readFile(input_path);
+                input = readInput();
 
                 if (input != null) {
-                    output_search = createFile(output_prefix, "search.tsv");
-                    output_analysis = createFile(output_prefix, "analysis.tsv");
+                    output_search = createOutputStream(output_prefix, format.getFileName("search"));
+                    output_analysis = createOutputStream(output_prefix, format.getFileName("analysis"));
 
                     if (output_search != null && output_analysis != null) {
                         mapping = new Mapping(inputType, showTopLevelPathways, mapping_path); // Load static structures needed for all the cases
 
                         searchResult = search();
-                        searchResult.writeToFile(output_search, separator);
-                        output_search.close();
+                        format.write(output_search, searchResult, separator);
 
                         setPopulationSize();
-                        analysisResult = Analysis.analysis(searchResult, populationSize);
-                        analysisResult.writeToFile(output_analysis, inputType, separator);
-                        output_analysis.close();
+                        analysisResult = Analysis.analysis(searchResult, populationSize, test, getEmpiricalPValues(permutations, seed, threads));
+                        format.write(output_analysis, analysisResult, inputType, separator);
 
                         if (doDefaultGraph) {
                             setDoCorrespondingGraph();
@@ -196,6 +230,15 @@ public class Main {
             }
         }
 
+        /**
+         * Reads the lines of the input file.
+         *
+         * @return The lines, or null if the search should not run
+         */
+        List<String> readInput() {
+            return readFile(input_path);
+        }
+
         abstract SearchResult search() throws FileNotFoundException;
 
         abstract void setPopulationSize();
@@ -214,7 +257,7 @@ public class Main {
 
         @Override
         SearchResult search() {
-            return Search.searchWithGene(input, mapping, showTopLevelPathways);
+            return Search.searchWithGene(input, mapping, showTopLevelPathways, threads);
         }
 
         @Override
@@ -239,7 +282,7 @@ public class Main {
 
         @Override
         SearchResult search() {
-            return Search.searchWithUniProt(input, mapping, showTopLevelPathways);
+            return Search.searchWithUniProt(input, mapping, showTopLevelPathways, threads);
         }
 
         @Override
@@ -264,7 +307,7 @@ public class Main {
 
         @Override
         SearchResult search() {
-            return Search.searchWithEnsembl(input, mapping, showTopLevelPathways);
+            return Search.searchWithEnsembl(input, mapping, showTopLevelPathways, threads);
         }
 
         @Override
@@ -278,8 +321,17 @@ public class Main {
         }
     }
 
+    static abstract class MatchSubcommandVariants extends MatchSubcommand {
+        @Option(names = {"--window"}, description = "Map the variants inside the region of a protein, or at most this number of base pairs away from it. The region of a protein goes from its first to its last base pair in the reference data. %nBy default only the exact base pairs are mapped.")
+        long window = -1;
+
+        long getWindow() {
+            return window;
+        }
+    }
+
     @Command(name = "match-vcf", description = "Match a list of genetic variants in VCF format")
-    static class MatchVCFCommand extends MatchSubcommand {
+    static class MatchVCFCommand extends MatchSubcommandVariants {
         @Override
         public void run() {
             wasExecuted = true;
@@ -287,9 +339,27 @@ public class Main {
             match();
         }
 
+        @Override
+        List<String> readInput() {
+            // The search reads the records from the file one at a time
+            if (!new File(input_path).isFile()) {
+                System.err.println("The input file: " + input_path + " was not found.");
+                return null;
+            }
+            return Collections.emptyList();
+        }
+
         @Override
         SearchResult search() throws FileNotFoundException {
-            return Search.searchWithChrBp(input, mapping, showTopLevelPathways, mapping_path);
+            try {
+                return Search.searchWithVcf(input_path, mapping, showTopLevelPathways, mapping_path, threads, window);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                Error.sendError(Error.COULD_NOT_READ_INPUT_FILE);
+                return null;
+            }
         }
 
         @Override
@@ -304,7 +374,7 @@ public class Main {
     }
 
     @Command(name = "match-chrbp", description = "Match a list of genetic variants as chromosome and base pairs")
-    static class MatchChrBpCommand extends MatchSubcommand {
+    static class MatchChrBpCommand extends MatchSubcommandVariants {
         @Override
         public void run() {
             wasExecuted = true;
@@ -314,7 +384,7 @@ public class Main {
 
         @Override
         SearchResult search() throws FileNotFoundException {
-            return Search.searchWithChrBp(input, mapping, showTopLevelPathways, mapping_path);
+            return Search.searchWithChrBp(input, mapping, showTopLevelPathways, mapping_path, threads, window);
         }
 
         @Override
@@ -339,7 +409,7 @@ public class Main {
 
         @Override
         SearchResult search() throws FileNotFoundException {
-            return Search.searchWithRsId(input, mapping, showTopLevelPathways, mapping_path);
+            return Search.searchWithRsId(input, mapping, showTopLevelPathways, mapping_path, threads);
         }
 
         @Override
@@ -380,7 +450,7 @@ public class Main {
 
         @Override
         SearchResult search() {
-            return Search.searchWithProteoform(input, mapping, showTopLevelPathways, matchType, range);
+            return Search.searchWithProteoform(input, mapping, showTopLevelPathways, matchType, range, threads);
         }
 
         @Override
@@ -431,7 +501,7 @@ public class Main {
 
         @Override
         SearchResult search() {
-            return Search.searchWithPeptide(input, mapping, showTopLevelPathways, fasta_path);
+            return Search.searchWithPeptide(input, mapping, showTopLevelPathways, fasta_path, threads);
         }
 
         @Override
@@ -474,7 +544,7 @@ public class Main {
 
         @Override
         SearchResult search() {
-            return Search.searchWithModifiedPeptide(input, mapping, showTopLevelPathways, matchType, range, fasta_path);
+            return Search.searchWithModifiedPeptide(input, mapping, showTopLevelPathways, matchType, range, fasta_path, threads);
         }
 
         @Override
@@ -488,6 +558,159 @@ public class Main {
         }
     }
 
+    @Command(name = "match-batch", description = "Match many input files of the same type, loading the static mapping once. " +
+            "Writes the search.tsv and analysis.tsv of each input file in a directory of the output with the name of the file. " +
+            "Peptide inputs are not supported.")
+    static class MatchBatchCommand implements Runnable {
+
+        @Option(names = {"-t", "--type"}, required = true, description = "Type of the input files. %nValid values: GENE, UNIPROT, ENSEMBL, VCF, CHRBP, RSID, PROTEOFORM")
+        InputType type;
+
+        @Option(names = {"-i", "--input"}, required = true, description = "Directory with the input files, or manifest file with the path of one input file per line. Relative paths are relative to the directory of the manifest.")
+        String input_path;
+
+        @Option(names = {"-o", "--output"}, description = "Directory of the output. Each input file gets a directory in it with its search.tsv and analysis.tsv.")
+        String output_path = "";
+
+        @Option(names = {"--mapping"}, description = "Path to directory with the static mapping files, either the serialized .gz files or a binary mapping store created with matcher.tools.MappingConverter. By default uses the mapping files integrated in the jar file.")
+        String mapping_path = "";
+
+        @Option(names = {"-T", "--topLevelPathways"}, description = "Show Top Level Pathways in the search result.")
+        boolean showTopLevelPathways = false;
+
+        @Option(names = {"--threads"}, converter = PositiveIntegerConverter.class, description = "Number of input files matched at the same time. %nDefault: ${DEFAULT-VALUE}")
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        @Option(names = {"--test"}, description = "Statistical test of the over representation analysis. %nValid values: ${COMPLETION-CANDIDATES}. %nDefault: ${DEFAULT-VALUE}")
+        StatisticalTest test = StatisticalTest.BINOMIAL;
+
+        @Option(names = {"--format"}, description = "Format of the search and analysis files: tab separated values, compressed with gzip, or a binary table of dictionary encoded columns. %nValid values: ${COMPLETION-CANDIDATES}. %nDefault: ${DEFAULT-VALUE}")
+        OutputFormat format = OutputFormat.TSV;
+
+        @Option(names = {"--permutations"}, converter = NonNegativeIntegerConverter.class, description = "Number of random samples of the population for empirical p-values of the over representation analysis, instead of the p-values of the test. %nBy default the p-values of the test are used.")
+        int permutations = 0;
+
+        @Option(names = {"--seed"}, description = "Seed of the random samples of the permutations. %nDefault: ${DEFAULT-VALUE}")
+        long seed = EmpiricalPValues.DEFAULT_SEED;
+
+        @Option(names = {"-m", "--matchType"}, description = "Proteoform match criteria. %nValid values: ${COMPLETION-CANDIDATES}. %nDefault: ${DEFAULT-VALUE}")
+        MatchType matchType = MatchType.SUBSET;
+
+        @Option(names = {"-r", "--range"}, description = "Integer range of error for PTM sites. %nDefault: ${DEFAULT-VALUE}")
+        Long range = 0L;
+
+        @Option(names = {"--window"}, description = "Map the variants inside the region of a protein, or at most this number of base pairs away from it. %nBy default only the exact base pairs are mapped.")
+        long window = -1;
+
+        boolean wasExecuted = false;
+
+        boolean isWasExecuted() {
+            return wasExecuted;
+        }
+
+        int failed = -1;
+
+        int getFailed() {
+            return failed;
+        }
+
+        @Override
+        public void run() {
+            wasExecuted = true;
+            inputType = type;
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            try {
+                if (!BatchMatcher.INPUT_TYPES.contains(type)) {
+                    System.err.println("The input type " + type + " is not supported in batches.");
+                    return;
+                }
+                List<File> files = BatchMatcher.getInputFiles(input_path);
+                BatchMatcher matcher = new BatchMatcher(type, mapping_path, showTopLevelPathways);
+                matcher.matchType = matchType;
+                matcher.range = range;
+                matcher.window = window;
+                matcher.test = test;
+                matcher.format = format;
+                matcher.permutations = getEmpiricalPValues(permutations, seed, 1);
+                failed = matcher.run(files, output_path, threads);
+
+                stopwatch.stop();
+                System.out.println("PathwayMatcher matched " + (files.size() - failed) + " of " + files.size() + " files ("
+                        + stopwatch.elapsed().toMillis() / 1000 + "s)");
+            } catch (FileNotFoundException ex) {
+                System.err.println(ex.getMessage());
+            } catch (IOException e) {
+                System.err.println(Error.COULD_NOT_READ_INPUT_FILE.getMessage() + ": " + input_path);
+            }
+        }
+    }
+
+    @Command(name = "serve", description = "Load the static mapping once and answer match requests from a local HTTP endpoint. " +
+            "Send the input as the body of a POST request to the path of a match subcommand, for example /match-uniprot. " +
+            "Optional query parameters: topLevelPathways, matchType, range, test, permutations, seed and output (search, analysis or both). " +
+            "Peptide inputs are not supported.")
+    static class ServeCommand implements Runnable {
+
+        @Option(names = {"--mapping"}, description = "Path to directory with the static mapping files, either the serialized .gz files or a binary mapping store created with matcher.tools.MappingConverter. By default uses the mapping files integrated in the jar file.")
+        String mapping_path = "";
+
+        @Option(names = {"-p", "--port"}, description = "Port of the local HTTP endpoint. %nDefault: ${DEFAULT-VALUE}")
+        int port = 8080;
+
+        @Option(names = {"-w", "--workers"}, converter = PositiveIntegerConverter.class, description = "Number of requests processed at the same time. %nDefault: ${DEFAULT-VALUE}")
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        MatchServer server;
+
+        @Override
+        public void run() {
+            try {
+                server = new MatchServer(mapping_path, port, workers);
+                server.start();
+            } catch (FileNotFoundException ex) {
+                System.err.println(ex.getMessage());
+            } catch (IOException e) {
+                System.out.println("Could not start the server on port " + port + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Reads the number of an option that runs things at the same time, like the threads, which must be at least one.
+     */
+    static class PositiveIntegerConverter implements CommandLine.ITypeConverter<Integer> {
+        @Override
+        public Integer convert(String value) {
+            int number = Integer.parseInt(value);
+            if (number < 1) {
+                throw new CommandLine.TypeConversionException("'" + value + "' must be at least 1");
+            }
+            return number;
+        }
+    }
+
+    /**
+     * Reads the number of an option where zero turns something off, like the permutations, which can not be negative.
+     */
+    static class NonNegativeIntegerConverter implements CommandLine.ITypeConverter<Integer> {
+        @Override
+        public Integer convert(String value) {
+            int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new CommandLine.TypeConversionException("'" + value + "' must be at least 0");
+            }
+            return number;
+        }
+    }
+
+    /**
+     * Gets the empirical p-values of the permutations, or null to use the p-values of the statistical test.
+     */
+    static EmpiricalPValues getEmpiricalPValues(int permutations, long seed, int threads) {
+        return permutations > 0 ? new EmpiricalPValues(permutations, seed, threads) : null;
+    }
+
     public static void main(String[] args) {
         commandLine = new CommandLine(new PathwayMatcher());
         commandLine.setCaseInsensitiveEnumValuesAllowed(true);
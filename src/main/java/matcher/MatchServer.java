@@ -0,0 +1,205 @@
+package matcher;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import methods.ora.Analysis;
+import methods.ora.AnalysisResult;
+import methods.ora.EmpiricalPValues;
+import methods.ora.StatisticalTest;
+import methods.search.Search;
+import methods.search.SearchResult;
+import model.InputType;
+import model.Mapping;
+import model.MatchType;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server that keeps the static mapping loaded and answers match requests.
+ * <p>
+ * Each request is a POST to the path of a match subcommand, for example /match-uniprot, with the input lines as body.
+ * The response has the content of search.tsv, analysis.tsv, or both separated by an empty line.
+ * Query parameters: topLevelPathways=true, matchType=SUBSET, range=0, test=BINOMIAL|HYPERGEOMETRIC,
+ * permutations=0, seed=1, output=search|analysis|both. The permutations of a request run on its worker thread.</p>
+ * <p>
+ * The mapping is shared by all the requests, and the searches never modify it, so the requests run concurrently.</p>
+ */
+public class MatchServer {
+
+    private static final ImmutableMap<String, InputType> INPUT_TYPES = ImmutableMap.<String, InputType>builder()
+            .put("match-genes", InputType.GENE)
+            .put("match-uniprot", InputType.UNIPROT)
+            .put("match-ensembl", InputType.ENSEMBL)
+            .put("match-vcf", InputType.VCF)
+            .put("match-chrbp", InputType.CHRBP)
+            .put("match-rsids", InputType.RSID)
+            .put("match-proteoforms", InputType.PROTEOFORM)
+            .build();
+
+    private static final String separator = "\t";
+
+    private final Mapping mapping;
+    private final String mapping_path;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Loads the static mapping for all the supported input types and binds the endpoint to the loopback address.
+     *
+     * @param mapping_path Path to the static mapping files, empty to use the files in the jar
+     * @param port         Port of the endpoint, 0 to pick any free port
+     * @param workers      Number of requests processed at the same time
+     */
+    public MatchServer(String mapping_path, int port, int workers) throws IOException {
+        this.mapping_path = mapping_path;
+        System.out.println("Loading mapping...");
+        mapping = new Mapping(InputType.GENE, true, mapping_path);
+        mapping.load(InputType.ENSEMBL, false, mapping_path);
+        mapping.load(InputType.PROTEOFORM, false, mapping_path);
+        mapping.awaitLoaded();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(workers);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("PathwayMatcher listening on http://localhost:" + getPort() + "/");
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                respond(exchange, 405, "Send the input with a POST request.");
+                return;
+            }
+            InputType inputType = INPUT_TYPES.get(exchange.getRequestURI().getPath().replaceAll("^/+|/+$", ""));
+            if (inputType == null) {
+                respond(exchange, 404, "Unknown subcommand. Supported: " + String.join(", ", INPUT_TYPES.keySet()));
+                return;
+            }
+            Map<String, String> parameters = getParameters(exchange.getRequestURI().getRawQuery());
+            List<String> input;
+            try (Reader reader = new InputStreamReader(exchange.getRequestBody(), Charset.forName("ISO-8859-1"))) {
+                input = CharStreams.readLines(reader);
+            }
+            if (input.size() > 0 && input.get(0).startsWith("\uFEFF")) {
+                input.set(0, input.get(0).substring(1));
+            }
+            respond(exchange, 200, match(inputType, input, parameters));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            respond(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String match(InputType inputType, List<String> input, Map<String, String> parameters) throws IOException {
+        boolean topLevelPathways = Boolean.parseBoolean(parameters.getOrDefault("topLevelPathways", "false"));
+        MatchType matchType = MatchType.valueOf(parameters.getOrDefault("matchType", MatchType.SUBSET.name()).toUpperCase());
+        Long range = Long.valueOf(parameters.getOrDefault("range", "0"));
+        StatisticalTest test = StatisticalTest.valueOf(parameters.getOrDefault("test", StatisticalTest.BINOMIAL.name()).toUpperCase());
+        int permutations = Integer.parseInt(parameters.getOrDefault("permutations", "0"));
+        if (permutations < 0) {
+            throw new IllegalArgumentException("Invalid permutations: " + permutations + ". Valid values: 0 for the p-values of the test, or more");
+        }
+        long seed = Long.parseLong(parameters.getOrDefault("seed", Long.toString(EmpiricalPValues.DEFAULT_SEED)));
+        String output = parameters.getOrDefault("output", "both");
+        if (!output.equals("search") && !output.equals("analysis") && !output.equals("both")) {
+            throw new IllegalArgumentException("Invalid output: " + output + ". Valid values: search, analysis, both");
+        }
+
+        SearchResult searchResult;
+        int populationSize;
+        switch (inputType) {
+            case GENE:
+                searchResult = Search.searchWithGene(input, mapping, topLevelPathways);
+                break;
+            case ENSEMBL:
+                searchResult = Search.searchWithEnsembl(input, mapping, topLevelPathways);
+                break;
+            case VCF:
+            case CHRBP:
+                searchResult = Search.searchWithChrBp(input, mapping, topLevelPathways, mapping_path);
+                break;
+            case RSID:
+                searchResult = Search.searchWithRsId(input, mapping, topLevelPathways, mapping_path);
+                break;
+            case PROTEOFORM:
+                searchResult = Search.searchWithProteoform(input, mapping, topLevelPathways, matchType, range);
+                break;
+            default:
+                searchResult = Search.searchWithUniProt(input, mapping, topLevelPathways);
+                break;
+        }
+        if (inputType == InputType.PROTEOFORM) {
+            populationSize = mapping.getProteoformsToReactions().keySet().size();
+        } else {
+            populationSize = mapping.getProteinsToReactions().keySet().size();
+        }
+
+        StringWriter response = new StringWriter();
+        if (!output.equals("analysis")) {
+            BufferedWriter writer = new BufferedWriter(response);
+            searchResult.writeToFile(writer, separator);
+            writer.flush();
+        }
+        if (output.equals("both")) {
+            response.write(System.lineSeparator());
+        }
+        if (!output.equals("search")) {
+            AnalysisResult analysisResult = Analysis.analysis(searchResult, populationSize, test,
+                    permutations > 0 ? new EmpiricalPValues(permutations, seed, 1) : null);
+            analysisResult.writeToFile(new BufferedWriter(response), inputType, separator);
+        }
+        return response.toString();
+    }
+
+    private static Map<String, String> getParameters(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+            String value = equals < 0 ? "true" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            parameters.put(key, value);
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=UTF-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
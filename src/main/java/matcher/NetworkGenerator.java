@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static model.InputType.*;
 
@@ -44,8 +45,8 @@ class NetworkGenerator {
             roles2 = getFirst(roles1, roles2 = roles1);
         }
 
-        for (Role first_role : roles1) {
-            for (Role second_role : roles2) {
+        for (Role first_role : new TreeSet<>(roles1)) {
+            for (Role second_role : new TreeSet<>(roles2)) {
                 validLines.add(String.join("\t", entity1, entity2, container, container_id, first_role.toString(), second_role.toString()));
             }
         }
@@ -151,7 +152,7 @@ class NetworkGenerator {
             for (String reaction : mapping.getProteinsToReactions().get(protein)) {
 
                 // For all other proteins in the same reaction
-                for (String other_protein : mapping.getReactions().get(reaction).getProteinParticipantsWithRole().keySet()) {
+                for (String other_protein : new TreeSet<>(mapping.getReactions().get(reaction).getProteinParticipantsWithRole().keySet())) {
                     if (!other_protein.equals(protein)) {
                         // For all the genes corresponding to each protein
                         for (String gene : mapping.getProteinsToGenes().get(protein)) {
@@ -262,7 +263,7 @@ class NetworkGenerator {
             for (String reaction : mapping.getProteinsToReactions().get(protein)) {
 
                 // For all other participant proteins in the reaction
-                for (String other_protein : mapping.getReactions().get(reaction).getProteinParticipantsWithRole().keySet()) {
+                for (String other_protein : new TreeSet<>(mapping.getReactions().get(reaction).getProteinParticipantsWithRole().keySet())) {
 
                     if (!protein.equals(other_protein)) {
                         List<String> validLines = getValidLines(protein, other_protein,
@@ -364,8 +365,8 @@ class NetworkGenerator {
             // For all reactions where the protein is participant
             for (String reaction : mapping.getProteoformsToReactions().get(proteoform)) {
 
-                //For each other participant proteoforms
-                for (Proteoform other_proteoform : mapping.getReactions().get(reaction).getProteoformParticipants().keySet()) {
+                //For each other participant proteoforms, sorted so that the order does not depend on their hash codes
+                for (Proteoform other_proteoform : new TreeSet<>(mapping.getReactions().get(reaction).getProteoformParticipants().keySet())) {
                     String proteoform_str = proteoform.toString(ProteoformFormat.SIMPLE);
                     String other_proteoform_str = other_proteoform.toString(ProteoformFormat.SIMPLE);
 
@@ -0,0 +1,87 @@
+package matcher;
+
+import matcher.tools.ColumnarTable;
+import methods.ora.AnalysisResult;
+import methods.search.SearchResult;
+import model.InputType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Format of the search and analysis output files.
+ */
+public enum OutputFormat {
+
+    /**
+     * Tab separated values.
+     */
+    TSV(".tsv"),
+
+    /**
+     * Tab separated values compressed with gzip.
+     */
+    TSV_GZ(".tsv.gz"),
+
+    /**
+     * Binary {@link ColumnarTable}, with the values of each column encoded in a dictionary.
+     */
+    COLUMNAR(".col");
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the name of an output file in this format.
+     *
+     * @param name Name of the file without extension, for example search
+     */
+    public String getFileName(String name) {
+        return name + extension;
+    }
+
+    /**
+     * Writes the records of a search and closes the stream.
+     */
+    public void write(OutputStream outputStream, SearchResult searchResult, String separator) throws IOException {
+        if (this == COLUMNAR) {
+            try (ColumnarTable.Writer writer = new ColumnarTable.Writer(outputStream, searchResult.getColumnNames())) {
+                searchResult.forEachRecord(writer);
+            }
+            System.out.println("Finished writing Matching results.");
+            return;
+        }
+        try (BufferedWriter writer = createWriter(outputStream)) {
+            searchResult.writeToFile(writer, separator);
+        }
+    }
+
+    /**
+     * Writes the statistics of an analysis and closes the stream.
+     */
+    public void write(OutputStream outputStream, AnalysisResult analysisResult, InputType inputType, String separator) throws IOException {
+        if (this == COLUMNAR) {
+            try (ColumnarTable.Writer writer = new ColumnarTable.Writer(outputStream, analysisResult.getColumnNames())) {
+                analysisResult.forEachRecord(inputType, writer);
+            }
+            System.out.println("Finished writing Analysis results.");
+            return;
+        }
+        try (BufferedWriter writer = createWriter(outputStream)) {
+            analysisResult.writeToFile(writer, inputType, separator);
+        }
+    }
+
+    private BufferedWriter createWriter(OutputStream outputStream) throws IOException {
+        OutputStream out = this == TSV_GZ ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+        return new BufferedWriter(new OutputStreamWriter(out), BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,225 @@
+package matcher.tools;
+
+import methods.search.RecordSink;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Table of strings stored by columns, with each column encoded as the codes of its values in a dictionary of the
+ * column. The records of the search repeat the same reactions, pathways and display names many times, so each value
+ * is stored once and the rows take a few bytes each.
+ * <p>
+ * The file starts with the magic number, the version and the names of the columns. The rows follow in groups of at
+ * most {@value #GROUP_SIZE} rows, so a table is written without keeping all its rows: each group has its number of
+ * rows, and for each column the values first seen in the group followed by the code of each row. A group of 0 rows
+ * ends the file. The counts and codes are variable length ints, and the strings are their UTF-8 bytes after their
+ * length.</p>
+ */
+public class ColumnarTable {
+
+    static final int MAGIC = 0x504D4354;   // PMCT
+    static final int FORMAT_VERSION = 1;
+    static final int GROUP_SIZE = 1 << 14;
+
+    private final String[] columnNames;
+    private final List<List<String>> dictionaries;
+    private final int[][] codes;    // Codes of the rows of each column
+    private final int rowCount;
+
+    private ColumnarTable(String[] columnNames, List<List<String>> dictionaries, int[][] codes, int rowCount) {
+        this.columnNames = columnNames;
+        this.dictionaries = dictionaries;
+        this.codes = codes;
+        this.rowCount = rowCount;
+    }
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+
+    /**
+     * @return The index of the column, or -1 if the table does not have it
+     */
+    public int indexOf(String columnName) {
+        return Arrays.asList(columnNames).indexOf(columnName);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The distinct values of a column, in the order of their codes
+     */
+    public List<String> getDictionary(int column) {
+        return Collections.unmodifiableList(dictionaries.get(column));
+    }
+
+    /**
+     * @return The code of the value of a row in the dictionary of the column
+     */
+    public int getCode(int row, int column) {
+        return codes[column][row];
+    }
+
+    public String get(int row, int column) {
+        return dictionaries.get(column).get(codes[column][row]);
+    }
+
+    public static ColumnarTable read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream, 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("The file is not a columnar table.");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported version " + version + " of the columnar table.");
+            }
+            String[] columnNames = new String[readVarInt(in)];
+            List<List<String>> dictionaries = new ArrayList<>();
+            for (int c = 0; c < columnNames.length; c++) {
+                columnNames[c] = readString(in);
+                dictionaries.add(new ArrayList<>());
+            }
+            int[][] codes = new int[columnNames.length][16];
+            int rowCount = 0;
+            for (int rows = readVarInt(in); rows > 0; rows = readVarInt(in)) {
+                for (int c = 0; c < columnNames.length; c++) {
+                    for (int added = readVarInt(in); added > 0; added--) {
+                        dictionaries.get(c).add(readString(in));
+                    }
+                    if (codes[c].length < rowCount + rows) {
+                        codes[c] = Arrays.copyOf(codes[c], Math.max(codes[c].length * 2, rowCount + rows));
+                    }
+                    for (int r = rowCount; r < rowCount + rows; r++) {
+                        codes[c][r] = readVarInt(in);
+                    }
+                }
+                rowCount += rows;
+            }
+            return new ColumnarTable(columnNames, dictionaries, codes, rowCount);
+        }
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a table one row at a time, keeping only the dictionaries and the rows of the current group.
+     */
+    public static class Writer implements RecordSink, Closeable {
+
+        private final DataOutputStream out;
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+        private final List<List<String>> values = new ArrayList<>();   // Values of each dictionary by their codes
+        private final int[] dictionarySizes;   // Values of each dictionary already written
+        private final int[][] codes;
+        private int rows;
+
+        /**
+         * Writes the names of the columns.
+         *
+         * @param outputStream Stream of the table, closed with the writer
+         */
+        public Writer(OutputStream outputStream, List<String> columnNames) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeVarInt(columnNames.size());
+            for (String columnName : columnNames) {
+                writeString(columnName);
+                dictionaries.add(new HashMap<>());
+                values.add(new ArrayList<>());
+            }
+            dictionarySizes = new int[columnNames.size()];
+            codes = new int[columnNames.size()][GROUP_SIZE];
+        }
+
+        /**
+         * Adds a row.
+         *
+         * @throws IllegalArgumentException If the row does not have a value for each column
+         */
+        @Override
+        public void accept(String[] row) throws IOException {
+            if (row.length != codes.length) {
+                throw new IllegalArgumentException("The row has " + row.length + " values for " + codes.length + " columns.");
+            }
+            for (int c = 0; c < row.length; c++) {
+                Map<String, Integer> dictionary = dictionaries.get(c);
+                Integer code = dictionary.get(row[c]);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put(row[c], code);
+                    values.get(c).add(row[c]);
+                }
+                codes[c][rows] = code;
+            }
+            rows++;
+            if (rows == GROUP_SIZE) {
+                writeGroup();
+            }
+        }
+
+        private void writeGroup() throws IOException {
+            writeVarInt(rows);
+            for (int c = 0; c < codes.length; c++) {
+                List<String> dictionary = values.get(c);
+                writeVarInt(dictionary.size() - dictionarySizes[c]);
+                for (int code = dictionarySizes[c]; code < dictionary.size(); code++) {
+                    writeString(dictionary.get(code));
+                }
+                dictionarySizes[c] = dictionary.size();
+                for (int r = 0; r < rows; r++) {
+                    writeVarInt(codes[c][r]);
+                }
+            }
+            rows = 0;
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private void writeString(String string) throws IOException {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Writes the last group and the end of the table, and closes the stream.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (rows > 0) {
+                    writeGroup();
+                }
+                writeVarInt(0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
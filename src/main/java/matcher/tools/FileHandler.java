@@ -13,6 +13,8 @@ import java.util.zip.GZIPOutputStream;
 
 public class FileHandler {
 
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;   // Chars written to the output files at a time
+
     public static BufferedWriter createFile(String file_path) {
 
         BufferedWriter br = null;
@@ -33,7 +35,7 @@ public class FileHandler {
                 }
             }
 
-            br = new BufferedWriter(new FileWriter(file_path));
+            br = new BufferedWriter(new FileWriter(file_path), OUTPUT_BUFFER_SIZE);
         } catch (IOException e) {
             System.err.println(model.Error.COULD_NOT_WRITE_TO_OUTPUT_FILES.getMessage());
             return null;
@@ -42,8 +44,18 @@ public class FileHandler {
     }
 
     public static BufferedWriter createFile(String prefix, String file) {
+        OutputStream out = createOutputStream(prefix, file);
+        return out == null ? null : new BufferedWriter(new OutputStreamWriter(out), OUTPUT_BUFFER_SIZE);
+    }
 
-        BufferedWriter br = null;
+    /**
+     * Creates a binary output file, and the directories of the prefix.
+     *
+     * @return The stream of the file, or null if it could not be created
+     */
+    public static OutputStream createOutputStream(String prefix, String file) {
+
+        OutputStream out = null;
 
         try {
             if (prefix.length() == 0 && file.length() == 0) {
@@ -59,12 +71,12 @@ public class FileHandler {
                     }
                 }
             }
-            br = new BufferedWriter(new FileWriter(prefix + file));
+            out = new FileOutputStream(prefix + file);
         } catch (IOException e) {
             System.err.println(model.Error.COULD_NOT_WRITE_TO_OUTPUT_FILES.getMessage());
             return null;
         }
-        return br;
+        return out;
     }
 
     public static final String UTF8_BOM = "\uFEFF";
@@ -0,0 +1,110 @@
+package matcher.tools;
+
+import com.google.common.collect.SetMultimap;
+import model.MappingStore;
+import model.Pathway;
+import model.PathwayClosure;
+import model.Proteoform;
+import model.Reaction;
+import model.RegionIndex;
+import model.RsidIndex;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static model.Mapping.getSerializedObject;
+
+public class MappingConverter {
+
+    private static final String[] PROTEIN_TABLES = {
+            "proteinsToReactions", "reactionsToPathways", "pathwaysToTopLevelPathways",
+            "genesToProteins", "ensemblToProteins",
+            "proteinsToComplexes", "complexesToProteins", "proteinsToSets", "setsToProteins"};
+
+    /**
+     * Converts the serialized static mapping files (.gz) into a directory with the binary mapping store, which
+     * can be given to the --mapping option of PathwayMatcher.
+     *
+     * <p>The tables share the identifier domains, so a protein accession has the same identifier in every table.</p>
+     *
+     * @param args [0] path to the serialized mapping files, empty to use the resources [1] output path
+     */
+    public static void main(String args[]) {
+        if (args.length <= 1) {
+            System.out.println("Need to specify the input path and the output path.");
+            System.exit(1);
+        }
+        try {
+            convert(args[0], args[1]);
+        } catch (IOException e) {
+            System.out.println("Could not write the mapping store at: " + args[1]);
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    public static void convert(String inputPath, String outputPath) throws IOException {
+        MappingStore.Writer writer = new MappingStore.Writer();
+
+        writer.addReactions((Map<String, Reaction>) getSerializedObject(inputPath, "reactions.gz"));
+        writer.addPathways((Map<String, Pathway>) getSerializedObject(inputPath, "pathways.gz"));
+        writer.addMap("proteinsToNames", "proteins", "names", (Map<String, String>) getSerializedObject(inputPath, "proteinsToNames.gz"));
+
+        Map<String, SetMultimap<String, String>> tables = new HashMap<>();
+        for (String table : PROTEIN_TABLES) {
+            tables.put(table, (SetMultimap<String, String>) getSerializedObject(inputPath, table + ".gz"));
+            writer.addTable(table, getDomain(table, true), getDomain(table, false), tables.get(table));
+        }
+
+        writer.addTable("proteinsToProteoforms", "proteins", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                (SetMultimap<String, Proteoform>) getSerializedObject(inputPath, "proteinsToProteoforms.gz"));
+        SetMultimap<Proteoform, String> proteoformsToReactions = (SetMultimap<Proteoform, String>) getSerializedObject(inputPath, "proteoformsToReactions.gz");
+        writer.addTable("proteoformsToReactions", "proteoforms", MappingStore.PROTEOFORM, "reactions", MappingStore.STRING,
+                proteoformsToReactions);
+        writer.addTable("proteoformsToComplexes", "proteoforms", MappingStore.PROTEOFORM, "complexes", MappingStore.STRING,
+                (SetMultimap<Proteoform, String>) getSerializedObject(inputPath, "proteoformsToComplexes.gz"));
+        writer.addTable("complexesToProteoforms", "complexes", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                (SetMultimap<String, Proteoform>) getSerializedObject(inputPath, "complexesToProteoforms.gz"));
+        writer.addTable("proteoformsToSets", "proteoforms", MappingStore.PROTEOFORM, "sets", MappingStore.STRING,
+                (SetMultimap<Proteoform, String>) getSerializedObject(inputPath, "proteoformsToSets.gz"));
+        writer.addTable("setsToProteoforms", "sets", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                (SetMultimap<String, Proteoform>) getSerializedObject(inputPath, "setsToProteoforms.gz"));
+
+        RsidIndex.Builder rsIds = new RsidIndex.Builder();
+        RegionIndex.Builder regions = new RegionIndex.Builder();
+        for (int chr = 1; chr <= 22; chr++) {
+            try {
+                SetMultimap<String, String> rsIdsToProteins = (SetMultimap<String, String>) getSerializedObject(inputPath, "rsIdsToProteins" + chr + ".gz");
+                writer.addTable("rsIdsToProteins" + chr, "rsIds" + chr, "proteins", rsIdsToProteins);
+                rsIds.add(chr, rsIdsToProteins);
+                SetMultimap<Long, String> chrBpToProteins = (SetMultimap<Long, String>) getSerializedObject(inputPath, "chrBpToProteins" + chr + ".gz");
+                writer.addTable("chrBpToProteins" + chr, "chrBp" + chr, MappingStore.LONG, "proteins", MappingStore.STRING, chrBpToProteins);
+                regions.add(chr, chrBpToProteins);
+            } catch (FileNotFoundException e) {
+                System.out.println("Skipping the genetic variants of chromosome " + chr + ": " + e.getMessage());
+            }
+        }
+
+        writer.write(outputPath);
+        rsIds.build().write(outputPath);
+        regions.build().write(outputPath);
+        PathwayClosure.build(tables.get("proteinsToReactions"), MappingStore.STRING,
+                tables.get("reactionsToPathways"), tables.get("pathwaysToTopLevelPathways"))
+                .write(outputPath, PathwayClosure.PROTEINS_FILE_NAME);
+        PathwayClosure.build(proteoformsToReactions, MappingStore.PROTEOFORM,
+                tables.get("reactionsToPathways"), tables.get("pathwaysToTopLevelPathways"))
+                .write(outputPath, PathwayClosure.PROTEOFORMS_FILE_NAME);
+        System.out.println("Mapping store written to: " + outputPath);
+    }
+
+    /**
+     * Gets the domain of the keys or values of a table from its name, for example "proteinsToReactions".
+     */
+    private static String getDomain(String table, boolean keys) {
+        String domain = keys ? table.substring(0, table.indexOf("To")) : table.substring(table.indexOf("To") + 2);
+        domain = Character.toLowerCase(domain.charAt(0)) + domain.substring(1);
+        return domain.equals("topLevelPathways") ? "pathways" : domain;
+    }
+}
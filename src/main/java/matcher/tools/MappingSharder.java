@@ -0,0 +1,71 @@
+package matcher.tools;
+
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import model.MappingStore;
+import model.Proteoform;
+import model.ShardedSetMultimap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static model.Mapping.getSerializedObject;
+
+public class MappingSharder {
+
+    static final int DEFAULT_KEYS_PER_SHARD = 256;
+
+    private static final String[] PROTEIN_TABLES = {
+            "proteinsToComplexes", "complexesToProteins", "proteinsToSets", "setsToProteins"};
+
+    private static final String[] PROTEOFORM_KEY_TABLES = {"proteoformsToComplexes", "proteoformsToSets"};
+
+    private static final String[] PROTEOFORM_VALUE_TABLES = {"complexesToProteoforms", "setsToProteoforms"};
+
+    /**
+     * Writes the protein names and the tables of the networks as shards, next to the serialized mapping files (.gz).
+     * The mapping then reads only the shards with the requested keys, instead of the whole serialized table.
+     *
+     * @param args [0] path to the serialized mapping files, empty to use the resources [1] output path
+     *             [2] optional number of keys per shard
+     */
+    public static void main(String args[]) {
+        if (args.length <= 1) {
+            System.out.println("Need to specify the input path and the output path.");
+            System.exit(1);
+        }
+        int keysPerShard = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_KEYS_PER_SHARD;
+        try {
+            shard(args[0], args[1], keysPerShard);
+        } catch (IOException e) {
+            System.out.println("Could not write the shards at: " + args[1]);
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    public static void shard(String inputPath, String outputPath, int keysPerShard) throws IOException {
+        File directory = new File(outputPath);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create the directory: " + outputPath);
+        }
+
+        ShardedSetMultimap.write(outputPath, "proteinsToNames",
+                Multimaps.forMap((Map<String, String>) getSerializedObject(inputPath, "proteinsToNames.gz")),
+                MappingStore.STRING, MappingStore.STRING, keysPerShard);
+        for (String table : PROTEIN_TABLES) {
+            ShardedSetMultimap.write(outputPath, table, (SetMultimap<String, String>) getSerializedObject(inputPath, table + ".gz"),
+                    MappingStore.STRING, MappingStore.STRING, keysPerShard);
+        }
+        for (String table : PROTEOFORM_KEY_TABLES) {
+            ShardedSetMultimap.write(outputPath, table, (SetMultimap<Proteoform, String>) getSerializedObject(inputPath, table + ".gz"),
+                    MappingStore.PROTEOFORM, MappingStore.STRING, keysPerShard);
+        }
+        for (String table : PROTEOFORM_VALUE_TABLES) {
+            ShardedSetMultimap.write(outputPath, table, (SetMultimap<String, Proteoform>) getSerializedObject(inputPath, table + ".gz"),
+                    MappingStore.STRING, MappingStore.PROTEOFORM, keysPerShard);
+        }
+        System.out.println("Shards written to: " + outputPath);
+    }
+}
@@ -384,15 +384,13 @@ public class Sensitivity implements Runnable {
             }
             // Change one type
             int n = rand.nextInt(newProteoform.getPtms().size());
-            Pair<String, Long> ptm = newProteoform.getPtms().get(n);
-            newProteoform.getPtms().remove(n);
-            ptm = new MutablePair<>("00000", ptm.getRight());
-            newProteoform.addPtm(ptm.getKey(), ptm.getValue());
+            Pair<String, Long> ptm = newProteoform.removePtm(n);
+            newProteoform.addPtm("00000", ptm.getRight());
 
             // Change one site
             n = rand.nextInt(newProteoform.getPtms().size());
-            Long coordinate = newProteoform.getPtms().get(n).getValue();
-            newProteoform.getPtms().get(n).setValue(coordinate + 5);
+            ptm = newProteoform.removePtm(n);
+            newProteoform.addPtm(ptm.getKey(), ptm.getValue() + 5);
         }
 
         return newProteoform;
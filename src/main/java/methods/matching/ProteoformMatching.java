@@ -2,6 +2,10 @@ package methods.matching;
 
 import model.MatchType;
 import model.Proteoform;
+import model.PtmIndex;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.BitSet;
 
 public abstract class ProteoformMatching {
 
@@ -27,6 +31,80 @@ public abstract class ProteoformMatching {
 		return true;
 	}
 
+	/**
+	 * Gets the reference proteoforms of an index that can match an input proteoform, so that only they are compared
+	 * with {@link #matches(Proteoform, Proteoform, Long)}. The candidates include all the matches, and can include
+	 * proteoforms that do not match.
+	 *
+	 * @return The numbers in the index of the candidates
+	 */
+	public BitSet getCandidates(Proteoform iP, PtmIndex index, Long margin) {
+		BitSet candidates = new BitSet(index.size());
+		candidates.set(0, index.size());
+		return candidates;
+	}
+
+	private static long getSite(Pair<String, Long> ptm) {
+		return ptm.getValue() == null ? -1L : ptm.getValue();
+	}
+
+	static long getMargin(Long margin) {
+		return margin == null ? 0L : margin;
+	}
+
+	/**
+	 * Gets the reference proteoforms with a modification that can match each modification of the input proteoform.
+	 */
+	static BitSet withAllInputPtms(Proteoform iP, PtmIndex index, Long margin, boolean useTypes) {
+		BitSet candidates = new BitSet(index.size());
+		candidates.set(0, index.size());
+		for (Pair<String, Long> iPtm : iP.getPtms()) {
+			BitSet found = new BitSet(index.size());
+			index.forEachSlot(useTypes ? iPtm.getKey() : null, getSite(iPtm), getMargin(margin), slot -> found.set(index.getProteoform(slot)));
+			candidates.and(found);
+			if (candidates.isEmpty()) {
+				break;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Gets the reference proteoforms with each modification matched by some modification of the input proteoform.
+	 */
+	static BitSet withAllReferencePtms(Proteoform iP, PtmIndex index, Long margin, boolean useTypes) {
+		BitSet matched = new BitSet(index.getSlotCount());
+		for (Pair<String, Long> iPtm : iP.getPtms()) {
+			index.forEachSlot(useTypes ? iPtm.getKey() : null, getSite(iPtm), getMargin(margin), matched::set);
+		}
+		BitSet candidates = new BitSet(index.size());
+		for (int rP = 0; rP < index.size(); rP++) {
+			if (matched.nextClearBit(index.getFirstSlot(rP)) >= index.getEndSlot(rP)) {
+				candidates.set(rP);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Gets the reference proteoforms with some modification that can match a modification of the input proteoform,
+	 * or without modifications when the input proteoform has none.
+	 */
+	static BitSet withAnyPtm(Proteoform iP, PtmIndex index, Long margin, boolean useTypes) {
+		BitSet candidates = new BitSet(index.size());
+		for (Pair<String, Long> iPtm : iP.getPtms()) {
+			index.forEachSlot(useTypes ? iPtm.getKey() : null, getSite(iPtm), getMargin(margin), slot -> candidates.set(index.getProteoform(slot)));
+		}
+		if (iP.getPtms().isEmpty()) {
+			for (int rP = 0; rP < index.size(); rP++) {
+				if (index.getFirstSlot(rP) == index.getEndSlot(rP)) {
+					candidates.set(rP);
+				}
+			}
+		}
+		return candidates;
+	}
+
 	public static ProteoformMatching getInstance(MatchType matchType){
 		ProteoformMatching matcher = null;
 		switch (matchType) {
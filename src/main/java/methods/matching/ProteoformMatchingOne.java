@@ -1,8 +1,9 @@
 package methods.matching;
 
 import model.Proteoform;
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import model.PtmIndex;
+
+import java.util.BitSet;
 
 public class ProteoformMatchingOne extends ProteoformMatching {
 
@@ -39,22 +40,11 @@ public class ProteoformMatchingOne extends ProteoformMatching {
         }
 
         // At least one of the reference ptms should be in the input
-        for(Pair<String, Long> rPtm : rP.getPtms()){
-            if(iP.getPtms().contains(new MutablePair<String, Long>(rPtm.getKey(), rPtm.getValue()))){
-                return true;
-            }
-            // Traverse all the possible input ptms
-            for (Pair<String, Long> iPtm : iP.getPtms()) {
-                // Check type is equal if needed
-                if (!useTypes || rPtm.getKey().equals(iPtm.getKey())) {
-                    // Check the coordinates are within the margin
-                    if (matches(rPtm.getValue(), iPtm.getValue(), margin)) {
-                        return true;
-                    }
-                }
-            }
-        }
+        return rP.getPtmArray().anyMatchedIn(iP.getPtmArray(), getMargin(margin), useTypes);
+    }
 
-        return false;
+    @Override
+    public BitSet getCandidates(Proteoform iP, PtmIndex index, Long margin) {
+        return withAnyPtm(iP, index, margin, useTypes);
     }
 }
@@ -1,9 +1,9 @@
 package methods.matching;
 
 import model.Proteoform;
-import org.apache.commons.lang3.tuple.MutablePair;
+import model.PtmIndex;
 
-import java.util.Map;
+import java.util.BitSet;
 
 public class ProteoformMatchingStrict extends ProteoformMatching {
 
@@ -27,21 +27,19 @@ public class ProteoformMatchingStrict extends ProteoformMatching {
             return false;
         }
 
-        // All the reference PTMs should be exactly in the input
-        for (Map.Entry<String, Long> rPtm : rP.getPtms()) {
-            if (!iP.getPtms().contains(new MutablePair<>(rPtm.getKey(), rPtm.getValue()))) {
-                return false;
-            }
-        }
+        // All the reference PTMs should be exactly in the input, and all the input PTMs exactly in the reference
+        return rP.getPtmArray().sameDistinctPtms(iP.getPtmArray());
+    }
 
-        // All the input PTMs should be exactly in the reference
-        for (Map.Entry<String, Long> iPtm : iP.getPtms()) {
-            if (!rP.getPtms().contains(new MutablePair<>(iPtm.getKey(), iPtm.getValue()))) {
-                return false;
+    @Override
+    public BitSet getCandidates(Proteoform iP, PtmIndex index, Long margin) {
+        // The modifications are the same, with the same types and sites
+        BitSet candidates = withAllInputPtms(iP, index, 0L, true);
+        for (int rP = candidates.nextSetBit(0); rP >= 0; rP = candidates.nextSetBit(rP + 1)) {
+            if (index.getEndSlot(rP) - index.getFirstSlot(rP) != iP.getPtms().size()) {
+                candidates.clear(rP);
             }
         }
-
-        return true;
+        return candidates;
     }
-
 }
@@ -1,8 +1,9 @@
 package methods.matching;
 
 import model.Proteoform;
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import model.PtmIndex;
+
+import java.util.BitSet;
 
 /**
  * Matching type where the input proteoforms are matched with proteoforms, when all the ptms of the input proteoform are in the reference proteoforms.
@@ -54,28 +55,12 @@ public class ProteoformMatchingSubset extends ProteoformMatching {
             return false;
         }
 
-        // All the input PTMs should be in the reference
-        for (Pair<String, Long> iPtm : iP.getPtms()) {
-            // If the ptm is exactly then everything keeps ok
-            // If the ptm is not contained then we check in a flexible way with the coordinate margin and type
-            if (!rP.getPtms().contains(new MutablePair<>(iPtm.getKey(), iPtm.getValue()))) {
-                boolean anyMatches = false;
-                // Try to find the current input ptm in all the available reference ptms
-                for (Pair<String, Long> rPtm : rP.getPtms()) {
-                    // If type is required then it must be equal
-                    if (!useTypes || iPtm.getLeft().equals(rPtm.getLeft())) {
-                        // Check the coordinate within the margin
-                        if (matches(rPtm.getRight(), iPtm.getRight(), margin)) {
-                            anyMatches = true;
-                            break;
-                        }
-                    }
-                }
-                if (!anyMatches) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        // All the input PTMs should be in the reference, with the same type if required and the site within the margin
+        return iP.getPtmArray().allMatchedIn(rP.getPtmArray(), getMargin(margin), useTypes);
+    }
+
+    @Override
+    public BitSet getCandidates(Proteoform iP, PtmIndex index, Long margin) {
+        return withAllInputPtms(iP, index, margin, useTypes);
     }
 }
@@ -1,8 +1,9 @@
 package methods.matching;
 
 import model.Proteoform;
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import model.PtmIndex;
+
+import java.util.BitSet;
 
 /**
  * Matching type where the input proteoforms are matched with proteoforms, when the input contains all or more of the post translational modification of the reference proteoforms.
@@ -50,28 +51,12 @@ public class ProteoformMatchingSuperset extends ProteoformMatching {
             return false;
         }
 
-        // All the reference PTMs should be in the inputs
-        for (Pair<String, Long> rPtm : rP.getPtms()) {
-            // If the rPtm is exatly in the input then it is ok
-            // If the rPtm is not present then we check in a flexible way with the coordinate margin or type
-            if (!iP.getPtms().contains(new MutablePair<>(rPtm.getKey(), rPtm.getValue()))) {
-                boolean anyMatches = false;
-                // Try to find the current reference ptm in the available input ptms
-                for (Pair<String, Long> iPtm : iP.getPtms()) {
-                    // Check type is equal if needed
-                    if (!useTypes || rPtm.getLeft().equals(iPtm.getLeft())) {
-                        // Check the coordinates are within the margin
-                        if (matches(rPtm.getRight(), iPtm.getRight(), margin)) {
-                            anyMatches = true;
-                            break;
-                        }
-                    }
-                }
-                if (!anyMatches) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        // All the reference PTMs should be in the inputs, with the same type if required and the site within the margin
+        return rP.getPtmArray().allMatchedIn(iP.getPtmArray(), getMargin(margin), useTypes);
+    }
+
+    @Override
+    public BitSet getCandidates(Proteoform iP, PtmIndex index, Long margin) {
+        return withAllReferencePtms(iP, index, margin, useTypes);
     }
 }
@@ -1,47 +1,87 @@
 package methods.ora;
 
+import methods.search.PathwayHits;
 import methods.search.SearchResult;
 import model.MessageStatus;
 import model.Pathway;
-import org.apache.commons.math3.distribution.BinomialDistribution;
 
 import java.util.Comparator;
-import java.util.Set;
 import java.util.TreeSet;
 
 public class Analysis {
 
     /**
-     * Performs over representation analysis on the hit pathways by the search.
+     * Performs over representation analysis on the hit pathways by the search, with the binomial test.
      *
-     * @param searchResult   Pathway instances with the found entities and the counts. Results of the analysis go inside this instances.
+     * @param searchResult   Hit pathways with the found entities and the counts. The search result is not modified.
      * @param populationSize Total number of proteins(counting isoform) or proteoforms in Reactome
-     * @return Error or success status messages
+     * @return The statistics of each hit pathway
      */
     public static AnalysisResult analysis(SearchResult searchResult, int populationSize) {
+        return analysis(searchResult, populationSize, StatisticalTest.BINOMIAL);
+    }
+
+    /**
+     * Performs over representation analysis on the hit pathways by the search.
+     *
+     * @param searchResult   Hit pathways with the found entities and the counts. The search result is not modified.
+     *                       The entities found in each pathway are counted by intersecting the entities of the search
+     *                       with the {@link PathwayMembership} of its closure.
+     * @param populationSize Total number of proteins(counting isoform) or proteoforms in Reactome
+     * @param test           Test of the p-values
+     * @return The statistics of each hit pathway
+     */
+    public static AnalysisResult analysis(SearchResult searchResult, int populationSize, StatisticalTest test) {
+        return analysis(searchResult, populationSize, test, null);
+    }
+
+    /**
+     * Performs over representation analysis on the hit pathways by the search.
+     *
+     * @param searchResult   Hit pathways with the found entities and the counts. The search result is not modified.
+     * @param populationSize Total number of proteins(counting isoform) or proteoforms in Reactome
+     * @param test           Test of the p-values, when there are no permutations
+     * @param permutations   Random samples of the population for empirical p-values, or null for the p-values of the
+     *                       test
+     * @return The statistics of each hit pathway
+     */
+    public static AnalysisResult analysis(SearchResult searchResult, int populationSize, StatisticalTest test,
+                                          EmpiricalPValues permutations) {
 
         System.out.println("Starting ORA analysis...");
 
+        PathwayHits hits = searchResult.getPathwayHits();
+        AnalysisResult result = new AnalysisResult(hits, new MessageStatus("Sucess", 0, 0, "", ""));
+        PathwayMembership membership = PathwayMembership.of(searchResult.getClosure());
+        CompressedBitmap entities = CompressedBitmap.of(searchResult.getHitEntities());
+        PValueKernel kernel = new PValueKernel(Math.max(populationSize, searchResult.getHitProteins().size()));
+
         // Traverse all the pathways
         int percentage = 0;
         int processed = 0;
-        for (Pathway pathway : searchResult.getHitPathways()) {
+        for (int index = 0; index < hits.size(); index++) {
+            Pathway pathway = hits.getPathway(index);
 
             // Calculate proteoformSet and iReactions ratio
-            pathway.setEntitiesRatio(
-                    (double) pathway.getEntitiesFound().size() / (double) pathway.getNumEntitiesTotal());
-            pathway.setReactionsRatio(
-                    (double) pathway.getReactionsFound().size() / (double) pathway.getNumReactionsTotal());
+            int entitiesFound = membership.countFound(pathway.getStId(), entities);
+            result.getEntitiesFound()[index] = entitiesFound;
+            result.getEntitiesRatios()[index] = (double) entitiesFound / (double) pathway.getNumEntitiesTotal();
+            result.getReactionsRatios()[index] = (double) hits.getNumReactionsFound(index) / (double) pathway.getNumReactionsTotal();
 
             // Calculate the proteoformSet pvalue
-            int k = pathway.getEntitiesFound().size(); // Sucessful trials: Entities found participating in the pathway
-            double p = pathway.getNumEntitiesTotal() / (double) populationSize; // Probability of sucess in each trial: Entities in the pathway / All possible entities
-
-            BinomialDistribution binomialDistribution = new BinomialDistribution(searchResult.getHitProteins().size(), p); // Given n trials with probability p of success
-            pathway.setpValue(1 - binomialDistribution.cumulativeProbability(k - 1)); // Probability of k or more successful trials
+            int k = entitiesFound; // Sucessful trials: Entities found participating in the pathway
+            int n = searchResult.getHitProteins().size(); // Trials, or size of the sample
+            if (permutations == null && test == StatisticalTest.HYPERGEOMETRIC) {
+                // Probability of k or more entities of the pathway in a sample of n entities of the population
+                int successes = Math.min(pathway.getNumEntitiesTotal(), populationSize);
+                result.getPValues()[index] = kernel.hypergeometricUpperTail(populationSize, successes, Math.min(n, populationSize), k);
+            } else if (permutations == null) {
+                double p = pathway.getNumEntitiesTotal() / (double) populationSize; // Probability of sucess in each trial: Entities in the pathway / All possible entities
+                result.getPValues()[index] = kernel.binomialUpperTail(n, p, k); // Probability of k or more successful trials
+            }
 
             processed++;
-            int newPercentage = processed * 100 / searchResult.getHitPathways().size();
+            int newPercentage = processed * 100 / hits.size();
             if (newPercentage > percentage + 2) {
                 System.out.print(newPercentage + "% ");
                 percentage = newPercentage;
@@ -49,25 +89,39 @@ public class Analysis {
         }
         System.out.println("\n");
 
-        adjustPValues(searchResult.getHitPathways());
+        if (permutations != null) {
+            System.out.println("Sampling " + permutations.getPermutations() + " permutations...");
+            CompressedBitmap[] members = new CompressedBitmap[hits.size()];
+            for (int index = 0; index < hits.size(); index++) {
+                members[index] = membership.getMembers(hits.getPathway(index).getStId());
+            }
+            // The entities of the population that are not in the closure are not in any pathway
+            int population = Math.max(populationSize, searchResult.getClosure().size());
+            double[] pValues = permutations.pValues(members, result.getEntitiesFound(), searchResult.getHitProteins().size(), population);
+            System.arraycopy(pValues, 0, result.getPValues(), 0, pValues.length);
+        }
+
+        adjustPValues(hits, result.getPValues(), result.getEntitiesFDRs());
 
-        return new AnalysisResult(searchResult.getHitPathways(), new MessageStatus("Sucess", 0, 0, "", ""));
+        return result;
     }
 
     /**
      * Benjamini-Hochberg adjustment for FDR at 0.05%
      */
-    private static void adjustPValues(Set<Pathway> hitPathways) {
+    private static void adjustPValues(PathwayHits hits, double[] pValues, double[] entitiesFDRs) {
 
         // Sort iPathways by pValue
-        Comparator<Pathway> comparator = new Comparator<Pathway>() {
-            public int compare(Pathway x, Pathway y) {
+        Comparator<Integer> comparator = new Comparator<Integer>() {
+            public int compare(Integer i, Integer j) {
+                Pathway x = hits.getPathway(i);
+                Pathway y = hits.getPathway(j);
 
                 if (x.equals(y))
                     return 0;
 
-                if (x.getPValue() != y.getPValue()) {
-                    return Double.compare(x.getPValue(), y.getPValue());
+                if (pValues[i] != pValues[j]) {
+                    return Double.compare(pValues[i], pValues[j]);
                 }
 
                 // First by displayName
@@ -84,17 +138,17 @@ public class Analysis {
             }
         };
 
-        TreeSet<Pathway> sortedPathways = new TreeSet<Pathway>(comparator);
+        TreeSet<Integer> sortedPathways = new TreeSet<>(comparator);
 
-        for (Pathway pathway : hitPathways) {
-            sortedPathways.add(pathway);
+        for (int index = 0; index < hits.size(); index++) {
+            sortedPathways.add(index);
         }
         // System.out.println("The number of pathways to be analysed is: " +
         // sortedPathways.size());
         // Count number of iPathways with p-Values less than 0.05
         double n = 0;
-        for (Pathway pathway : sortedPathways) {
-            if (pathway.getPValue() < 0.05) {
+        for (int index : sortedPathways) {
+            if (pValues[index] < 0.05) {
                 n++;
             } else {
                 break;
@@ -102,10 +156,10 @@ public class Analysis {
         }
 
         double rank = 1;
-        for (Pathway pathway : sortedPathways) {
-            double newPValue = pathway.getPValue() * n;
+        for (int index : sortedPathways) {
+            double newPValue = pValues[index] * n;
             newPValue /= rank;
-            pathway.setEntitiesFDR(newPValue);
+            entitiesFDRs[index] = newPValue;
             rank++;
         }
         System.out.println("The number of analysed pathways is: " + sortedPathways.size());
@@ -1,66 +1,117 @@
 package methods.ora;
 
+import methods.search.PathwayHits;
+import methods.search.RecordSink;
 import model.InputType;
 import model.MessageStatus;
 import model.Pathway;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static model.Error.ERROR_WITH_OUTPUT_FILE;
 import static model.Error.sendError;
 
+/**
+ * Statistics of the over representation analysis for each hit pathway of a search.
+ * The values are arrays indexed by the pathway indexes of the {@link PathwayHits}.
+ */
 public class AnalysisResult {
 
-    private Set<Pathway> hitPathways;
+    private static final List<String> COLUMN_NAMES = Collections.unmodifiableList(Arrays.asList("Pathway StId",
+            "Pathway Name", "# Entities Found", "# Entities Total", "Entities Ratio", "Entities P-Value", "Significant",
+            "Entities FDR", "# Reactions Found", "# Reactions Total", "Reactions Ratio", "Entities Found",
+            "Reactions Found"));
+
+    private PathwayHits hits;
+    private int[] entitiesFound;    // Entities of the search in each pathway, the k of the p-values
+    private double[] entitiesRatios;
+    private double[] reactionsRatios;
+    private double[] pValues;
+    private double[] entitiesFDRs;
     private MessageStatus status;
 
-    public Set<Pathway> getHitPathways() {
-        return hitPathways;
+    public PathwayHits getHits() {
+        return hits;
+    }
+
+    int[] getEntitiesFound() {
+        return entitiesFound;
+    }
+
+    double[] getEntitiesRatios() {
+        return entitiesRatios;
+    }
+
+    double[] getReactionsRatios() {
+        return reactionsRatios;
     }
 
-    public void setHitPathways(Set<Pathway> hitPathways) {
-        this.hitPathways = hitPathways;
+    double[] getPValues() {
+        return pValues;
+    }
+
+    double[] getEntitiesFDRs() {
+        return entitiesFDRs;
     }
 
     public void setStatus(MessageStatus status) {
         this.status = status;
     }
 
-    public AnalysisResult(Set<Pathway> hitPathways, MessageStatus status) {
-        this.hitPathways = hitPathways;
+    public AnalysisResult(PathwayHits hits, MessageStatus status) {
+        this.hits = hits;
+        this.entitiesFound = new int[hits.size()];
+        this.entitiesRatios = new double[hits.size()];
+        this.reactionsRatios = new double[hits.size()];
+        this.pValues = new double[hits.size()];
+        this.entitiesFDRs = new double[hits.size()];
+        Arrays.fill(pValues, 1);
+        Arrays.fill(entitiesFDRs, 1);
         this.status = status;
     }
 
+    public List<String> getColumnNames() {
+        return COLUMN_NAMES;
+    }
+
+    /**
+     * Passes a record with the statistics of each hit pathway to the sink, in the order they are written.
+     */
+    public void forEachRecord(InputType inputType, RecordSink sink) throws IOException {
+        String[] record = new String[COLUMN_NAMES.size()];
+        for (int index : hits.getSortedIndexes()) {
+            Pathway pathway = hits.getPathway(index);
+
+            record[0] = pathway.getStId();
+            record[1] = String.join("", "\"", pathway.getDisplayName(), "\"");
+            record[2] = Integer.toString(entitiesFound[index]);
+            record[3] = Integer.toString(pathway.getNumEntitiesTotal());
+            record[4] = Double.toString(entitiesRatios[index]);
+            record[5] = Double.toString(pValues[index]);
+            record[6] = (pValues[index] < 0.05 ? "Yes" : "No");
+            record[7] = Double.toString(entitiesFDRs[index]);
+            record[8] = Integer.toString(hits.getNumReactionsFound(index));
+            record[9] = Integer.toString(pathway.getNumReactionsTotal());
+            record[10] = Double.toString(reactionsRatios[index]);
+            record[11] = hits.getEntitiesFoundString(index, inputType);
+            record[12] = hits.getReactionsFoundString(index);
+            sink.accept(record);
+        }
+    }
+
     public void writeToFile(BufferedWriter outputAnalysis, InputType inputType, String separator) {
         try {
             // Write headers of the file
-            outputAnalysis.write("Pathway StId" + separator + "Pathway Name" + separator + "# Entities Found"
-                    + separator + "# Entities Total" + separator + "Entities Ratio" + separator + "Entities P-Value"
-                    + separator + "Significant" + separator + "Entities FDR" + separator + "# Reactions Found"
-                    + separator + "# Reactions Total" + separator + "Reactions Ratio" + separator + "Entities Found"
-                    + separator + "Reactions Found" + System.lineSeparator());
+            outputAnalysis.write(String.join(separator, COLUMN_NAMES) + System.lineSeparator());
 
             // For each pathway
-            for (Pathway pathway : hitPathways) {
-
-                String line = String.join(separator,
-                        pathway.getStId(),
-                        String.join("", "\"", pathway.getDisplayName(), "\""),
-                        Integer.toString(pathway.getEntitiesFound().size()),
-                        Integer.toString(pathway.getNumEntitiesTotal()),
-                        Double.toString(pathway.getEntitiesRatio()),
-                        Double.toString(pathway.getPValue()),
-                        (pathway.getPValue() < 0.05 ? "Yes" : "No"),
-                        Double.toString(pathway.getEntitiesFDR()),
-                        Integer.toString(pathway.getReactionsFound().size()),
-                        Integer.toString(pathway.getNumReactionsTotal()),
-                        Double.toString(pathway.getReactionsRatio()),
-                        pathway.getEntitiesFoundString(inputType),
-                        pathway.getReactionsFoundString());
-                outputAnalysis.write(line);
+            forEachRecord(inputType, record -> {
+                outputAnalysis.write(String.join(separator, record));
                 outputAnalysis.newLine();
-            }
+            });
 
             outputAnalysis.close();
 
@@ -71,12 +122,19 @@ public class AnalysisResult {
         }
     }
 
+    /**
+     * Gets a copy of the hit pathway with the reactions and entities found, and the statistics of the analysis.
+     */
     public Pathway getHitPathwayByStid(String stid){
-        for(Pathway pathway : this.hitPathways) {
-            if(pathway.getStId().equals(stid)) {
-                return pathway;
-            }
+        int index = hits.indexOf(stid);
+        if (index < 0) {
+            return null;
         }
-        return null;
+        Pathway pathway = hits.toPathway(index);
+        pathway.setEntitiesRatio(entitiesRatios[index]);
+        pathway.setReactionsRatio(reactionsRatios[index]);
+        pathway.setpValue(pValues[index]);
+        pathway.setEntitiesFDR(entitiesFDRs[index]);
+        return pathway;
     }
 }
@@ -0,0 +1,202 @@
+package methods.ora;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of non negative ints, compressed as in roaring bitmaps: the values are split in chunks of their high 16
+ * bits, and each chunk keeps its low 16 bits in a sorted array when it has few values, or in a bitmap of 2^16 bits
+ * when it has many. The size of the intersection with another set is counted chunk by chunk, with popcounts over
+ * the words of two bitmaps, so it does not create any set.
+ */
+public class CompressedBitmap {
+
+    private static final int ARRAY_MAX_SIZE = 4096;    // Above this size a bitmap of the chunk takes less memory
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new char[0][], new long[0][], new int[0]);
+
+    private final char[] keys;          // High 16 bits of the values of each chunk, sorted
+    private final char[][] arrays;      // Sorted low 16 bits of each chunk, or null if the chunk is a bitmap
+    private final long[][] bitmaps;     // Bits of the low 16 bits of each chunk, or null if the chunk is an array
+    private final int[] sizes;
+    private final int size;
+
+    private CompressedBitmap(char[] keys, char[][] arrays, long[][] bitmaps, int[] sizes) {
+        this.keys = keys;
+        this.arrays = arrays;
+        this.bitmaps = bitmaps;
+        this.sizes = sizes;
+        int size = 0;
+        for (int chunkSize : sizes) {
+            size += chunkSize;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Creates the set of the values. The values can be in any order and repeated.
+     *
+     * @throws IllegalArgumentException If a value is negative
+     */
+    public static CompressedBitmap of(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        if (sorted.length == 0) {
+            return EMPTY;
+        }
+        if (sorted[0] < 0) {
+            throw new IllegalArgumentException("The value " + sorted[0] + " is negative.");
+        }
+
+        int chunks = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] >>> 16 != sorted[i - 1] >>> 16) {
+                chunks++;
+            }
+        }
+        char[] keys = new char[chunks];
+        char[][] arrays = new char[chunks][];
+        long[][] bitmaps = new long[chunks][];
+        int[] sizes = new int[chunks];
+
+        int chunk = 0;
+        for (int start = 0; start < sorted.length; chunk++) {
+            int end = start;
+            while (end < sorted.length && sorted[end] >>> 16 == sorted[start] >>> 16) {
+                end++;
+            }
+            int unique = 0;
+            char[] low = new char[end - start];
+            for (int i = start; i < end; i++) {
+                if (unique == 0 || (char) sorted[i] != low[unique - 1]) {
+                    low[unique++] = (char) sorted[i];
+                }
+            }
+            keys[chunk] = (char) (sorted[start] >>> 16);
+            sizes[chunk] = unique;
+            if (unique <= ARRAY_MAX_SIZE) {
+                arrays[chunk] = Arrays.copyOf(low, unique);
+            } else {
+                long[] bitmap = new long[BITMAP_WORDS];
+                for (int i = 0; i < unique; i++) {
+                    bitmap[low[i] >>> 6] |= 1L << low[i];
+                }
+                bitmaps[chunk] = bitmap;
+            }
+            start = end;
+        }
+        return new CompressedBitmap(keys, arrays, bitmaps, sizes);
+    }
+
+    /**
+     * Number of values in the set.
+     */
+    public int cardinality() {
+        return size;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int chunk = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (arrays[chunk] != null) {
+            return Arrays.binarySearch(arrays[chunk], low) >= 0;
+        }
+        return (bitmaps[chunk][low >>> 6] & 1L << low) != 0;
+    }
+
+    /**
+     * Counts the values in both sets.
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += andCardinality(i, other, j);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private int andCardinality(int chunk, CompressedBitmap other, int otherChunk) {
+        char[] array = arrays[chunk];
+        char[] otherArray = other.arrays[otherChunk];
+        if (array == null && otherArray == null) {
+            long[] bitmap = bitmaps[chunk];
+            long[] otherBitmap = other.bitmaps[otherChunk];
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                count += Long.bitCount(bitmap[w] & otherBitmap[w]);
+            }
+            return count;
+        }
+        if (array == null) {
+            return countIn(otherArray, bitmaps[chunk]);
+        }
+        if (otherArray == null) {
+            return countIn(array, other.bitmaps[otherChunk]);
+        }
+        return countCommon(array, otherArray);
+    }
+
+    private static int countIn(char[] array, long[] bitmap) {
+        int count = 0;
+        for (char value : array) {
+            if ((bitmap[value >>> 6] & 1L << value) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the values of two sorted arrays that are in both. When one array is much smaller, its values are searched
+     * in the other one instead of merging both.
+     */
+    private static int countCommon(char[] a, char[] b) {
+        if (a.length > b.length) {
+            return countCommon(b, a);
+        }
+        int count = 0;
+        if (a.length * 32 < b.length) {
+            int from = 0;
+            for (char value : a) {
+                int found = Arrays.binarySearch(b, from, b.length, value);
+                if (found >= 0) {
+                    count++;
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            return count;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+}
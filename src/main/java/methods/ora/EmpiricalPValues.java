@@ -0,0 +1,134 @@
+package methods.ora;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Empirical p-values of the over representation analysis, from random samples of the population.
+ * <p>
+ * Each permutation draws a sample of the same size as the input from the population, without replacement, and
+ * counts the entities of the sample in each pathway by intersecting the bitmap of the sample with the
+ * {@link PathwayMembership} of the pathway. The p-value of a pathway is the proportion of samples with at least as
+ * many entities in the pathway as the input, counting the input itself as one of the samples, so it is never 0.</p>
+ * <p>
+ * The permutations are split in blocks, each one with its own generator split from a generator of the seed, and the
+ * blocks run on several threads. The generators do not depend on the threads, so the p-values of a seed are the same
+ * for any number of threads.</p>
+ */
+public class EmpiricalPValues {
+
+    public static final long DEFAULT_SEED = 1;
+    private static final int BLOCK_SIZE = 64;   // Permutations of each generator
+
+    private final int permutations;
+    private final long seed;
+    private final int threads;
+
+    /**
+     * @param permutations Number of random samples of the population
+     * @param seed         Seed of the generators of the samples
+     * @param threads      Number of threads that draw and count the samples
+     */
+    public EmpiricalPValues(int permutations, long seed, int threads) {
+        if (permutations < 1) {
+            throw new IllegalArgumentException("The number of permutations must be positive: " + permutations);
+        }
+        this.permutations = permutations;
+        this.seed = seed;
+        this.threads = Math.max(threads, 1);
+    }
+
+    public int getPermutations() {
+        return permutations;
+    }
+
+    /**
+     * Computes the p-values of the pathways.
+     *
+     * @param members        Entities of each pathway, as indexes in the closure of the search
+     * @param found          Entities of the input found in each pathway
+     * @param sampleSize     Number of entities of the input
+     * @param populationSize Total number of entities. The indexes of the closure are the first entities of the
+     *                       population, the others are not in any pathway.
+     * @return The p-value of each pathway
+     */
+    public double[] pValues(CompressedBitmap[] members, int[] found, int sampleSize, int populationSize) {
+        int size = Math.min(sampleSize, populationSize);
+        int blocks = (permutations + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        SplittableRandom random = new SplittableRandom(seed);
+        List<SplittableRandom> generators = new ArrayList<>();
+        for (int b = 0; b < blocks; b++) {
+            generators.add(random.split());
+        }
+
+        long[] exceeding = new long[members.length];
+        if (threads == 1 || blocks == 1) {
+            for (int b = 0; b < blocks; b++) {
+                add(exceeding, count(members, found, size, populationSize, generators.get(b), getBlockSize(b)));
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+                for (int b = 0; b < blocks; b++) {
+                    SplittableRandom generator = generators.get(b);
+                    int blockSize = getBlockSize(b);
+                    tasks.add(pool.submit(() -> count(members, found, size, populationSize, generator, blockSize)));
+                }
+                for (ForkJoinTask<int[]> task : tasks) {
+                    add(exceeding, task.join());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        double[] pValues = new double[members.length];
+        for (int index = 0; index < members.length; index++) {
+            pValues[index] = (exceeding[index] + 1.0) / (permutations + 1.0);
+        }
+        return pValues;
+    }
+
+    private int getBlockSize(int block) {
+        return Math.min(BLOCK_SIZE, permutations - block * BLOCK_SIZE);
+    }
+
+    private static void add(long[] total, int[] counts) {
+        for (int index = 0; index < total.length; index++) {
+            total[index] += counts[index];
+        }
+    }
+
+    /**
+     * Counts the samples of a block with at least as many entities in each pathway as the input.
+     */
+    private static int[] count(CompressedBitmap[] members, int[] found, int size, int populationSize,
+                               SplittableRandom random, int samples) {
+        int[] exceeding = new int[members.length];
+        int[] population = new int[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            population[i] = i;
+        }
+        for (int s = 0; s < samples; s++) {
+            // Partial Fisher-Yates shuffle: the first entities of the population are the sample
+            for (int i = 0; i < size; i++) {
+                int j = i + random.nextInt(populationSize - i);
+                int entity = population[j];
+                population[j] = population[i];
+                population[i] = entity;
+            }
+            CompressedBitmap sample = CompressedBitmap.of(Arrays.copyOf(population, size));
+            for (int index = 0; index < members.length; index++) {
+                if (found[index] == 0 || members[index].andCardinality(sample) >= found[index]) {
+                    exceeding[index]++;
+                }
+            }
+        }
+        return exceeding;
+    }
+}
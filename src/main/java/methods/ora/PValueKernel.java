@@ -0,0 +1,186 @@
+package methods.ora;
+
+/**
+ * Upper tail probabilities of the binomial and hypergeometric distributions, for the p-values of the over
+ * representation analysis.
+ * <p>
+ * The probabilities are sums of the terms of the distributions. The first term is evaluated with the saddle point
+ * expansion of Loader, from a precomputed table of the logarithms of the factorials, kept as their difference with the
+ * Stirling approximation so that large factorials do not lose precision. Each next term comes from the previous one,
+ * so a p-value takes no special functions and a few logarithms. The sum starts where the terms are largest and stops
+ * when the terms no longer change it. When the tail holds most of the probability, the other tail is summed and
+ * subtracted from one instead.</p>
+ * <p>
+ * The table is shared by all the kernels and grows to the largest population used, so the kernels of a mapping are
+ * cheap to create for each analysis.</p>
+ */
+public class PValueKernel {
+
+    private static final double EPSILON = 1e-17;    // Relative size of the terms that no longer change a sum
+    private static final double HALF_LOG_2_PI = 0.5 * Math.log(2 * Math.PI);
+    private static final int EXACT_FACTORIALS = 15;  // Factorials that are exact in a double
+    private static double[] sharedStirlingErrors = {0.0};
+
+    private final double[] stirlingErrors;  // log(n!) - ((n + 0.5) log(n) - n + 0.5 log(2 pi)) of each n
+
+    /**
+     * @param populationSize Largest number of trials or population of the probabilities
+     */
+    public PValueKernel(int populationSize) {
+        this.stirlingErrors = getStirlingErrors(populationSize);
+    }
+
+    private static synchronized double[] getStirlingErrors(int n) {
+        if (n >= sharedStirlingErrors.length) {
+            double[] table = new double[n + 1];
+            System.arraycopy(sharedStirlingErrors, 0, table, 0, sharedStirlingErrors.length);
+            double factorial = 1;
+            for (int i = 1; i <= n; i++) {
+                factorial *= i;
+                if (i < sharedStirlingErrors.length) {
+                    continue;
+                }
+                if (i <= EXACT_FACTORIALS) {
+                    table[i] = Math.log(factorial) - ((i + 0.5) * Math.log(i) - i + HALF_LOG_2_PI);
+                } else {
+                    double inverse = 1.0 / i;
+                    double inverse2 = inverse * inverse;
+                    table[i] = (1.0 / 12 - (1.0 / 360 - (1.0 / 1260 - (1.0 / 1680 - inverse2 / 1188) * inverse2) * inverse2) * inverse2) * inverse;
+                }
+            }
+            sharedStirlingErrors = table;
+        }
+        return sharedStirlingErrors;
+    }
+
+    private double stirlingError(int n) {
+        return n < stirlingErrors.length ? stirlingErrors[n] : getStirlingErrors(n)[n];
+    }
+
+    /**
+     * Deviance term x log(x / mean) + mean - x, with a series when x is close to the mean.
+     */
+    private static double deviance(double x, double mean) {
+        if (Math.abs(x - mean) < 0.1 * (x + mean)) {
+            double v = (x - mean) / (x + mean);
+            double sum = (x - mean) * v;
+            double term = 2 * x * v;
+            v = v * v;
+            for (int j = 1; ; j++) {
+                term *= v;
+                double next = sum + term / (2 * j + 1);
+                if (next == sum) {
+                    return next;
+                }
+                sum = next;
+            }
+        }
+        return x * Math.log(x / mean) + mean - x;
+    }
+
+    /**
+     * Probability of x successes in n trials with probability p of success each.
+     */
+    double binomialProbability(int x, int n, double p) {
+        double q = 1.0 - p;
+        if (n == 0) {
+            return x == 0 ? 1.0 : 0.0;
+        }
+        if (p == 0.0) {
+            return x == 0 ? 1.0 : 0.0;
+        }
+        if (q == 0.0) {
+            return x == n ? 1.0 : 0.0;
+        }
+        if (x == 0) {
+            return Math.exp(p < 0.1 ? -deviance(n, n * q) - n * p : n * Math.log(q));
+        }
+        if (x == n) {
+            return Math.exp(q < 0.1 ? -deviance(n, n * p) - n * q : n * Math.log(p));
+        }
+        double log = stirlingError(n) - stirlingError(x) - stirlingError(n - x) - deviance(x, n * p) - deviance(n - x, n * q);
+        return Math.exp(log) * Math.sqrt(n / (2 * Math.PI * x * (n - x)));
+    }
+
+    /**
+     * Probability of k successes in a sample of n elements drawn without replacement from a population of size N with
+     * K successes, as the product of binomial probabilities with the proportion of the sample in the population.
+     */
+    double hypergeometricProbability(int populationSize, int successes, int sampleSize, int k) {
+        double p = (double) sampleSize / populationSize;
+        return binomialProbability(k, successes, p) * binomialProbability(sampleSize - k, populationSize - successes, p)
+                / binomialProbability(sampleSize, populationSize, p);
+    }
+
+    /**
+     * Probability of k or more successes in n trials with probability p of success each.
+     */
+    public double binomialUpperTail(int n, double p, int k) {
+        if (k <= 0 || p >= 1.0) {
+            return k <= n ? 1.0 : 0.0;
+        }
+        if (k > n || p <= 0.0) {
+            return 0.0;
+        }
+        double ratio = p / (1.0 - p);   // Ratio of the terms of i + 1 and i successes is ratio * (n - i) / (i + 1)
+
+        int mode = (int) Math.min(n, Math.floor((n + 1) * p));
+        if (k > mode) {
+            // Terms decrease from k on
+            double term = binomialProbability(k, n, p);
+            double sum = 0.0;
+            for (int i = k; i <= n && term > sum * EPSILON; i++) {
+                sum += term;
+                term *= ratio * (n - i) / (i + 1);
+            }
+            return Math.min(sum, 1.0);
+        }
+        // Terms decrease from k - 1 down to 0
+        double term = binomialProbability(k - 1, n, p);
+        double sum = 0.0;
+        for (int i = k - 1; i >= 0 && term > sum * EPSILON; i--) {
+            sum += term;
+            term *= i / (ratio * (n - i + 1));
+        }
+        return Math.max(1.0 - sum, 0.0);
+    }
+
+    /**
+     * Probability of k or more successes in a sample of n elements drawn without replacement from a population of
+     * size N with K successes.
+     *
+     * @param populationSize N
+     * @param successes      K, at most N
+     * @param sampleSize     n, at most N
+     */
+    public double hypergeometricUpperTail(int populationSize, int successes, int sampleSize, int k) {
+        int min = Math.max(0, sampleSize + successes - populationSize);
+        int max = Math.min(sampleSize, successes);
+        if (k <= min) {
+            return 1.0;
+        }
+        if (k > max) {
+            return 0.0;
+        }
+        int failures = populationSize - successes;
+
+        int mode = (int) Math.floor((sampleSize + 1.0) * (successes + 1.0) / (populationSize + 2.0));
+        if (k > mode) {
+            double term = hypergeometricProbability(populationSize, successes, sampleSize, k);
+            double sum = 0.0;
+            for (int i = k; i <= max && term > sum * EPSILON; i++) {
+                sum += term;
+                term *= (double) (successes - i) * (sampleSize - i) / ((i + 1.0) * (failures - sampleSize + i + 1.0));
+            }
+            return Math.min(sum, 1.0);
+        }
+        int i = k - 1;
+        double term = hypergeometricProbability(populationSize, successes, sampleSize, i);
+        double sum = 0.0;
+        for (; i >= min && term > sum * EPSILON; i--) {
+            sum += term;
+            term *= i * (failures - sampleSize + (double) i) / ((successes - i + 1.0) * (sampleSize - i + 1.0));
+        }
+        return Math.max(1.0 - sum, 0.0);
+    }
+}
@@ -0,0 +1,83 @@
+package methods.ora;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import model.PathwayClosure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entities of each pathway of a {@link PathwayClosure}, as compressed bitmaps of the indexes of the entities in the
+ * closure. The entities of a search found in a pathway are counted by intersecting the bitmap of the pathway with
+ * the bitmap of the entities of the search, so the count does not depend on the records of the search.
+ * <p>
+ * The membership of a closure is built once, the first time it is used, and kept while the closure is used.</p>
+ */
+public class PathwayMembership {
+
+    private static final LoadingCache<PathwayClosure, PathwayMembership> MEMBERSHIPS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(PathwayMembership::new));
+
+    private final Map<String, CompressedBitmap> members = new HashMap<>();
+
+    private PathwayMembership(PathwayClosure closure) {
+        Map<String, Entities> entities = new HashMap<>();
+        for (int index = 0; index < closure.size(); index++) {
+            for (int row = closure.getStart(index); row < closure.getEnd(index); row++) {
+                entities.computeIfAbsent(closure.getPathwayStId(row), pathway -> new Entities()).add(index);
+            }
+        }
+        for (Map.Entry<String, Entities> pathway : entities.entrySet()) {
+            members.put(pathway.getKey(), CompressedBitmap.of(Arrays.copyOf(pathway.getValue().values, pathway.getValue().size)));
+        }
+    }
+
+    /**
+     * Indexes of the entities of a pathway, added in increasing order.
+     */
+    private static class Entities {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int index) {
+            if (size > 0 && values[size - 1] == index) {
+                return;     // The entity is in other reactions or top level pathways of the pathway
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = index;
+        }
+    }
+
+    /**
+     * Gets the membership of the pathways of a closure.
+     */
+    public static PathwayMembership of(PathwayClosure closure) {
+        return MEMBERSHIPS.getUnchecked(closure);
+    }
+
+    /**
+     * Gets the entities of a pathway.
+     *
+     * @return The indexes in the closure of the entities in the pathway, empty if the pathway has none
+     */
+    public CompressedBitmap getMembers(String pathwayStId) {
+        CompressedBitmap pathwayMembers = members.get(pathwayStId);
+        return pathwayMembers == null ? CompressedBitmap.of() : pathwayMembers;
+    }
+
+    /**
+     * Counts the entities of a set that are in a pathway.
+     *
+     * @param entities Indexes in the closure of the entities
+     */
+    public int countFound(String pathwayStId, CompressedBitmap entities) {
+        CompressedBitmap pathwayMembers = members.get(pathwayStId);
+        return pathwayMembers == null ? 0 : pathwayMembers.andCardinality(entities);
+    }
+}
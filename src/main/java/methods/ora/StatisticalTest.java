@@ -0,0 +1,19 @@
+package methods.ora;
+
+/**
+ * Test of the over representation of the entities found in a pathway.
+ */
+public enum StatisticalTest {
+
+    /**
+     * The entities found are trials with the proportion of the entities of the pathway in the population as
+     * probability of success.
+     */
+    BINOMIAL,
+
+    /**
+     * The entities found are a sample drawn without replacement from the population, with the entities of the
+     * pathway as successes.
+     */
+    HYPERGEOMETRIC
+}
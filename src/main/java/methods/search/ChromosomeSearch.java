@@ -0,0 +1,100 @@
+package methods.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import model.Mapping;
+import model.VariantTable;
+
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds the proteins of genetic variants on a pool of workers, partitioned by chromosome. The workers load the tables
+ * of the chromosomes and look up the variants, so the tables of several chromosomes are loaded and searched at the
+ * same time, up to the number of threads.
+ * <p>
+ * The variants are submitted in parts of one chromosome. The tables of the chromosomes used most recently are kept,
+ * one per thread, for the next parts. The found variants of all the parts are merged by their keys, so the result does
+ * not depend on the order the parts finish in.</p>
+ */
+class ChromosomeSearch implements AutoCloseable {
+
+    private final Mapping mapping;
+    private final String mapping_path;
+    private final ExecutorService workers;
+    private final Semaphore pending;    // Limits the parts waiting to be searched, so they do not take all the memory
+    private final Map<Integer, CompletableFuture<VariantTable>> tables;
+    private final List<CompletableFuture<SortedMap<Long, List<String>>>> parts = new ArrayList<>();
+
+    ChromosomeSearch(Mapping mapping, String mapping_path, int threads) {
+        this.mapping = mapping;
+        this.mapping_path = mapping_path;
+        this.workers = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("chromosome-search-%d").setDaemon(true).build());
+        this.pending = new Semaphore(threads * 4);
+        this.tables = new LinkedHashMap<Integer, CompletableFuture<VariantTable>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<VariantTable>> eldest) {
+                // The parts already submitted keep their table until they are searched
+                return size() > threads;
+            }
+        };
+    }
+
+    /**
+     * Searches the variants of a chromosome on the workers. The table of the chromosome is loaded by the first part
+     * that needs it.
+     *
+     * @param variants Keys of {@link VariantTable#chrBpKey(int, long)} of the chromosome. The array is not copied.
+     * @param count    Number of variants in the array
+     */
+    void submit(int chr, long[] variants, int count) {
+        pending.acquireUninterruptibly();
+        CompletableFuture<VariantTable> table = tables.computeIfAbsent(chr, c -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return mapping.loadChrBpToProteins(c, mapping_path);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, workers));
+        parts.add(table.thenApplyAsync(t -> find(t, variants, count), workers)
+                .whenComplete((found, e) -> pending.release()));
+    }
+
+    private static SortedMap<Long, List<String>> find(VariantTable table, long[] variants, int count) {
+        SortedMap<Long, List<String>> found = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            List<String> proteins = table.get(variants[i]);
+            if (!proteins.isEmpty()) {
+                found.put(variants[i], new ArrayList<>(proteins));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Waits for all the parts and merges the variants found.
+     *
+     * @return Proteins of each variant found, by the keys of the variants
+     */
+    SortedMap<Long, List<String>> getFound() throws FileNotFoundException {
+        SortedMap<Long, List<String>> found = new TreeMap<>();
+        for (CompletableFuture<SortedMap<Long, List<String>>> part : parts) {
+            try {
+                found.putAll(part.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException && e.getCause().getCause() instanceof FileNotFoundException) {
+                    throw (FileNotFoundException) e.getCause().getCause();
+                }
+                throw e;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,36 @@
+package methods.search;
+
+import model.Mapping;
+import model.VariantTable;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Keeps the table of the last chromosome used by one search, for the searches that look up the chromosomes one after
+ * another. The table is kept by the search and not by the mapping, so the searches of the same mapping running at the
+ * same time, like the files of a batch, do not unload each other's chromosome.
+ */
+class ChromosomeTable {
+
+    private final Mapping mapping;
+    private final String mapping_path;
+    private int chromosome = 0;
+    private VariantTable table;
+
+    ChromosomeTable(Mapping mapping, String mapping_path) {
+        this.mapping = mapping;
+        this.mapping_path = mapping_path;
+    }
+
+    /**
+     * Gets the table of a chromosome, loading it when it is not the chromosome of the last call.
+     */
+    VariantTable get(int chr) throws FileNotFoundException {
+        if (chromosome != chr) {
+            table = null;
+            table = mapping.loadChrBpToProteins(chr, mapping_path);
+            chromosome = chr;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,208 @@
+package methods.search;
+
+import model.InputType;
+import model.Pathway;
+import model.Proteoform;
+import model.ProteoformFormat;
+
+import java.util.*;
+
+/**
+ * Reactions and entities found in each hit pathway by one search.
+ * <p>
+ * The pathways, reactions and entities get an index in the order they are first found. The reactions and entities
+ * found in a pathway are bitsets over those indexes, so the pathways of the mapping are never modified and no sets of
+ * strings are created for each pathway while searching. The pathways and reactions are found by their identifiers in
+ * the tables of the mapping, so registering a hit does not hash any string.</p>
+ */
+public class PathwayHits {
+
+    private final List<Pathway> pathways = new ArrayList<>();
+    private final Map<String, Integer> pathwayIndexes = new HashMap<>();
+    private final List<String> reactions = new ArrayList<>();
+    private final Map<String, Integer> reactionIndexes = new HashMap<>();
+    private final List<Proteoform> entities = new ArrayList<>();
+    private final Map<Proteoform, Integer> entityIndexes = new HashMap<>();
+    private final List<BitSet> reactionsFound = new ArrayList<>();
+    private final List<BitSet> entitiesFound = new ArrayList<>();
+    private int[] pathwayIndexesById = new int[0];     // Index of each pathway by its identifier in the mapping, plus one
+    private int[] reactionIndexesById = new int[0];    // Index of each reaction by its identifier in the mapping, plus one
+    private int[] pathwayIds = new int[16];     // Identifier in the mapping of each pathway index
+    private int[] reactionIds = new int[16];    // Identifier in the mapping of each reaction index
+
+    /**
+     * Gets the index of an entity, to register the hits of the entity.
+     */
+    int addEntity(Proteoform entity) {
+        return getIndex(entity, entities, entityIndexes);
+    }
+
+    /**
+     * Registers that the entity was found in the reaction of the pathway.
+     *
+     * @param pathwayId  Identifier of the pathway in the values of the reactionsToPathways table
+     * @param reactionId Identifier of the reaction in the keys of the reactionsToPathways table
+     * @param entity     Index of the entity from {@link #addEntity(Proteoform)}
+     * @return The index of the pathway
+     */
+    int add(Pathway pathway, int pathwayId, String reaction, int reactionId, int entity) {
+        int index = getPathwayIndex(pathway, pathwayId);
+        reactionsFound.get(index).set(getReactionIndex(reaction, reactionId));
+        entitiesFound.get(index).set(entity);
+        return index;
+    }
+
+    /**
+     * Adds the reactions and entities found in the pathways of another search, which used the same entity indexes.
+     * The pathways new to this search get their indexes in the order of the other search.
+     */
+    void merge(PathwayHits other) {
+        for (int p = 0; p < other.pathways.size(); p++) {
+            int index = getPathwayIndex(other.pathways.get(p), other.pathwayIds[p]);
+            BitSet reactions = other.reactionsFound.get(p);
+            for (int r = reactions.nextSetBit(0); r >= 0; r = reactions.nextSetBit(r + 1)) {
+                reactionsFound.get(index).set(getReactionIndex(other.reactions.get(r), other.reactionIds[r]));
+            }
+            entitiesFound.get(index).or(other.entitiesFound.get(p));
+        }
+    }
+
+    private int getPathwayIndex(Pathway pathway, int pathwayId) {
+        if (pathwayId >= pathwayIndexesById.length) {
+            pathwayIndexesById = Arrays.copyOf(pathwayIndexesById, Math.max(pathwayId + 1, pathwayIndexesById.length * 2));
+        }
+        int index = pathwayIndexesById[pathwayId] - 1;
+        if (index < 0) {
+            index = pathways.size();
+            pathways.add(pathway);
+            pathwayIndexes.put(pathway.getStId(), index);
+            reactionsFound.add(new BitSet());
+            entitiesFound.add(new BitSet());
+            pathwayIndexesById[pathwayId] = index + 1;
+            if (index == pathwayIds.length) {
+                pathwayIds = Arrays.copyOf(pathwayIds, index * 2);
+            }
+            pathwayIds[index] = pathwayId;
+        }
+        return index;
+    }
+
+    private int getReactionIndex(String reaction, int reactionId) {
+        if (reactionId >= reactionIndexesById.length) {
+            reactionIndexesById = Arrays.copyOf(reactionIndexesById, Math.max(reactionId + 1, reactionIndexesById.length * 2));
+        }
+        if (reactionIndexesById[reactionId] == 0) {
+            int index = getIndex(reaction, reactions, reactionIndexes);
+            if (index == reactionIds.length) {
+                reactionIds = Arrays.copyOf(reactionIds, index * 2);
+            }
+            reactionIds[index] = reactionId;
+            reactionIndexesById[reactionId] = index + 1;
+        }
+        return reactionIndexesById[reactionId] - 1;
+    }
+
+    private static <T> int getIndex(T value, List<T> values, Map<T, Integer> indexes) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = values.size();
+            values.add(value);
+            indexes.put(value, index);
+        }
+        return index;
+    }
+
+    public int size() {
+        return pathways.size();
+    }
+
+    /**
+     * @return The index of the pathway, or -1 if the pathway was not hit
+     */
+    public int indexOf(String stId) {
+        Integer index = pathwayIndexes.get(stId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return The pathway of the mapping with the index. It contains only the inherent attributes of the pathway.
+     */
+    public Pathway getPathway(int index) {
+        return pathways.get(index);
+    }
+
+    public int getNumReactionsFound(int index) {
+        return reactionsFound.get(index).cardinality();
+    }
+
+    public SortedSet<String> getReactionsFound(int index) {
+        SortedSet<String> result = new TreeSet<>();
+        BitSet found = reactionsFound.get(index);
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            result.add(reactions.get(i));
+        }
+        return result;
+    }
+
+    public SortedSet<Proteoform> getEntitiesFound(int index) {
+        SortedSet<Proteoform> result = new TreeSet<>();
+        BitSet found = entitiesFound.get(index);
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            result.add(entities.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return The indexes of the pathways, sorted as the pathways (by display name, then stId)
+     */
+    public int[] getSortedIndexes() {
+        Integer[] indexes = new Integer[pathways.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, (x, y) -> pathways.get(x).compareTo(pathways.get(y)));
+        int[] result = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            result[i] = indexes[i];
+        }
+        return result;
+    }
+
+    /**
+     * Creates a copy of the pathway with the reactions and entities found in it.
+     */
+    public Pathway toPathway(int index) {
+        Pathway pathway = new Pathway(pathways.get(index));
+        pathway.setReactionsFound(getReactionsFound(index));
+        pathway.setEntitiesFound(getEntitiesFound(index));
+        return pathway;
+    }
+
+    public String getReactionsFoundString(int index) {
+        return String.join(",", getReactionsFound(index));
+    }
+
+    public String getEntitiesFoundString(int index, InputType inputType) {
+        StringBuilder str = new StringBuilder();
+        boolean first = true;
+
+        for (Proteoform proteoform : getEntitiesFound(index)) {
+            if (!first) {
+                str.append(",");
+            }
+
+            switch (inputType) {
+                case PROTEOFORM:
+                    str.append("\"" + ProteoformFormat.SIMPLE.getString(proteoform) + "\"");
+                    str.append(proteoform.getUniProtAccWithIsoform());
+                    break;
+                default:
+                    str.append(proteoform.getUniProtAccWithIsoform());
+            }
+
+            first = false;
+        }
+        return str.toString();
+    }
+}
@@ -8,8 +8,8 @@ import com.compomics.util.gui.waiting.waitinghandlers.WaitingHandlerCLIImpl;
 import com.compomics.util.preferences.PeptideVariantsPreferences;
 import com.compomics.util.preferences.SequenceMatchingPreferences;
 import com.compomics.util.waiting.WaitingHandler;
-import com.google.common.base.CharMatcher;
 import model.Proteoform;
+import model.ProteoformScanner;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -32,68 +32,15 @@ public class PeptideMatcher {
 	 */
 	public static Set<Proteoform> getProteoforms(String line) throws ParseException {
 		HashSet<Proteoform> proteoformSet = new HashSet<>();
-		StringBuilder peptide = new StringBuilder();
-		StringBuilder coordinate = null;
-		StringBuilder mod = null;
-		List<Pair<String, Long>> ptms = new ArrayList<>();
-
-		// Get the peptide
-		// Read until end of line or semicolon
-		int pos = 0;
-		char c = line.charAt(pos);
-		while (c != ';') {
-			peptide.append(c);
-			pos++;
-			if (pos == line.length())
-				break;
-			c = line.charAt(pos);
-		}
-		pos++;
-		if (peptide.length() == 0) {
-			model.Warning.sendWarning(model.Warning.INVALID_ROW, 0);
-			throw new ParseException(model.Warning.INVALID_ROW.getMessage(),
-					model.Warning.INVALID_ROW.getCode());
-		}
 
-		// Get ptms one by one
-		// While there are characters
-
-		while (pos < line.length()) {
-			c = line.charAt(pos);
-			while (!Character.isDigit(c)) {
-				if (pos + 1 < line.length()) {
-					c = line.charAt(++pos);
-				} else {
-					break;
-				}
-			}
-			coordinate = new StringBuilder();
-			mod = new StringBuilder();
-			// Read a ptm
-			while (c != ':') {
-				mod.append(c);
-				pos++;
-				c = line.charAt(pos);
-			}
-			pos++;
-			c = line.charAt(pos);
-			while (Character.isDigit(c) || CharMatcher.anyOf("nulNUL").matches(c)) {
-				coordinate.append(c);
-				pos++;
-				if (pos == line.length())
-					break;
-				c = line.charAt(pos);
-			}
-			ptms.add(new MutablePair<>(mod.toString(), Proteoform.interpretCoordinateFromStringToLong(coordinate.toString())));
-			if (c != ',') {
-				break;
-			}
-			pos++;
-		}
+		// The peptide is read as the accession of the proteoform
+		Proteoform modifiedPeptide = ProteoformScanner.readModifiedPeptide(line);
+		String peptide = modifiedPeptide.getUniProtAccWithIsoform();
+		List<Pair<String, Long>> ptms = modifiedPeptide.getPtms();
 
 		// Get the uniprot accessions
-		for (String protein : getPeptideMapping(peptide.toString())) {
-			Proteoform proteoform = new Proteoform(protein, ptms);
+		for (String protein : getPeptideMapping(peptide)) {
+			Proteoform proteoform = new Proteoform(protein, new ArrayList<>(ptms));
 			proteoformSet.add(proteoform);
 		}
 
@@ -0,0 +1,177 @@
+package methods.search;
+
+import model.Mapping;
+import model.PathwayClosure;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Hits of the entities of a search, collected while the input is read and then expanded to the reactions and pathways
+ * of the entities in their {@link PathwayClosure}, with one record for each pathway or top level pathway.
+ * <p>
+ * The hits are expanded twice: once by the search, to find the pathways of the result, and again when the records are
+ * written, so the records are never kept in memory. The expansion only reads the mapping, so the first one can run on
+ * several threads: the hits are split in consecutive parts, each part is expanded into its own result, and the parts
+ * are merged in order. The order the pathways are found in is the same for any number of threads.</p>
+ */
+class ReactionHits {
+
+    // Least number of hits of a part, so that small inputs are expanded on the calling thread. The tests lower it to
+    // split small inputs in parts.
+    static int minPartSize = 1 << 12;
+
+    private final PathwayClosure closure;
+    private int[] columns = new int[16];
+    private int[] entities = new int[16];
+    private int[] keys = new int[16];
+    private int size;
+
+    /**
+     * @param closure Closure of the entities of the search, with the identifiers of the mapping
+     */
+    ReactionHits(PathwayClosure closure) {
+        this.closure = closure;
+    }
+
+    /**
+     * Adds the hit of an entity in the reactions of its closure.
+     *
+     * @param columns Index of the first columns of the records, before the reaction
+     * @param entity  Index of the entity in the pathway hits of the result
+     * @param key     Index of the entity in the closure, -1 if it is not in any pathway
+     */
+    void add(int columns, int entity, int key) {
+        if (key < 0) {
+            return;
+        }
+        if (size == this.columns.length) {
+            this.columns = Arrays.copyOf(this.columns, size * 2);
+            entities = Arrays.copyOf(entities, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        this.columns[size] = columns;
+        entities[size] = entity;
+        keys[size] = key;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the pathways of the hits to the result, and the hits themselves for the records and the entities in the
+     * closure.
+     *
+     * @param threads Number of threads that expand the hits
+     */
+    void addTo(SearchResult result, int threads) {
+        int[] entityKeys = Arrays.copyOf(keys, size);
+        Arrays.sort(entityKeys);
+        int unique = 0;
+        for (int key : entityKeys) {
+            if (unique == 0 || key != entityKeys[unique - 1]) {
+                entityKeys[unique++] = key;
+            }
+        }
+        result.setHits(this, Arrays.copyOf(entityKeys, unique));
+
+        int parts = Math.min(threads * 4, size / minPartSize);
+        if (threads <= 1 || parts <= 1) {
+            expand(result, 0, size);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<SearchResult>> tasks = new ArrayList<>();
+            for (int p = 0; p < parts; p++) {
+                int from = (int) ((long) size * p / parts);
+                int to = (int) ((long) size * (p + 1) / parts);
+                tasks.add(pool.submit(() -> {
+                    SearchResult part = result.createPart();
+                    expand(part, from, to);
+                    return part;
+                }));
+            }
+            for (ForkJoinTask<SearchResult> task : tasks) {
+                result.merge(task.join());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    PathwayClosure getClosure() {
+        return closure;
+    }
+
+    private void expand(SearchResult result, int from, int to) {
+        for (int h = from; h < to; h++) {
+            int end = closure.getEnd(keys[h]);
+            for (int row = closure.getStart(keys[h]); row < end; row = getGroupEnd(row, end)) {
+                result.addHit(closure.getPathway(row), closure.getPathwayId(row), closure.getReactionStId(row),
+                        closure.getReactionId(row), entities[h]);
+            }
+        }
+    }
+
+    /**
+     * Gets the end of the rows of the reaction and pathway of a row. The rows of a reaction and pathway are
+     * consecutive, one for each top level pathway.
+     */
+    private int getGroupEnd(int row, int end) {
+        int reaction = closure.getReactionId(row);
+        int pathway = closure.getPathwayId(row);
+        int next = row + 1;
+        while (next < end && closure.getReactionId(next) == reaction && closure.getPathwayId(next) == pathway) {
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * Expands the hits to the records of the search, in the order of the hits, and passes them to the sink.
+     *
+     * @param recordColumns Columns before the reaction of each hit
+     */
+    void writeRecords(List<String[]> recordColumns, boolean topLevelPathways, Mapping mapping, RecordSink sink) throws IOException {
+        for (int h = 0; h < size; h++) {
+            String[] first = recordColumns.get(columns[h]);
+            String[] record = Arrays.copyOf(first, first.length + (topLevelPathways ? 6 : 4));
+            int end = closure.getEnd(keys[h]);
+            int row = closure.getStart(keys[h]);
+            while (row < end) {
+                int next = getGroupEnd(row, end);
+                String reaction = closure.getReactionStId(row);
+                String pathway = closure.getPathwayStId(row);
+                record[first.length] = reaction;
+                record[first.length + 1] = mapping.getReactions().get(reaction).getDisplayName();
+                record[first.length + 2] = pathway;
+                record[first.length + 3] = mapping.getPathways().get(pathway).getDisplayName();
+                String last = closure.getTopLevelPathwayStId(next - 1);
+                if (topLevelPathways && last != null) {
+                    // Each record of a pathway with several top level pathways shows the last of them, as the records
+                    // have always been written
+                    record[first.length + 4] = last;
+                    record[first.length + 5] = mapping.getPathways().get(last).getDisplayName();
+                    for (int j = row; j < next; j++) {
+                        sink.accept(record);
+                    }
+                } else {
+                    if (topLevelPathways) {
+                        record[first.length + 4] = pathway;
+                        record[first.length + 5] = record[first.length + 3];
+                    }
+                    sink.accept(record);
+                }
+                row = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package methods.search;
+
+import java.io.IOException;
+
+/**
+ * Receives the records of a search result one at a time, as they are expanded from the hits of the search.
+ */
+public interface RecordSink {
+
+    /**
+     * @param record Columns of the record, in the order of the headers of the result. The array is reused for the next
+     *               records, so it must be copied to be kept.
+     */
+    void accept(String[] record) throws IOException;
+}
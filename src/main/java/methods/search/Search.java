@@ -1,16 +1,17 @@
 package methods.search;
 
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MultimapBuilder;
 import methods.matching.ProteoformMatching;
 import model.*;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 import static methods.search.PeptideMatcher.*;
 import static model.Error.ERROR_INITIALIZING_PEPTIDE_MAPPER;
@@ -21,11 +22,14 @@ import static model.Warning.*;
 /**
  * Methods to get the reactions and pathways using a list of entities of the accepted input types.
  * <p>
- * <p>These methods must fill the number of reactions and entities found in each pathway in the structure passed as parameter.
- * They also must fill in the set for the hit proteins and hit pathways.</p>
+ * <p>These methods must fill the number of reactions and entities found in each pathway of the search result.
+ * They also must fill in the set for the hit proteins and hit pathways. The pathways of the mapping are never modified,
+ * so the same mapping can be used for many searches.</p>
  */
 public class Search {
 
+    private static final int VCF_PART_SIZE = 1 << 16;  // Variants of a chromosome searched together by a worker
+
 //    public static SearchResult search(List<String> input, InputType inputType, boolean showTopLevelPathways, Mapping mapping) {
 //        return Search.search(input, inputType, showTopLevelPathways, mapping, MatchType.SUPERSET, 0L, "");
 //    }
@@ -70,8 +74,21 @@ public class Search {
 
     // Fills the hitProteins set to call the next method
     public static SearchResult searchWithUniProt(List<String> input, Mapping mapping, Boolean topLevelPathways) {
+        return searchWithUniProt(input, mapping, topLevelPathways, 1);
+    }
+
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithUniProt(List<String> input, Mapping mapping, Boolean topLevelPathways, int threads) {
 
-        SearchResult result = new SearchResult(InputType.UNIPROT, topLevelPathways);
+        SearchResult result = new SearchResult(InputType.UNIPROT, topLevelPathways, mapping);
+        PathwayClosure closure = mapping.getProteinClosure();
+        ReactionHits hits = new ReactionHits(closure);
+        MappedSetMultimap<String, String> proteinsToReactions = mapping.getProteinsToReactions();
 
         int row = 0;
         for (String protein : input) {
@@ -88,44 +105,20 @@ public class Search {
             if (mapping.getProteinsToNames().containsKey(protein)) {
                 result.getMatchedProteins().add(protein);
 
-                for (String reaction : mapping.getProteinsToReactions().get(protein)) {
+                int proteinId = proteinsToReactions.getKeyId(protein);
+                int entity = result.getPathwayHits().addEntity(new Proteoform(protein));
+                int columns = result.addRecordColumns(protein);
+                if (proteinsToReactions.degree(proteinId) > 0) {
                     result.getHitProteins().add(protein);
 
-                    for (String pathwayStId : mapping.getReactionsToPathways().get(reaction)) {
-
-                        Pathway pathway = mapping.getPathways().get(pathwayStId);
-                        result.getHitPathways().add(mapping.getPathways().get(pathwayStId));
-                        pathway.getReactionsFound().add(reaction);
-                        pathway.getEntitiesFound().add(new Proteoform(protein));
-
-                        String[] values = new String[7];
-                        values[0] = protein;
-                        values[1] = reaction;
-                        values[2] = mapping.getReactions().get(reaction).getDisplayName();
-                        values[3] = pathwayStId;
-                        values[4] = pathway.getDisplayName();
-                        values[5] = pathwayStId;
-                        values[6] = pathway.getDisplayName();
-
-                        if (topLevelPathways) {
-                            if (mapping.getPathwaysToTopLevelPathways().get(pathwayStId).size() > 0) {
-                                for (String topLevelPathway : mapping.getPathwaysToTopLevelPathways().get(pathwayStId)) {
-                                    values[5] = topLevelPathway;
-                                    values[6] = mapping.getPathways().get(topLevelPathway).getDisplayName();
-                                    result.addRecord(values);
-                                }
-                            } else {
-                                result.addRecord(values);
-                            }
-                        } else {
-                            result.addRecord(Arrays.copyOfRange(values, 0, 5));
-                        }
-                    }
+                    hits.add(columns, entity, closure.indexOf(protein));
                 }
             }
 
         }
 
+        hits.addTo(result, threads);
+
         System.out.println("\nInput: " + result.getInputProteins().size() + " proteins");
         Double percentageProteins = (double) result.getMatchedProteins().size() * 100.0 / (double) result.getInputProteins().size();
         System.out.println("Matched: " + result.getMatchedProteins().size() + " proteins (" + new DecimalFormat("#0.00").format(percentageProteins) + "%)");
@@ -146,56 +139,47 @@ public class Search {
      * @return
      */
     public static SearchResult searchWithGene(List<String> input, Mapping mapping, Boolean topLevelPathways) {
+        return searchWithGene(input, mapping, topLevelPathways, 1);
+    }
+
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithGene(List<String> input, Mapping mapping, Boolean topLevelPathways, int threads) {
 
-        SearchResult result = new SearchResult(InputType.GENE, topLevelPathways);
+        SearchResult result = new SearchResult(InputType.GENE, topLevelPathways, mapping);
+        PathwayClosure closure = mapping.getProteinClosure();
+        ReactionHits hits = new ReactionHits(closure);
+        MappedSetMultimap<String, String> genesToProteins = mapping.getGenesToProteins();
+        MappedSetMultimap<String, String> proteinsToReactions = mapping.getProteinsToReactions();
 
         for (String gene : input) {
             result.getInputGenes().add(gene);
 
-            for (String protein : mapping.getGenesToProteins().get(gene)) {
+            int geneId = genesToProteins.getKeyId(gene);
+            for (int p = 0; p < genesToProteins.degree(geneId); p++) {
+                int proteinId = genesToProteins.getValueId(geneId, p);
+                String protein = genesToProteins.getValueIdentifiers().get(proteinId);
                 result.getMatchedProteins().add(protein);
                 result.getMatchedGenes().add(gene);
                 result.getInputProteins().add(protein);
 
-                for (String reaction : mapping.getProteinsToReactions().get(protein)) {
+                int entity = result.getPathwayHits().addEntity(new Proteoform(protein));
+                int columns = result.addRecordColumns(gene, protein);
+                if (proteinsToReactions.degree(proteinId) > 0) {
                     result.getHitGenes().add(gene); // The genes that actually matched to some protein
                     result.getHitProteins().add(protein);
 
-                    for (String pathwayStId : mapping.getReactionsToPathways().get(reaction)) {
-
-                        Pathway pathway = mapping.getPathways().get(pathwayStId);
-                        result.getHitPathways().add(mapping.getPathways().get(pathwayStId));
-                        pathway.getReactionsFound().add(reaction);
-                        pathway.getEntitiesFound().add(new Proteoform(protein));
-
-                        String[] values = new String[8];
-                        values[0] = gene;
-                        values[1] = protein;
-                        values[2] = reaction;
-                        values[3] = mapping.getReactions().get(reaction).getDisplayName();
-                        values[4] = pathwayStId;
-                        values[5] = pathway.getDisplayName();
-                        values[6] = pathwayStId;
-                        values[7] = pathway.getDisplayName();
-
-                        if (topLevelPathways) {
-                            if (mapping.getPathwaysToTopLevelPathways().get(pathwayStId).size() > 0) {
-                                for (String topLevelPathway : mapping.getPathwaysToTopLevelPathways().get(pathwayStId)) {
-                                    values[6] = topLevelPathway;
-                                    values[7] = mapping.getPathways().get(topLevelPathway).getDisplayName();
-                                    result.addRecord(values);
-                                }
-                            } else {
-                                result.addRecord(values);
-                            }
-                        } else {
-                            result.addRecord(Arrays.copyOfRange(values, 0, 6));
-                        }
-                    }
+                    hits.add(columns, entity, closure.indexOf(protein));
                 }
             }
         }
 
+        hits.addTo(result, threads);
+
         System.out.println("\nInput: " + result.getInputGenes().size() + " genes");
         Double percentageGenes = (double) result.getMatchedGenes().size() * 100.0 / (double) input.size();
         System.out.println("Matched: " + result.getMatchedGenes().size() + " genes (" + new DecimalFormat("#0.00").format(percentageGenes) + "%), " + result.getHitProteins().size() + " proteins");
@@ -216,8 +200,22 @@ public class Search {
      * @return
      */
     public static SearchResult searchWithEnsembl(List<String> input, Mapping mapping, Boolean topLevelPathways) {
+        return searchWithEnsembl(input, mapping, topLevelPathways, 1);
+    }
 
-        SearchResult result = new SearchResult(InputType.ENSEMBL, topLevelPathways);
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithEnsembl(List<String> input, Mapping mapping, Boolean topLevelPathways, int threads) {
+
+        SearchResult result = new SearchResult(InputType.ENSEMBL, topLevelPathways, mapping);
+        PathwayClosure closure = mapping.getProteinClosure();
+        ReactionHits hits = new ReactionHits(closure);
+        MappedSetMultimap<String, String> ensemblToUniprot = mapping.getEnsemblToUniprot();
+        MappedSetMultimap<String, String> proteinsToReactions = mapping.getProteinsToReactions();
         int contHitEnsemble = 0;
 
         int row = 0;
@@ -229,53 +227,30 @@ public class Search {
             }
             result.getInputEnsembl().add(ensembl);
 
-            if (mapping.getEnsemblToUniprot().get(ensembl).size() > 0) {
+            int ensemblId = ensemblToUniprot.getKeyId(ensembl);
+            if (ensemblToUniprot.degree(ensemblId) > 0) {
                 contHitEnsemble++;
             }
 
-            for (String protein : mapping.getEnsemblToUniprot().get(ensembl)) {
+            for (int p = 0; p < ensemblToUniprot.degree(ensemblId); p++) {
+                int proteinId = ensemblToUniprot.getValueId(ensemblId, p);
+                String protein = ensemblToUniprot.getValueIdentifiers().get(proteinId);
                 result.getInputProteins().add(protein);
                 result.getMatchedEnsembl().add(ensembl);
                 result.getMatchedProteins().add(protein);
 
-                for (String reaction : mapping.getProteinsToReactions().get(protein)) {
+                int entity = result.getPathwayHits().addEntity(new Proteoform(protein));
+                int columns = result.addRecordColumns(ensembl, protein);
+                if (proteinsToReactions.degree(proteinId) > 0) {
                     result.getHitProteins().add(protein);
                     result.getHitEnsembl().add(ensembl);
-                    for (String pathwayStId : mapping.getReactionsToPathways().get(reaction)) {
-
-                        Pathway pathway = mapping.getPathways().get(pathwayStId);
-                        result.getHitPathways().add(pathway);
-                        pathway.getReactionsFound().add(reaction);
-                        pathway.getEntitiesFound().add(new Proteoform(protein));
-
-                        String[] values = new String[8];
-                        values[0] = ensembl;
-                        values[1] = protein;
-                        values[2] = reaction;
-                        values[3] = mapping.getReactions().get(reaction).getDisplayName();
-                        values[4] = pathwayStId;
-                        values[5] = pathway.getDisplayName();
-                        values[6] = pathwayStId;
-                        values[7] = pathway.getDisplayName();
-
-                        if (topLevelPathways) {
-                            if (mapping.getPathwaysToTopLevelPathways().get(pathwayStId).size() > 0) {
-                                for (String topLevelPathway : mapping.getPathwaysToTopLevelPathways().get(pathwayStId)) {
-                                    values[6] = topLevelPathway;
-                                    values[7] = mapping.getPathways().get(topLevelPathway).getDisplayName();
-                                    result.addRecord(values);
-                                }
-                            } else {
-                                result.addRecord(values);
-                            }
-                        } else {
-                            result.addRecord(Arrays.copyOfRange(values, 0, 6));
-                        }
-                    }
+                    hits.add(columns, entity, closure.indexOf(protein));
                 }
             }
         }
 
+        hits.addTo(result, threads);
+
         System.out.println("\nInput: " + result.getInputProteins().size() + " proteins");
         Double percentageProteins = (double) contHitEnsemble * 100.0 / (double) result.getInputProteins().size();
         System.out.println("Matched: " + contHitEnsemble + " proteins (" + new DecimalFormat("#0.00").format(percentageProteins) + "%)");
@@ -297,8 +272,21 @@ public class Search {
      * @return Mapping from rsids to pathways, message errors
      */
     public static SearchResult searchWithRsId(List<String> input, Mapping mapping, Boolean topLevelPathways, String mapping_path) throws FileNotFoundException {
+        return searchWithRsId(input, mapping, topLevelPathways, mapping_path, 1);
+    }
+
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithRsId(List<String> input, Mapping mapping, Boolean topLevelPathways, String mapping_path, int threads) throws FileNotFoundException {
 
-        SearchResult result = new SearchResult(InputType.RSID, topLevelPathways);
+        SearchResult result = new SearchResult(InputType.RSID, topLevelPathways, mapping);
+        PathwayClosure closure = mapping.getProteinClosure();
+        ReactionHits hits = new ReactionHits(closure);
+        MappedSetMultimap<String, String> proteinsToReactions = mapping.getProteinsToReactions();
 
         int row = 0;
         for (String rsid : input) {
@@ -314,53 +302,36 @@ public class Search {
             result.getInputRsid().add(rsid);
         }
 
-        for (int chr = 1; chr <= 22; chr++) {
-            for (String rsid : result.getInputRsid()) {
-                for (String protein : mapping.getRsidsToProteins(chr, mapping_path).get(rsid)) {
-                    result.getMatchedRsid().add(rsid);
-                    result.getInputProteins().add(protein);
-                    result.getMatchedProteins().add(protein);
-
-                    for (String reaction : mapping.getProteinsToReactions().get(protein)) {
-                        result.getHitProteins().add(protein);
-                        result.getHitRsid().add(rsid);
-
-                        for (String pathwayStId : mapping.getReactionsToPathways().get(reaction)) {
-
-                            Pathway pathway = mapping.getPathways().get(pathwayStId);
-                            result.getHitPathways().add(pathway);
-                            pathway.getReactionsFound().add(reaction);
-                            pathway.getEntitiesFound().add(new Proteoform(protein));
-
-                            String[] values = new String[8];
-                            values[0] = rsid;
-                            values[1] = protein;
-                            values[2] = reaction;
-                            values[3] = mapping.getReactions().get(reaction).getDisplayName();
-                            values[4] = pathwayStId;
-                            values[5] = pathway.getDisplayName();
-                            values[6] = pathwayStId;
-                            values[7] = pathway.getDisplayName();
-
-                            if (topLevelPathways) {
-                                if (mapping.getPathwaysToTopLevelPathways().get(pathwayStId).size() > 0) {
-                                    for (String topLevelPathway : mapping.getPathwaysToTopLevelPathways().get(pathwayStId)) {
-                                        values[6] = topLevelPathway;
-                                        values[7] = mapping.getPathways().get(topLevelPathway).getDisplayName();
-                                        result.addRecord(values);
-                                    }
-                                } else {
-                                    result.addRecord(values);
-                                }
-                            } else {
-                                result.addRecord(Arrays.copyOfRange(values, 0, 6));
-                            }
-                        }
-                    }
+        // Each rsid is looked up once. The proteins found are grouped by chromosome, so they are added in the order of
+        // the chromosomes and then of the input, as when the tables of the chromosomes were searched one by one.
+        RsidIndex rsIdIndex = mapping.getRsidIndex(mapping_path);
+        ListMultimap<Integer, Pair<String, List<String>>> found = MultimapBuilder.treeKeys().arrayListValues().build();
+        for (String rsid : result.getInputRsid()) {
+            for (Map.Entry<Integer, List<String>> chromosome : rsIdIndex.getProteins(rsid).entrySet()) {
+                found.put(chromosome.getKey(), Pair.of(rsid, chromosome.getValue()));
+            }
+        }
+        for (Pair<String, List<String>> rsidProteins : found.values()) {
+            String rsid = rsidProteins.getKey();
+            for (String protein : rsidProteins.getValue()) {
+                result.getMatchedRsid().add(rsid);
+                result.getInputProteins().add(protein);
+                result.getMatchedProteins().add(protein);
+
+                int proteinId = proteinsToReactions.getKeyId(protein);
+                int entity = result.getPathwayHits().addEntity(new Proteoform(protein));
+                int columns = result.addRecordColumns(rsid, protein);
+                if (proteinsToReactions.degree(proteinId) > 0) {
+                    result.getHitProteins().add(protein);
+                    result.getHitRsid().add(rsid);
+
+                    hits.add(columns, entity, closure.indexOf(protein));
                 }
             }
         }
 
+        hits.addTo(result, threads);
+
         System.out.println("\nInput: " + result.getInputRsid().size() + " rsids");
         System.out.println("Found " + result.getHitProteins().size() + " proteins.");
         Double percentageSnps = (double) result.getMatchedRsid().size() * 100.0 / (double) result.getInputRsid().size();
@@ -382,10 +353,25 @@ public class Search {
      * @return Mapping from rsids to pathways, message errors
      */
     public static SearchResult searchWithChrBp(List<String> input, Mapping mapping, Boolean topLevelPathways, String mapping_path) throws FileNotFoundException {
+        return searchWithChrBp(input, mapping, topLevelPathways, mapping_path, 1, -1);
+    }
 
-        SearchResult result = new SearchResult(InputType.CHRBP, topLevelPathways);
+    /**
+     * Maps variants composed by [chr, bp] to protein to reaction to pathways, searching the chromosomes in parallel.
+     *
+     * @param threads Number of chromosomes searched at the same time, and of threads that expand the hits. With one
+     *                thread, the chromosomes are searched one after another and the search keeps the table of the
+     *                last one.
+     * @param window  Number of base pairs around the regions of the proteins where the variants are mapped to them, or
+     *                a negative number to map only the exact base pairs in the tables of the chromosomes
+     */
+    public static SearchResult searchWithChrBp(List<String> input, Mapping mapping, Boolean topLevelPathways, String mapping_path,
+                                               int threads, long window) throws FileNotFoundException {
+
+        SearchResult result = new SearchResult(InputType.CHRBP, topLevelPathways, mapping);
 
-        Snp snp = null;
+        long[] keys = new long[input.size()];
+        int count = 0;
         int row = 0;
         for (String line : input) {
             row++;
@@ -400,82 +386,288 @@ public class Search {
                 sendWarning(INVALID_ROW, row);
                 continue;
             }
-            snp = getSnpFromChrBp(line);
-            result.getInputChrBp().put(snp.getChr(), snp.getBp());
+            keys[count++] = getChrBpKey(line);
         }
+        long[] variants = sortedUnique(keys, count);
+        result.setInputChrBpCount(variants.length);
+
+        SortedMap<Long, List<String>> matched = new TreeMap<>();
+        if (window >= 0) {
+            RegionIndex regions = mapping.getRegionIndex(mapping_path);
+            for (long variant : variants) {
+                findInRegions(regions, variant, window, matched);
+            }
+        } else if (threads > 1) {
+            try (ChromosomeSearch search = new ChromosomeSearch(mapping, mapping_path, threads)) {
+                // The variants of each chromosome are next to each other
+                int start = 0;
+                while (start < variants.length) {
+                    int chr = VariantTable.getChr(variants[start]);
+                    int end = start + 1;
+                    while (end < variants.length && VariantTable.getChr(variants[end]) == chr) {
+                        end++;
+                    }
+                    search.submit(chr, Arrays.copyOfRange(variants, start, end), end - start);
+                    start = end;
+                }
+                matched = search.getFound();
+            }
+        } else {
+            // The variants are sorted by chromosome, so the table of each chromosome is loaded once. The proteins are
+            // copied so that only the table of the last chromosome is kept.
+            ChromosomeTable table = new ChromosomeTable(mapping, mapping_path);
+            for (long variant : variants) {
+                List<String> proteins = table.get(VariantTable.getChr(variant)).get(variant);
+                if (!proteins.isEmpty()) {
+                    matched.put(variant, new ArrayList<>(proteins));
+                }
+            }
+        }
+        addChrBpHits(result, mapping, topLevelPathways, matched, threads);
 
-        for (int chr : result.getInputChrBp().keySet()) {
-            for (Long bp : result.getInputChrBp().get(chr)) {
-                for (String protein : mapping.getChrBpToProteins(chr, mapping_path).get(bp)) {
-                    result.getMatchedChrBp().put(chr, bp);
-                    result.getInputProteins().add(protein);
-                    result.getMatchedProteins().add(protein);
-
-                    for (String reaction : mapping.getProteinsToReactions().get(protein)) {
-                        result.getHitProteins().add(protein);
-                        result.getHitChrBp().put(chr, bp);
-
-                        for (String pathwayStId : mapping.getReactionsToPathways().get(reaction)) {
-
-                            Pathway pathway = mapping.getPathways().get(pathwayStId);
-                            result.getHitPathways().add(pathway);
-                            pathway.getReactionsFound().add(reaction);
-                            pathway.getEntitiesFound().add(new Proteoform(protein));
-
-                            String[] values = new String[9];
-                            values[0] = String.valueOf(chr);
-                            values[1] = String.valueOf(bp);
-                            values[2] = protein;
-                            values[3] = reaction;
-                            values[4] = mapping.getReactions().get(reaction).getDisplayName();
-                            values[5] = pathwayStId;
-                            values[6] = pathway.getDisplayName();
-                            values[7] = pathwayStId;
-                            values[8] = pathway.getDisplayName();
-
-                            if (topLevelPathways) {
-                                if (mapping.getPathwaysToTopLevelPathways().get(pathwayStId).size() > 0) {
-                                    for (String topLevelPathway : mapping.getPathwaysToTopLevelPathways().get(pathwayStId)) {
-                                        values[7] = topLevelPathway;
-                                        values[8] = mapping.getPathways().get(topLevelPathway).getDisplayName();
-                                        result.addRecord(values);
-                                    }
-                                } else {
-                                    result.addRecord(values);
-                                }
-                            } else {
-                                result.addRecord(Arrays.copyOfRange(values, 0, 7));
-                            }
-                        }
+        return result;
+    }
+
+    public static SearchResult searchWithVcf(String input_path, Mapping mapping, Boolean topLevelPathways, String mapping_path) throws IOException {
+        return searchWithVcf(input_path, mapping, topLevelPathways, mapping_path, 1, -1);
+    }
+
+    /**
+     * Maps the variants of a VCF file, or a file with chromosome and base pair per line, to protein to reaction to
+     * pathways. The file is read one line at a time and can be compressed with gzip or bgzip, so the memory used
+     * depends on the number of variants found and not on the size of the file.
+     * <p>
+     * The variants are searched in parts of one chromosome, so the table of a chromosome is loaded once for each part
+     * also when the file is not sorted. Repeated variants are counted once in the input, as in
+     * {@link #searchWithChrBp(List, Mapping, Boolean, String, int, long)}, with the sorted keys of the variants of each
+     * chromosome searched so far.</p>
+     *
+     * @param input_path       Path of the input file
+     * @param topLevelPathways Flag if top level pathways should be used
+     * @param threads          Number of chromosomes searched at the same time, and of threads that expand the hits.
+     *                         With more than one thread, the records are read while the workers search the parts read
+     *                         before.
+     * @param window           Number of base pairs around the regions of the proteins where the variants are mapped to
+     *                         them, or a negative number to map only the exact base pairs in the tables of the
+     *                         chromosomes
+     */
+    public static SearchResult searchWithVcf(String input_path, Mapping mapping, Boolean topLevelPathways, String mapping_path,
+                                             int threads, long window) throws IOException {
+
+        SearchResult result = new SearchResult(InputType.VCF, topLevelPathways, mapping);
+
+        SortedMap<Long, List<String>> matched = new TreeMap<>();
+        long previous = -1;
+        // The variants are collected by chromosome and searched in parts, so that the tables of the chromosomes are not
+        // loaded again for each record when the file is not sorted
+        long[][] parts = new long[100][];
+        int[] partSizes = new int[100];
+        long[][] searched = new long[100][];    // Keys of the different variants of each chromosome searched so far
+        RegionIndex regions = window >= 0 ? mapping.getRegionIndex(mapping_path) : null;
+        ChromosomeTable table = new ChromosomeTable(mapping, mapping_path);
+        try (VariantScanner scanner = VariantScanner.open(input_path);
+             ChromosomeSearch search = threads > 1 && regions == null ? new ChromosomeSearch(mapping, mapping_path, threads) : null) {
+            for (int line = scanner.next(); line != VariantScanner.END; line = scanner.next()) {
+                if (line == VariantScanner.EMPTY) {
+                    sendWarning(EMPTY_ROW, scanner.getRow());
+                } else if (line == VariantScanner.INVALID) {
+                    sendWarning(INVALID_ROW, scanner.getRow());
+                } else if (line == VariantScanner.VARIANT && scanner.getKey() != previous) {
+                    long variant = scanner.getKey();
+                    int chr = VariantTable.getChr(variant);
+                    previous = variant;
+                    if (parts[chr] == null) {
+                        parts[chr] = new long[VCF_PART_SIZE];
+                    }
+                    parts[chr][partSizes[chr]++] = variant;
+                    if (partSizes[chr] == VCF_PART_SIZE) {
+                        searched[chr] = searchPart(table, search, regions, window, chr, parts[chr],
+                                partSizes[chr], searched[chr], matched);
+                        parts[chr] = null;
+                        partSizes[chr] = 0;
                     }
                 }
             }
+            for (int chr = 0; chr < parts.length; chr++) {
+                if (partSizes[chr] > 0) {
+                    searched[chr] = searchPart(table, search, regions, window, chr, parts[chr],
+                            partSizes[chr], searched[chr], matched);
+                }
+            }
+            if (search != null) {
+                matched = search.getFound();
+            }
         }
+        int count = 0;
+        for (long[] variants : searched) {
+            count += variants == null ? 0 : variants.length;
+        }
+        result.setInputChrBpCount(count);
+        addChrBpHits(result, mapping, topLevelPathways, matched, threads);
 
-        System.out.println("\nInput: " + result.getInputChrBp().entries().size() + " snps");
+        return result;
+    }
+
+    /**
+     * Searches the variants of a part of a chromosome that were not searched before: in the regions of the proteins
+     * when there is an index of the regions, on the workers when there are workers, or else with the table of the
+     * chromosome kept by the search.
+     *
+     * @param part     Variants of the chromosome, in the order they were read. The array is sorted.
+     * @param searched Sorted keys of the variants of the chromosome searched before, or null
+     * @param matched  Proteins of each variant found, filled when there are no workers
+     * @return The sorted keys of the variants of the chromosome searched before and in this part
+     */
+    private static long[] searchPart(ChromosomeTable table, ChromosomeSearch search, RegionIndex regions, long window,
+                                     int chr, long[] part, int size, long[] searched,
+                                     SortedMap<Long, List<String>> matched) throws FileNotFoundException {
+        long[] variants = sortedUnique(part, size);
+        if (searched != null) {
+            variants = difference(variants, searched);
+        }
+        if (variants.length > 0) {
+            if (regions != null) {
+                for (long variant : variants) {
+                    findInRegions(regions, variant, window, matched);
+                }
+            } else if (search != null) {
+                search.submit(chr, variants, variants.length);
+            } else {
+                VariantTable chromosome = table.get(chr);
+                for (long variant : variants) {
+                    List<String> proteins = chromosome.get(variant);
+                    if (!proteins.isEmpty()) {
+                        matched.put(variant, new ArrayList<>(proteins));
+                    }
+                }
+            }
+        }
+        return searched == null ? variants : union(searched, variants);
+    }
+
+    /**
+     * Gets the keys of the first sorted array that are not in the second.
+     */
+    private static long[] difference(long[] keys, long[] excluded) {
+        long[] result = new long[keys.length];
+        int size = 0;
+        int j = 0;
+        for (long key : keys) {
+            while (j < excluded.length && excluded[j] < key) {
+                j++;
+            }
+            if (j == excluded.length || excluded[j] != key) {
+                result[size++] = key;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Merges two sorted arrays of different keys.
+     */
+    private static long[] union(long[] first, long[] second) {
+        long[] result = new long[first.length + second.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                result[size++] = first[i++];
+            } else {
+                result[size++] = second[j++];
+            }
+        }
+        return result;
+    }
+
+    private static void findInRegions(RegionIndex regions, long variant, long window, SortedMap<Long, List<String>> matched) {
+        List<String> proteins = regions.getProteins(variant, window);
+        if (!proteins.isEmpty()) {
+            matched.put(variant, proteins);
+        }
+    }
+
+    /**
+     * Adds the records of the variants found in the reference data, in the order of the variants.
+     *
+     * @param matched Proteins of each variant found, by the keys of {@link VariantTable#chrBpKey(int, long)}
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    private static void addChrBpHits(SearchResult result, Mapping mapping, Boolean topLevelPathways, SortedMap<Long, List<String>> matched,
+                                     int threads) {
+        PathwayClosure closure = mapping.getProteinClosure();
+        ReactionHits hits = new ReactionHits(closure);
+        MappedSetMultimap<String, String> proteinsToReactions = mapping.getProteinsToReactions();
+        long[] variants = new long[matched.size()];
+        int v = 0;
+        for (Map.Entry<Long, List<String>> variant : matched.entrySet()) {
+            variants[v] = variant.getKey();
+            int chr = VariantTable.getChr(variants[v]);
+            long bp = VariantTable.getBp(variants[v]);
+            for (String protein : variant.getValue()) {
+                result.getInputProteins().add(protein);
+                result.getMatchedProteins().add(protein);
+
+                int proteinId = proteinsToReactions.getKeyId(protein);
+                int entity = result.getPathwayHits().addEntity(new Proteoform(protein));
+                int columns = result.addRecordColumns(String.valueOf(chr), String.valueOf(bp), protein);
+                if (proteinsToReactions.degree(proteinId) > 0) {
+                    result.getHitProteins().add(protein);
+                    result.getHitChrBp().set(v);
+
+                    hits.add(columns, entity, closure.indexOf(protein));
+                }
+            }
+            v++;
+        }
+        result.setMatchedChrBp(variants);
+
+        hits.addTo(result, threads);
+
+        System.out.println("\nInput: " + result.getInputChrBpCount() + " snps");
         System.out.println("Found " + result.getHitProteins().size() + " proteins.");
-        Double percentageSnps = (double) result.getMatchedChrBp().entries().size() * 100.0 / (double) result.getInputChrBp().entries().size();
-        System.out.println("Matched: " + result.getMatchedChrBp().entries().size() + " snps ("
+        Double percentageSnps = (double) variants.length * 100.0 / (double) result.getInputChrBpCount();
+        System.out.println("Matched: " + variants.length + " snps ("
                 + new DecimalFormat("#0.00").format(percentageSnps) + "%), "
                 + result.getHitProteins().size() + " proteins");
 
         result.setStatus(new MessageStatus("Success", 0, 0, "", ""));
+    }
 
-        return result;
+    /**
+     * Gets the key of the variant of a line that starts with the chromosome and the base pair, as {@link
+     * VariantTable#chrBpKey(int, long)}. The lines are already validated, so the first two fields are numbers; the base
+     * pair can end with an "L".
+     */
+    private static long getChrBpKey(String line) {
+        int chr = 0;
+        int i = 0;
+        for (; i < line.length() && !Character.isWhitespace(line.charAt(i)); i++) {
+            chr = chr * 10 + (line.charAt(i) - '0');
+        }
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        long bp = 0;
+        for (; i < line.length() && Character.isDigit(line.charAt(i)); i++) {
+            bp = bp * 10 + (line.charAt(i) - '0');
+        }
+        return VariantTable.chrBpKey(chr, bp);
     }
 
-    /*
-     * Get the snp instance from a line with chromosome and base pair.
-     * This method expects the line to be validated already
+    /**
+     * Sorts the first keys of the array and removes the repeated ones.
      */
-    private static Snp getSnpFromChrBp(String line) {
-        String[] fields = line.split("\\s");
-        Integer chr = Integer.valueOf(fields[0]);
-        if (fields[1].endsWith("L")) {
-            fields[1] = fields[1].substring(0, fields[1].length() - 1);
+    private static long[] sortedUnique(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) {
+                keys[unique++] = keys[i];
+            }
         }
-        Long bp = Long.valueOf(fields[1]);
-        return new Snp(chr, bp);
+        return Arrays.copyOf(keys, unique);
     }
 
     public static SearchResult searchWithProteoform(List<String> input,
@@ -483,34 +675,65 @@ public class Search {
                                                     Boolean topLevelPathways,
                                                     MatchType matchType,
                                                     Long range) {
+        return searchWithProteoform(input, mapping, topLevelPathways, matchType, range, 1);
+    }
 
-        SearchResult result = new SearchResult(InputType.PROTEOFORM, topLevelPathways);
-        ProteoformMatching matcher = ProteoformMatching.getInstance(matchType);
-        assert matcher != null;
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithProteoform(List<String> input,
+                                                    Mapping mapping,
+                                                    Boolean topLevelPathways,
+                                                    MatchType matchType,
+                                                    Long range,
+                                                    int threads) {
+
+        SearchResult result = new SearchResult(InputType.PROTEOFORM, topLevelPathways, mapping);
 
         int row = 0;
         for (String line : input) {
             row++;
-            if (matches_Proteoform_Simple(line)) {
-                try {
-                    Proteoform proteoform = ProteoformFormat.SIMPLE.getProteoform(line, row);
-                    result.getInputProteoforms().add(proteoform);
-                } catch (ParseException e) {
-                    sendWarning(INVALID_ROW, row);
-                }
-            } else {
+            try {
+                // The line is checked and read in one pass, and the duplicates of the input share the instance of the pool
+                Proteoform proteoform = result.getProteoformPool().intern(ProteoformScanner.readSimple(line));
+                result.getInputProteoforms().add(proteoform);
+            } catch (ParseException e) {
                 if (line.isEmpty())
                     sendWarning(EMPTY_ROW, row);
                 else
-                    sendWarning(INVALID_ROW, row);
+                    sendWarning(INVALID_ROW, row, e);
             }
         }
 
+        return matchProteoforms(result, mapping, matchType, range, threads);
+    }
+
+    /**
+     * Matches the input proteoforms of a result with the reference proteoforms, and expands the hits to the pathways.
+     */
+    private static SearchResult matchProteoforms(SearchResult result,
+                                                 Mapping mapping,
+                                                 MatchType matchType,
+                                                 Long range,
+                                                 int threads) {
+
+        PathwayClosure closure = mapping.getProteoformClosure();
+        ReactionHits hits = new ReactionHits(closure);
+        ProteoformMatching matcher = ProteoformMatching.getInstance(matchType);
+        assert matcher != null;
+
         // For each proteoform in the input we try to find matches in the reference proteoforms
         for (Proteoform inputProteoform : result.getInputProteoforms()) {
             result.getInputProteins().add(inputProteoform.getUniProtAcc());
 
-            for (Proteoform refProteoform : mapping.getProteinsToProteoforms().get(inputProteoform.getUniProtAcc())) {
+            // Only the reference proteoforms with modifications that can match are compared, in the order of the mapping
+            PtmIndex index = mapping.getPtmIndex(inputProteoform.getUniProtAcc());
+            BitSet candidates = matcher.getCandidates(inputProteoform, index, range);
+            for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+                Proteoform refProteoform = index.get(candidate);
                 if (matcher.matches(inputProteoform, refProteoform, range)) {
                     result.getMatchedProteoforms().add(inputProteoform);
                     result.getMatchedProteins().add(inputProteoform.getUniProtAcc());
@@ -523,44 +746,13 @@ public class Search {
         }
 
         for (Proteoform hitProteoform : result.getHitProteoforms()) {
-            for (String reaction : mapping.getProteoformsToReactions().get(hitProteoform)) {
-                result.getHitProteoforms().add(hitProteoform);
-                result.getHitProteins().add(hitProteoform.getUniProtAcc());
-
-                for (String pathwayStId : mapping.getReactionsToPathways().get(reaction)) {
-
-                    Pathway pathway = mapping.getPathways().get(pathwayStId);
-                    result.getHitPathways().add(pathway);
-                    pathway.getReactionsFound().add(reaction);
-                    pathway.getEntitiesFound().add(hitProteoform);
-
-                    String[] values = new String[8];
-                    values[0] = hitProteoform.toString(ProteoformFormat.SIMPLE);
-                    values[1] = hitProteoform.getUniProtAcc();
-                    values[2] = reaction;
-                    values[3] = mapping.getReactions().get(reaction).getDisplayName();
-                    values[4] = pathwayStId;
-                    values[5] = pathway.getDisplayName();
-                    values[6] = pathwayStId;
-                    values[7] = pathway.getDisplayName();
-
-                    if (topLevelPathways) {
-                        if (mapping.getPathwaysToTopLevelPathways().get(pathwayStId).size() > 0) {
-                            for (String topLevelPathway : mapping.getPathwaysToTopLevelPathways().get(pathwayStId)) {
-                                values[6] = topLevelPathway;
-                                values[7] = mapping.getPathways().get(topLevelPathway).getDisplayName();
-                                result.addRecord(values);
-                            }
-                        } else {
-                            result.addRecord(values);
-                        }
-                    } else {
-                        result.addRecord(Arrays.copyOfRange(values, 0, 6));
-                    }
-                }
-            }
+            int entity = result.getPathwayHits().addEntity(hitProteoform);
+            int columns = result.addRecordColumns(hitProteoform.toString(ProteoformFormat.SIMPLE), hitProteoform.getUniProtAcc());
+            hits.add(columns, entity, closure.indexOf(MappingStore.PROTEOFORM.encodeKey(hitProteoform)));
         }
 
+        hits.addTo(result, threads);
+
         System.out.println("\nInput: " + result.getInputProteoforms().size() + " proteoforms, " + result.getInputProteins().size() + " proteins");
         Double percentageProteoforms = (double) result.getMatchedProteoforms().size() * 100.0 / (double) result.getInputProteoforms().size();
         Double percentageProteins = (double) result.getMatchedProteins().size() * 100.0 / (double) result.getInputProteins().size();
@@ -578,8 +770,22 @@ public class Search {
                                                  Mapping mapping,
                                                  Boolean topLevelPathways,
                                                  String fastaFile) {
+        return searchWithPeptide(input, mapping, topLevelPathways, fastaFile, 1);
+    }
 
-        SearchResult result = new SearchResult(InputType.PEPTIDE, topLevelPathways);
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithPeptide(List<String> input,
+                                                 Mapping mapping,
+                                                 Boolean topLevelPathways,
+                                                 String fastaFile,
+                                                 int threads) {
+
+        SearchResult result = new SearchResult(InputType.PEPTIDE, topLevelPathways, mapping);
 
         // Note: In this function the duplicate protein identifiers are removed by
         // adding the whole input list to a set.
@@ -603,7 +809,7 @@ public class Search {
             }
         }
 
-        return searchWithUniProt(new ArrayList<>(result.getMatchedProteins()), mapping, topLevelPathways);
+        return searchWithUniProt(new ArrayList<>(result.getMatchedProteins()), mapping, topLevelPathways, threads);
     }
 
     public static SearchResult searchWithModifiedPeptide(List<String> input,
@@ -612,8 +818,24 @@ public class Search {
                                                          MatchType matchType,
                                                          Long margin,
                                                          String fastaFile) {
+        return searchWithModifiedPeptide(input, mapping, topLevelPathways, matchType, margin, fastaFile, 1);
+    }
+
+    /**
+     * Same as the search without threads, expanding the hits on several threads. The result is the same for any
+     * number of threads.
+     *
+     * @param threads Number of threads that expand the hits to the pathways of the reactions
+     */
+    public static SearchResult searchWithModifiedPeptide(List<String> input,
+                                                         Mapping mapping,
+                                                         Boolean topLevelPathways,
+                                                         MatchType matchType,
+                                                         Long margin,
+                                                         String fastaFile,
+                                                         int threads) {
 
-        List<String> correctedInput = new ArrayList<>();
+        SearchResult result = new SearchResult(InputType.PROTEOFORM, topLevelPathways, mapping);
 
         // Note: In this function the duplicate protein identifiers are removed by
         // adding the whole input list to a set.
@@ -625,32 +847,31 @@ public class Search {
         int row = 0;
         for (String line : input) {
             row++;
-            if (matches_Peptite_And_Mod_Sites(line)) {
-                try {
-                    Proteoform tempProteoform = ProteoformFormat.SIMPLE.getProteoform(line);
-                    for (Pair<String, Integer> pair : getPeptideMappingWithIndex(tempProteoform.getUniProtAcc())) {
-
-                        String uniprot = pair.getLeft();
-                        int index = pair.getRight();
-                        Proteoform correctProteoform = new Proteoform(uniprot);
-
-                        //Correct the positions of the PTMs
-                        for (Pair<String, Long> ptm : tempProteoform.getPtms()) {
-                            correctProteoform.addPtm(ptm.getLeft(), ptm.getValue() + index);
-                        }
-                        correctedInput.add(correctProteoform.toString(ProteoformFormat.SIMPLE));
-                    }
-                } catch (ParseException e) {
-                    sendWarning(INVALID_ROW, row);
-                }
-            } else {
+            Proteoform tempProteoform;
+            try {
+                tempProteoform = ProteoformScanner.readModifiedPeptide(line);
+            } catch (ParseException e) {
                 if (line.isEmpty())
                     sendWarning(EMPTY_ROW, row);
                 else
-                    sendWarning(INVALID_ROW, row);
+                    sendWarning(INVALID_ROW, row, e);
+                continue;
+            }
+            for (Pair<String, Integer> pair : getPeptideMappingWithIndex(tempProteoform.getUniProtAcc())) {
+
+                String uniprot = pair.getLeft();
+                int index = pair.getRight();
+                Proteoform correctProteoform = new Proteoform(uniprot);
+
+                //Correct the positions of the PTMs
+                for (Pair<String, Long> ptm : tempProteoform.getPtms()) {
+                    correctProteoform.addPtm(ptm.getLeft(), ptm.getValue() + index);
+                }
+                result.getInputProteoforms().add(result.getProteoformPool().intern(correctProteoform));
             }
         }
 
-        return searchWithProteoform(correctedInput, mapping, topLevelPathways, matchType, margin);
+        // The corrected proteoforms are matched directly, instead of writing them as lines and reading them again
+        return matchProteoforms(result, mapping, matchType, margin, threads);
     }
 }
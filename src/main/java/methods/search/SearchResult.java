@@ -1,6 +1,5 @@
 package methods.search;
 
-import com.google.common.collect.TreeMultimap;
 import model.*;
 
 import java.io.BufferedWriter;
@@ -12,7 +11,10 @@ import static model.Error.sendError;
 
 public class SearchResult {
     private Set<Pathway> hitPathways = new TreeSet<>();
-    private Set<Proteoform> hitProteoforms = new HashSet<>(); // Reference proteoforms that match input proteoforms
+    private PathwayHits pathwayHits = new PathwayHits();    // Reactions and entities found in each hit pathway
+    private PathwayClosure closure;    // Closure of the entities of the search to pathways
+    private int[] hitEntities = new int[0];    // Indexes in the closure of the entities found in some pathway, sorted
+    private Set<Proteoform> hitProteoforms = new LinkedHashSet<>(); // Reference proteoforms that match input proteoforms, in match order
 
     private Set<String> inputProteins = new HashSet<>(); // Valid input protein accessions. These may not be in the reference data
     private Set<String> matchedProteins = new TreeSet<>(); // Proteins that are selected to search and exist in the reference data
@@ -30,16 +32,23 @@ public class SearchResult {
     private Set<String> inputRsid = new HashSet<>();
     private Set<String> matchedRsid = new HashSet<>();
 
-    private TreeMultimap<Integer, Long> hitChrBp = TreeMultimap.create();
-    private TreeMultimap<Integer, Long> inputChrBp = TreeMultimap.create();
-    private TreeMultimap<Integer, Long> matchedChrBp = TreeMultimap.create();
+    private int inputChrBpCount = 0; // Number of different valid input variants
+    private long[] matchedChrBp = new long[0]; // Input variants in the reference data as keys of VariantTable.chrBpKey, sorted
+    private BitSet hitChrBp = new BitSet(); // Indexes of the matched variants that map at least to a reaction
 
 
-    private Set<Proteoform> inputProteoforms = new HashSet<>(); // These may not be in the reference data
-    private Set<Proteoform> matchedProteoforms = new HashSet<>(); // Proteoforms in the input that had a matched reference proteoform
+    private Set<Proteoform> inputProteoforms = new LinkedHashSet<>(); // In input order. These may not be in the reference data
+    private Set<Proteoform> matchedProteoforms = new LinkedHashSet<>(); // Proteoforms in the input that had a matched reference proteoform, in input order
+    private final ProteoformPool proteoformPool; // Canonical instances of the input proteoforms, after the ones of the mapping
 
     private List<String> headers = new ArrayList<>();
-    private List<String[]> records = new ArrayList<>();
+
+    // The records are not kept: they are expanded from the hits of the search each time they are written. Only the
+    // columns before the reaction, shared by the records of an entity, are kept.
+    private final Mapping mapping;
+    private final boolean showTopLevelPathways;
+    private final List<String[]> recordColumns = new ArrayList<>();
+    private ReactionHits hits;
 
     MessageStatus status;
 
@@ -47,6 +56,49 @@ public class SearchResult {
         return hitPathways;
     }
 
+    /**
+     * Registers that the entity was found in the reaction of the pathway. The pathways of the mapping are not modified.
+     *
+     * @param pathway    Pathway from the static mapping
+     * @param pathwayId  Identifier of the pathway in the values of the reactionsToPathways table
+     * @param reaction   Reaction stId
+     * @param reactionId Identifier of the reaction in the keys of the reactionsToPathways table
+     * @param entity     Index of the entity found in the reaction, from {@link PathwayHits#addEntity(Proteoform)}
+     */
+    void addHit(Pathway pathway, int pathwayId, String reaction, int reactionId, int entity) {
+        if (pathwayHits.add(pathway, pathwayId, reaction, reactionId, entity) == hitPathways.size()) {
+            hitPathways.add(pathway);
+        }
+    }
+
+    public PathwayHits getPathwayHits() {
+        return pathwayHits;
+    }
+
+    /**
+     * @return The closure of the entities of the search to pathways, which gives the indexes of {@link
+     * #getHitEntities()}
+     */
+    public PathwayClosure getClosure() {
+        return closure;
+    }
+
+    /**
+     * @return The sorted indexes in the closure of the entities found in some pathway
+     */
+    public int[] getHitEntities() {
+        return hitEntities;
+    }
+
+    /**
+     * Sets the hits of the search, which give the records, and the indexes in their closure of the entities found.
+     */
+    void setHits(ReactionHits hits, int[] hitEntities) {
+        this.hits = hits;
+        this.closure = hits.getClosure();
+        this.hitEntities = hitEntities;
+    }
+
     public Set<String> getHitGenes() {
         return hitGenes;
     }
@@ -75,8 +127,37 @@ public class SearchResult {
         return matchedProteoforms;
     }
 
-    void addRecord(String[] record) {
-        this.records.add(record);
+    /**
+     * Gets the pool of the input proteoforms. An input proteoform equal to a reference proteoform of the mapping
+     * already in the pool of the mapping gets the reference instance.
+     */
+    public ProteoformPool getProteoformPool() {
+        return proteoformPool;
+    }
+
+    /**
+     * Adds the columns before the reaction shared by the records of an entity.
+     *
+     * @return The index of the columns for {@link ReactionHits#add(int, int, int)}
+     */
+    int addRecordColumns(String... columns) {
+        recordColumns.add(columns);
+        return recordColumns.size() - 1;
+    }
+
+    /**
+     * Creates an empty result for the pathways of a part of the hits, which uses the entities of this result.
+     */
+    SearchResult createPart() {
+        return new SearchResult(showTopLevelPathways, mapping);
+    }
+
+    /**
+     * Adds the pathways of a part created with {@link #createPart()}, after the ones of this result.
+     */
+    void merge(SearchResult part) {
+        hitPathways.addAll(part.hitPathways);
+        pathwayHits.merge(part.pathwayHits);
     }
 
     public Set<String> getInputGenes() {
@@ -99,18 +180,26 @@ public class SearchResult {
         return matchedRsid;
     }
 
-    TreeMultimap<Integer, Long> getHitChrBp() {
+    BitSet getHitChrBp() {
         return hitChrBp;
     }
 
-    TreeMultimap<Integer, Long> getInputChrBp() {
-        return inputChrBp;
+    int getInputChrBpCount() {
+        return inputChrBpCount;
     }
 
-    TreeMultimap<Integer, Long> getMatchedChrBp() {
+    void setInputChrBpCount(int inputChrBpCount) {
+        this.inputChrBpCount = inputChrBpCount;
+    }
+
+    long[] getMatchedChrBp() {
         return matchedChrBp;
     }
 
+    void setMatchedChrBp(long[] matchedChrBp) {
+        this.matchedChrBp = matchedChrBp;
+    }
+
     public Set<String> getInputEnsembl() {
         return inputEnsembl;
     }
@@ -127,7 +216,14 @@ public class SearchResult {
         return matchedGenes;
     }
 
-    SearchResult(InputType inputType, boolean showTopLevelPathways) {
+    private SearchResult(boolean showTopLevelPathways, Mapping mapping) {
+        this.mapping = mapping;
+        this.showTopLevelPathways = showTopLevelPathways;
+        this.proteoformPool = new ProteoformPool(mapping != null ? mapping.getProteoformPool() : null);
+    }
+
+    SearchResult(InputType inputType, boolean showTopLevelPathways, Mapping mapping) {
+        this(showTopLevelPathways, mapping);
 
         switch (inputType) {
             case PROTEOFORM:
@@ -163,6 +259,28 @@ public class SearchResult {
         }
     }
 
+    /**
+     * Gets the names of the columns of the records. The top level pathways have a column for the stId, which is not
+     * in the headers of the search.tsv file.
+     */
+    public List<String> getColumnNames() {
+        List<String> columnNames = new ArrayList<>(headers);
+        if (showTopLevelPathways) {
+            columnNames.add(columnNames.size() - 1, "TOP_LEVEL_PATHWAY_STID");
+        }
+        return columnNames;
+    }
+
+    /**
+     * Passes the records of the search to the sink, in the order they are written. The records are expanded from the
+     * hits of the search as they are passed, so they do not take memory.
+     */
+    public void forEachRecord(RecordSink sink) throws IOException {
+        if (hits != null) {
+            hits.writeRecords(recordColumns, showTopLevelPathways, mapping, sink);
+        }
+    }
+
     public void writeToFile(BufferedWriter bw, String separator) {
         try {
             for (String header : this.headers) {
@@ -170,15 +288,14 @@ public class SearchResult {
             }
             bw.newLine();
 
-            for (String[] r : records) {
-                for (int i = 0; i < r.length; i++) {
-                    if (i > 0) {
-                        bw.write(separator);
-                    }
-                    bw.write(r[i]);
+            forEachRecord(record -> {
+                bw.write(record[0]);
+                for (int i = 1; i < record.length; i++) {
+                    bw.write(separator);
+                    bw.write(record[i]);
                 }
                 bw.newLine();
-            }
+            });
         } catch (IOException ex) {
             sendError(ERROR_WITH_OUTPUT_FILE);
         }
@@ -198,21 +315,15 @@ public class SearchResult {
     }
 
     public boolean containsPathwayByStid(String pathway_stid) {
-        for(Pathway pathway : this.hitPathways) {
-            if(pathway.getStId().equals(pathway_stid)) {
-                return true;
-            }
-        }
-        return false;
+        return pathwayHits.indexOf(pathway_stid) >= 0;
     }
 
+    /**
+     * Gets a copy of the hit pathway with the reactions and entities found by this search.
+     */
     public Pathway getHitPathwayByStid(String stid){
-        for(Pathway pathway : this.hitPathways) {
-            if(pathway.getStId().equals(stid)) {
-                return pathway;
-            }
-        }
-        return null;
+        int index = pathwayHits.indexOf(stid);
+        return index < 0 ? null : pathwayHits.toPathway(index);
     }
 
 }
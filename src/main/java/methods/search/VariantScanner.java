@@ -0,0 +1,182 @@
+package methods.search;
+
+import model.VariantTable;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the chromosome and base pair of each line of a VCF file, or of a file with a chromosome and base pair per line,
+ * one line at a time. The file can be compressed with gzip or bgzip.
+ * <p>
+ * The lines are scanned as bytes and only the first two columns are parsed, so no string is created for the lines and
+ * the memory used does not depend on the size of the file. A line is valid with the same rules as {@link
+ * model.InputPatterns#matches_ChrBp(String)} or {@link model.InputPatterns#matches_Vcf_Record(String)}.</p>
+ */
+class VariantScanner implements Closeable {
+
+    static final int END = -1;
+    static final int EMPTY = 0;
+    static final int COMMENT = 1;
+    static final int INVALID = 2;
+    static final int VARIANT = 3;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+    private int row;
+    private long key;
+
+    VariantScanner(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a file, decompressing it when it starts with the gzip magic number.
+     */
+    static VariantScanner open(String path) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(path));
+        in.mark(2);
+        boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        // Bgzip files are a series of gzip members, which the gzip stream reads one after another
+        return new VariantScanner(gzip ? new GZIPInputStream(in, 1 << 16) : in);
+    }
+
+    /**
+     * Number of the last line read, starting at 1.
+     */
+    int getRow() {
+        return row;
+    }
+
+    /**
+     * Key of the variant of the last line read, as {@link VariantTable#chrBpKey(int, long)}.
+     */
+    long getKey() {
+        return key;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return The kind of line: {@link #VARIANT}, {@link #EMPTY}, {@link #COMMENT} or {@link #INVALID}, or {@link #END}
+     * when there are no more lines
+     */
+    int next() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return END;
+        }
+        row++;
+        if (row == 1 && c == 0xef && peekByte() == 0xbb) {
+            // UTF-8 byte order mark
+            position++;
+            if (peekByte() == 0xbf) {
+                position++;
+                c = read();
+            }
+        }
+        if (c == '\n' || c == -1) {
+            return EMPTY;
+        }
+        if (c == '#') {
+            return skipLine(c, COMMENT);
+        }
+
+        int chr = 0;
+        int chrDigits = 0;
+        int firstDigit = c;
+        for (; isDigit(c); c = read()) {
+            chr = chr * 10 + (c - '0');
+            chrDigits++;
+        }
+        int spaces = 0;
+        for (; isSpace(c); c = read()) {
+            spaces++;
+        }
+        long bp = 0;
+        int bpDigits = 0;
+        for (; isDigit(c) && bpDigits <= 11; c = read()) {
+            bp = bp * 10 + (c - '0');
+            bpDigits++;
+        }
+        if (chrDigits < 1 || chrDigits > 2 || spaces < 1 || bpDigits < 1 || bpDigits > 11) {
+            return skipLine(c, INVALID);
+        }
+
+        key = VariantTable.chrBpKey(chr, bp);
+        if (c == '\n' || c == -1) {
+            return VARIANT;
+        }
+        if (isSpace(c)) {
+            return skipLine(c, VARIANT);
+        }
+        if (c == 'L') {
+            // Only allowed in the chromosome and base pair format, which has one space and chromosomes up to 29
+            c = read();
+            boolean valid = (c == '\n' || c == -1) && spaces == 1 && (chrDigits == 1 || firstDigit == '1' || firstDigit == '2');
+            return skipLine(c, valid ? VARIANT : INVALID);
+        }
+        return skipLine(c, INVALID);
+    }
+
+    private int skipLine(int c, int kind) throws IOException {
+        while (c != '\n' && c != -1) {
+            c = read();
+        }
+        return kind;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == 0x0b || c == '\f';
+    }
+
+    /**
+     * Reads the next byte. The line breaks "\r\n" and "\r" are read as "\n".
+     */
+    private int read() throws IOException {
+        int c = readByte();
+        if (c == '\r') {
+            if (peekByte() == '\n') {
+                position++;
+            }
+            return '\n';
+        }
+        return c;
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private int peekByte() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        while (n == 0) {
+            n = in.read(buffer, 0, buffer.length);
+        }
+        position = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,86 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary that gives each identifier (protein accession, reaction or pathway stId, gene name...) one integer, so
+ * that the tables of the mapping store integers instead of repeating the strings.
+ * <p>
+ * The strings are kept in an array indexed by their identifier, and found with an open addressing hash table of
+ * identifiers, so no boxed integers are created. The dictionary is filled while the mapping is loaded, by one
+ * thread per table, and it can be read at the same time: a new string is written before its slot, and the arrays are
+ * replaced only once they are filled, so a reader finds every string added before it started looking.</p>
+ */
+public final class IdDictionary implements Identifiers {
+
+    private volatile String[] strings = new String[1024];
+    private volatile int[] slots = new int[2048];    // Identifier + 1 of the string in each slot, 0 if the slot is free
+    private volatile int size;
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int id) {
+        return strings[id];
+    }
+
+    public int indexOfKey(String key) {
+        int[] slots = this.slots;
+        String[] strings = this.strings;
+        for (int slot = hash(key) & (slots.length - 1); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            // A slot can point to a string that is being added by another thread
+            int id = slots[slot] - 1;
+            if (id < strings.length && key.equals(strings[id])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the identifier of a string, adding the string to the dictionary if it is not there yet.
+     */
+    public synchronized int intern(String value) {
+        int[] slots = this.slots;
+        int slot = hash(value) & (slots.length - 1);
+        for (; slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            if (strings[slots[slot] - 1].equals(value)) {
+                return slots[slot] - 1;
+            }
+        }
+        int id = size;
+        String[] strings = this.strings;
+        if (id == strings.length) {
+            strings = Arrays.copyOf(strings, id * 2);
+            strings[id] = value;
+            this.strings = strings;
+        } else {
+            strings[id] = value;
+        }
+        if ((id + 1) * 2 > slots.length) {
+            rehash(strings, id + 1, slots.length * 2);
+        } else {
+            slots[slot] = id + 1;
+        }
+        size = id + 1;
+        return id;
+    }
+
+    private void rehash(String[] strings, int size, int capacity) {
+        int[] slots = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            int slot = hash(strings[id]) & (capacity - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = id + 1;
+        }
+        this.slots = slots;
+    }
+
+    private static int hash(String value) {
+        int h = value.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
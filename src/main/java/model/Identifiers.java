@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * Strings with consecutive integer identifiers, starting at 0.
+ */
+public interface Identifiers {
+
+    int size();
+
+    String get(int id);
+
+    /**
+     * Finds the identifier of the string with the key. For most strings the key is the whole string, see
+     * {@link MappingStore.Codec#encodeKey(Object)}.
+     *
+     * @return The identifier, or -1 if there is no string with the key
+     */
+    int indexOfKey(String key);
+}
@@ -0,0 +1,111 @@
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Read-only adjacency lists of integers in compressed sparse row (CSR) layout, stored in a (memory mapped) buffer
+ * or in arrays.
+ * <p>
+ * Layout: number of rows n, n + 1 offsets, and the targets of all the rows one after the other.
+ * The targets of row i are at the positions offsets[i] to offsets[i + 1] - 1.</p>
+ */
+public final class IntAdjacency {
+
+    private final int rows;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+
+    private IntAdjacency(int rows, IntBuffer offsets, IntBuffer targets) {
+        this.rows = rows;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Reads the adjacency lists from the buffer, without copying the content.
+     *
+     * @param buffer Buffer with the adjacency lists, usually a memory mapped file
+     * @return The adjacency lists backed by the buffer
+     */
+    public static IntAdjacency read(ByteBuffer buffer) {
+        IntBuffer source = buffer.duplicate().asIntBuffer();
+        int rows = source.get(0);
+        source.position(1);
+        IntBuffer offsets = source.slice();
+        offsets.limit(rows + 1);
+        source.position(rows + 2);
+        IntBuffer targets = source.slice();
+        targets.limit(offsets.get(rows));
+        return new IntAdjacency(rows, offsets, targets);
+    }
+
+    /**
+     * Creates the adjacency lists in the heap, one row per list in the given order.
+     *
+     * @param lists The targets of each row
+     * @return The adjacency lists backed by arrays
+     */
+    public static IntAdjacency of(List<int[]> lists) {
+        int[] offsets = new int[lists.size() + 1];
+        for (int row = 0; row < lists.size(); row++) {
+            offsets[row + 1] = offsets[row] + lists.get(row).length;
+        }
+        int[] targets = new int[offsets[lists.size()]];
+        for (int row = 0; row < lists.size(); row++) {
+            System.arraycopy(lists.get(row), 0, targets, offsets[row], lists.get(row).length);
+        }
+        return new IntAdjacency(lists.size(), IntBuffer.wrap(offsets), IntBuffer.wrap(targets));
+    }
+
+    /**
+     * Writes the adjacency lists, one row per list in the given order.
+     *
+     * @param lists The targets of each row
+     * @param out   Output stream
+     */
+    public static void write(List<int[]> lists, DataOutputStream out) throws IOException {
+        out.writeInt(lists.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (int[] list : lists) {
+            offset += list.length;
+            out.writeInt(offset);
+        }
+        for (int[] list : lists) {
+            for (int target : list) {
+                out.writeInt(target);
+            }
+        }
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public int degree(int row) {
+        return offsets.get(row + 1) - offsets.get(row);
+    }
+
+    public int get(int row, int index) {
+        return targets.get(offsets.get(row) + index);
+    }
+
+    /**
+     * Copies the targets of one row.
+     *
+     * @param row The row number
+     * @return The targets of the row in the stored order
+     */
+    public int[] get(int row) {
+        int start = offsets.get(row);
+        int[] result = new int[offsets.get(row + 1) - start];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = targets.get(start + i);
+        }
+        return result;
+    }
+}
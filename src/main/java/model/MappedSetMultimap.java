@@ -0,0 +1,207 @@
+package model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.SetMultimap;
+
+import java.util.*;
+
+/**
+ * Read-only multimap that answers the queries directly from integer tables, either the memory mapped tables of a
+ * {@link MappingStore} or tables in the heap over an {@link IdDictionary}.
+ * <p>
+ * Keys and values are integer identifiers in two {@link Identifiers}, and the values of each key are one row of an
+ * {@link IntAdjacency}. Nothing is decoded until it is requested, so opening the multimap costs the same for
+ * any size of the table. The values of a key keep the order they had when the table was converted.</p>
+ * <p>
+ * The methods {@link #getKeyId(Object)}, {@link #degree(int)} and {@link #getValueId(int, int)} navigate the table
+ * with the identifiers directly. Tables with the same identifiers can be chained without decoding the strings in
+ * between, for example the values of proteinsToReactions are the keys of reactionsToPathways.</p>
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class MappedSetMultimap<K, V> extends ReadOnlySetMultimap<K, V> {
+
+    private static final int[] EMPTY_ROW = new int[0];
+
+    private final Identifiers keys;
+    private final Identifiers values;
+    private final IntAdjacency adjacency;
+    private final MappingStore.Codec<K> keyCodec;
+    private final MappingStore.Codec<V> valueCodec;
+    private int keyCount = -1;    // Counted the first time they are needed, so opening a table reads nothing
+    private int size = -1;
+
+    MappedSetMultimap(Identifiers keys, Identifiers values, IntAdjacency adjacency,
+                      MappingStore.Codec<K> keyCodec, MappingStore.Codec<V> valueCodec) {
+        this.keys = keys;
+        this.values = values;
+        this.adjacency = adjacency;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+    }
+
+    /**
+     * Copies a multimap into a table in the heap. The keys and values are added to the dictionary.
+     */
+    public static MappedSetMultimap<String, String> copyOf(SetMultimap<String, String> multimap, IdDictionary ids) {
+        List<int[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Collection<String>> entry : multimap.asMap().entrySet()) {
+            int key = ids.intern(entry.getKey());
+            int[] row = new int[entry.getValue().size()];
+            int i = 0;
+            for (String value : entry.getValue()) {
+                row[i++] = ids.intern(value);
+            }
+            while (rows.size() <= key) {
+                rows.add(EMPTY_ROW);
+            }
+            rows.set(key, row);
+        }
+        return new MappedSetMultimap<>(ids, ids, IntAdjacency.of(rows), MappingStore.STRING, MappingStore.STRING);
+    }
+
+    public static MappedSetMultimap<String, String> empty() {
+        IdDictionary ids = new IdDictionary();
+        return new MappedSetMultimap<>(ids, ids, IntAdjacency.of(Collections.emptyList()), MappingStore.STRING, MappingStore.STRING);
+    }
+
+    public Identifiers getKeyIdentifiers() {
+        return keys;
+    }
+
+    public Identifiers getValueIdentifiers() {
+        return values;
+    }
+
+    /**
+     * Gets the identifier of a key.
+     *
+     * @return The identifier, or -1 if the key has no values
+     */
+    public int getKeyId(Object key) {
+        return row(key);
+    }
+
+    /**
+     * Gets the number of values of a key identifier, 0 for -1 or identifiers without values in this table.
+     */
+    public int degree(int keyId) {
+        return keyId < 0 || keyId >= adjacency.size() ? 0 : adjacency.degree(keyId);
+    }
+
+    /**
+     * Gets the identifier of the value at the index in the values of a key identifier.
+     */
+    public int getValueId(int keyId, int index) {
+        return adjacency.get(keyId, index);
+    }
+
+    /**
+     * Gets the row of a key, or -1 if the key has no values.
+     */
+    @SuppressWarnings("unchecked")
+    private int row(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int row;
+        try {
+            row = keys.indexOfKey(keyCodec.encodeKey((K) key));
+        } catch (ClassCastException e) {
+            return -1;
+        }
+        if (row < 0 || row >= adjacency.size() || adjacency.degree(row) == 0) {
+            return -1;
+        }
+        return row;
+    }
+
+    private Set<V> getRow(int row) {
+        if (row < 0) {
+            return ImmutableSet.of();
+        }
+        ImmutableSet.Builder<V> builder = ImmutableSet.builder();
+        for (int i = 0; i < adjacency.degree(row); i++) {
+            builder.add(valueCodec.decode(values.get(adjacency.get(row, i))));
+        }
+        return builder.build();
+    }
+
+    private void count() {
+        int keyCount = 0;
+        int size = 0;
+        for (int row = 0; row < adjacency.size(); row++) {
+            int degree = adjacency.degree(row);
+            if (degree > 0) {
+                keyCount++;
+                size += degree;
+            }
+        }
+        this.size = size;
+        this.keyCount = keyCount;
+    }
+
+    @Override
+    protected int keyCount() {
+        if (keyCount < 0) {
+            count();
+        }
+        return keyCount;
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) {
+            count();
+        }
+        return size;
+    }
+
+    @Override
+    protected Set<V> getIfPresent(Object key) {
+        int row = row(key);
+        return row < 0 ? null : getRow(row);
+    }
+
+    @Override
+    protected Iterator<Map.Entry<K, Set<V>>> rowIterator() {
+        return Iterators.transform(new RowIterator(),
+                row -> new AbstractMap.SimpleImmutableEntry<>(keyCodec.decode(keys.get(row)), getRow(row)));
+    }
+
+    @Override
+    protected Iterator<K> keyIterator() {
+        return Iterators.transform(new RowIterator(), row -> keyCodec.decode(keys.get(row)));
+    }
+
+    /**
+     * Iterates the rows that have at least one value.
+     */
+    private class RowIterator implements Iterator<Integer> {
+        private int next = advance(0);
+
+        private int advance(int row) {
+            while (row < adjacency.size() && adjacency.degree(row) == 0) {
+                row++;
+            }
+            return row;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < adjacency.size();
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int row = next;
+            next = advance(row + 1);
+            return row;
+        }
+    }
+}
@@ -2,106 +2,162 @@ package model;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.TreeMultimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * Static mapping of Reactome loaded for a search. The tables are decoded on a pool of threads: the load methods only
+ * submit the tables of the input type, and each getter waits until its own table is ready, so a search can start
+ * while the tables it uses later are still loading.
+ */
 public class Mapping {
-    private ImmutableMap<String, String> proteinsToNames = ImmutableMap.of();  // Protein accession and name pairs
-    private ImmutableMap<String, Reaction> reactions = ImmutableMap.of();
-    private ImmutableMap<String, Pathway> pathways = ImmutableMap.of();
-    private ImmutableSetMultimap<String, String> rsIdsToProteins = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<Long, String> chrBpToProteins = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> genesToProteins = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> ensemblToUniprot = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, Proteoform> proteinsToProteoforms = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<Proteoform, String> proteoformsToReactions = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> proteinsToReactions = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> reactionsToPathways = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> pathwaysToTopLevelPathways = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> proteinsToComplexes = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> complexesToProteins = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> setsToProteins = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, String> proteinsToSets = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<Proteoform, String> proteoformsToComplexes = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, Proteoform> complexesToProteoforms = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<String, Proteoform> setsToProteoforms = ImmutableSetMultimap.of();
-    private ImmutableSetMultimap<Proteoform, String> proteoformsToSets = ImmutableSetMultimap.of();
+
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("mapping-loader-%d").setDaemon(true).build());
+    private static final MappedSetMultimap<String, String> EMPTY_TABLE = MappedSetMultimap.empty();
+
+    private Future<Map<String, String>> proteinsToNames;  // Protein accession and name pairs
+    private Future<Map<String, Reaction>> reactions;
+    private Future<Map<String, Pathway>> pathways;
+    private RsidIndex rsIdIndex;
+    private RegionIndex regionIndex;
+    private Future<PathwayClosure> proteinsToPathways;  // Read from the file of the closure, when the mapping has one
+    private Future<PathwayClosure> proteoformsToPathways;
+    private PathwayClosure proteinClosure;  // Closures with the identifiers of the tables, made the first time they are used
+    private PathwayClosure proteoformClosure;
+    private VariantTable chrBpToProteins;
+    private Future<MappedSetMultimap<String, String>> genesToProteins;
+    private Future<MappedSetMultimap<String, String>> ensemblToUniprot;
+    private Future<SetMultimap<String, Proteoform>> proteinsToProteoforms;
+    private Future<SetMultimap<Proteoform, String>> proteoformsToReactions;
+    private Future<MappedSetMultimap<String, String>> proteinsToReactions;
+    private Future<MappedSetMultimap<String, String>> reactionsToPathways;
+    private Future<MappedSetMultimap<String, String>> pathwaysToTopLevelPathways;
+    private Future<SetMultimap<String, String>> proteinsToComplexes;
+    private Future<SetMultimap<String, String>> complexesToProteins;
+    private Future<SetMultimap<String, String>> setsToProteins;
+    private Future<SetMultimap<String, String>> proteinsToSets;
+    private Future<SetMultimap<Proteoform, String>> proteoformsToComplexes;
+    private Future<SetMultimap<String, Proteoform>> complexesToProteoforms;
+    private Future<SetMultimap<String, Proteoform>> setsToProteoforms;
+    private Future<SetMultimap<Proteoform, String>> proteoformsToSets;
     private TreeMultimap<String, String> proteinsToGenes = TreeMultimap.create();
     private int loadedChromosome = 0;
+    private MappingStore store;    // Set when the mapping path is a directory in the binary format
+    private final IdDictionary ids = new IdDictionary();    // Identifiers of the tables loaded from the .gz files
+    private final List<Future<?>> loading = new ArrayList<>();
+    private final Map<String, PtmIndex> ptmIndexes = new ConcurrentHashMap<>();  // Made the first time each is used
+    private final ProteoformPool proteoformPool = new ProteoformPool();    // Reference proteoforms of the PTM indexes
+
+    public Map<String, String> getProteinsToNames() {
+        return get(proteinsToNames, ImmutableMap.of());
+    }
 
-    public ImmutableMap<String, String> getProteinsToNames() {
-        return proteinsToNames;
+    public Map<String, Reaction> getReactions() {
+        return get(reactions, ImmutableMap.of());
     }
 
-    public ImmutableMap<String, Reaction> getReactions() {
-        return reactions;
+    public Map<String, Pathway> getPathways() {
+        return get(pathways, ImmutableMap.of());
     }
 
-    public ImmutableMap<String, Pathway> getPathways() {
-        return pathways;
+    public MappedSetMultimap<String, String> getGenesToProteins() {
+        return get(genesToProteins, EMPTY_TABLE);
     }
 
-    public ImmutableSetMultimap<String, String> getGenesToProteins() {
-        return genesToProteins;
+    public MappedSetMultimap<String, String> getEnsemblToUniprot() {
+        return get(ensemblToUniprot, EMPTY_TABLE);
     }
 
-    public ImmutableSetMultimap<String, String> getEnsemblToUniprot() {
-        return ensemblToUniprot;
+    public SetMultimap<String, Proteoform> getProteinsToProteoforms() {
+        return get(proteinsToProteoforms, ImmutableSetMultimap.of());
+    }
+
+    /**
+     * Gets the index of the modifications of the reference proteoforms of a protein. The proteoforms of the index are
+     * the canonical instances of the {@link #getProteoformPool() pool} of the mapping.
+     *
+     * @param protein UniProt accession without isoform
+     */
+    public PtmIndex getPtmIndex(String protein) {
+        return ptmIndexes.computeIfAbsent(protein, key -> {
+            List<Proteoform> proteoforms = new ArrayList<>();
+            for (Proteoform proteoform : getProteinsToProteoforms().get(key)) {
+                proteoforms.add(proteoformPool.intern(proteoform));
+            }
+            return new PtmIndex(proteoforms);
+        });
     }
 
-    public ImmutableSetMultimap<String, Proteoform> getProteinsToProteoforms() {
-        return proteinsToProteoforms;
+    /**
+     * Gets the pool of the reference proteoforms, with the proteoforms of the PTM indexes made so far.
+     */
+    public ProteoformPool getProteoformPool() {
+        return proteoformPool;
     }
 
-    public ImmutableSetMultimap<Proteoform, String> getProteoformsToReactions() {
-        return proteoformsToReactions;
+    public SetMultimap<Proteoform, String> getProteoformsToReactions() {
+        return get(proteoformsToReactions, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<String, String> getProteinsToReactions() {
-        return proteinsToReactions;
+    public MappedSetMultimap<String, String> getProteinsToReactions() {
+        return get(proteinsToReactions, EMPTY_TABLE);
     }
 
-    public ImmutableSetMultimap<String, String> getReactionsToPathways() {
-        return reactionsToPathways;
+    public MappedSetMultimap<String, String> getReactionsToPathways() {
+        return get(reactionsToPathways, EMPTY_TABLE);
     }
 
-    public ImmutableSetMultimap<String, String> getPathwaysToTopLevelPathways() {
-        return pathwaysToTopLevelPathways;
+    public MappedSetMultimap<String, String> getPathwaysToTopLevelPathways() {
+        return get(pathwaysToTopLevelPathways, EMPTY_TABLE);
     }
 
-    public ImmutableSetMultimap<String, String> getProteinsToComplexes() {
-        return proteinsToComplexes;
+    public SetMultimap<String, String> getProteinsToComplexes() {
+        return get(proteinsToComplexes, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<String, String> getComplexesToProteins() {
-        return complexesToProteins;
+    public SetMultimap<String, String> getComplexesToProteins() {
+        return get(complexesToProteins, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<String, String> getSetsToProteins() {
-        return setsToProteins;
+    public SetMultimap<String, String> getSetsToProteins() {
+        return get(setsToProteins, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<String, String> getProteinsToSets() {
-        return proteinsToSets;
+    public SetMultimap<String, String> getProteinsToSets() {
+        return get(proteinsToSets, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<Proteoform, String> getProteoformsToComplexes() {
-        return proteoformsToComplexes;
+    public SetMultimap<Proteoform, String> getProteoformsToComplexes() {
+        return get(proteoformsToComplexes, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<String, Proteoform> getComplexesToProteoforms() {
-        return complexesToProteoforms;
+    public SetMultimap<String, Proteoform> getComplexesToProteoforms() {
+        return get(complexesToProteoforms, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<String, Proteoform> getSetsToProteoforms() {
-        return setsToProteoforms;
+    public SetMultimap<String, Proteoform> getSetsToProteoforms() {
+        return get(setsToProteoforms, ImmutableSetMultimap.of());
     }
 
-    public ImmutableSetMultimap<Proteoform, String> getProteoformsToSets() {
-        return proteoformsToSets;
+    public SetMultimap<Proteoform, String> getProteoformsToSets() {
+        return get(proteoformsToSets, ImmutableSetMultimap.of());
     }
 
     public TreeMultimap<String, String> getProteinsToGenes() {
@@ -113,6 +169,9 @@ public class Mapping {
     }
 
     public void load(InputType inputType, boolean showTopLevelPathways, String mapping_path) throws FileNotFoundException {
+        if (store == null && MappingStore.isStore(mapping_path)) {
+            store = MappingStore.open(mapping_path);
+        }
         switch (inputType) {
             case GENE:
                 loadMapsForGenes(mapping_path);
@@ -143,80 +202,243 @@ public class Mapping {
                 break;
         }
 
-        if (showTopLevelPathways) {
-            pathwaysToTopLevelPathways = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "pathwaysToTopLevelPathways.gz");
+        if (showTopLevelPathways && pathwaysToTopLevelPathways == null) {
+            pathwaysToTopLevelPathways = submit(mapping_path, "pathwaysToTopLevelPathways",
+                    () -> getSetMultimap(mapping_path, "pathwaysToTopLevelPathways"));
         }
     }
 
+    /**
+     * Waits until all the tables submitted by the load methods are ready.
+     */
+    public void awaitLoaded() {
+        for (Future<?> table : loading) {
+            Futures.getUnchecked(table);
+        }
+    }
+
+    private static <T> T get(Future<T> table, T empty) {
+        return table == null ? empty : Futures.getUnchecked(table);
+    }
+
+    /**
+     * Starts loading a table on the loader threads. Only checks here that the table exists, so that a missing file is
+     * still reported by the load methods.
+     */
+    private <T> Future<T> submit(String mapping_path, String name, Callable<T> loader) throws FileNotFoundException {
+        Future<T> table;
+        if (store != null) {
+            // The tables of the store are memory mapped, so opening them does not decode anything
+            try {
+                table = Futures.immediateFuture(loader.call());
+            } catch (FileNotFoundException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not open the table: " + name, e);
+            }
+        } else {
+            if (!exists(mapping_path, name + ".gz") && !ShardedSetMultimap.exists(mapping_path, name)) {
+                openFile(mapping_path, name + ".gz");   // Throws the exception with the location of the file
+            }
+            table = LOADER.submit(loader);
+        }
+        loading.add(table);
+        return table;
+    }
+
     private void loadMapsBasic(String mapping_path) throws FileNotFoundException {
-        if (reactions.size() == 0) {
-            reactions = (ImmutableMap<String, Reaction>) getSerializedObject(mapping_path, "reactions.gz");
+        if (reactions == null) {
+            reactions = submit(mapping_path, "reactions", () -> getReactions(mapping_path));
         }
-        if (pathways.size() == 0) {
-            pathways = (ImmutableMap<String, Pathway>) getSerializedObject(mapping_path, "pathways.gz");
+        if (pathways == null) {
+            pathways = submit(mapping_path, "pathways", () -> getPathways(mapping_path));
         }
-        if (reactionsToPathways.size() == 0) {
-            reactionsToPathways = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "reactionsToPathways.gz");
+        if (reactionsToPathways == null) {
+            reactionsToPathways = submit(mapping_path, "reactionsToPathways", () -> getSetMultimap(mapping_path, "reactionsToPathways"));
         }
     }
 
     private void loadMapsForGenes(String mapping_path) throws FileNotFoundException {
-        if (genesToProteins.size() == 0) {
-            genesToProteins = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "genesToProteins.gz");
+        if (genesToProteins == null) {
+            genesToProteins = submit(mapping_path, "genesToProteins", () -> getSetMultimap(mapping_path, "genesToProteins"));
         }
         loadMapsForUniprot(mapping_path);   // reactions, pathways, proteinsToReactions, reactionsToPathways
     }
 
     private void loadMapsForUniprot(String mapping_path) throws FileNotFoundException {
         loadMapsBasic(mapping_path);
-        if (proteinsToNames.size() == 0) {
-            proteinsToNames = (ImmutableMap<String, String>) getSerializedObject(mapping_path, "proteinsToNames.gz");
+        if (proteinsToNames == null) {
+            proteinsToNames = submit(mapping_path, "proteinsToNames", () -> getMap(mapping_path, "proteinsToNames"));
         }
-        if (proteinsToReactions.size() == 0) {
-            proteinsToReactions = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "proteinsToReactions.gz");
+        if (proteinsToReactions == null) {
+            proteinsToReactions = submit(mapping_path, "proteinsToReactions", () -> getSetMultimap(mapping_path, "proteinsToReactions"));
+        }
+        if (proteinsToPathways == null) {
+            proteinsToPathways = submitClosure(mapping_path, PathwayClosure.PROTEINS_FILE_NAME);
         }
     }
 
+    /**
+     * Starts reading a closure of the entities to pathways when the mapping has its file. The top level pathways are
+     * loaded too, as the closure refers to them, or is built with them when the mapping does not have the file.
+     *
+     * @return The closure being read, or null if the mapping does not have the file
+     */
+    private Future<PathwayClosure> submitClosure(String mapping_path, String fileName) throws FileNotFoundException {
+        if (pathwaysToTopLevelPathways == null) {
+            pathwaysToTopLevelPathways = submit(mapping_path, "pathwaysToTopLevelPathways",
+                    () -> getSetMultimap(mapping_path, "pathwaysToTopLevelPathways"));
+        }
+        if (!exists(mapping_path, fileName)) {
+            return null;
+        }
+        Future<PathwayClosure> closure = LOADER.submit(() -> PathwayClosure.read(openFile(mapping_path, fileName)));
+        loading.add(closure);
+        return closure;
+    }
+
+    /**
+     * Gets the closure of the proteins to the reactions, pathways and top level pathways, with the identifiers of the
+     * tables of the mapping. It is read from its file when the mapping has one, otherwise it is built once from the
+     * tables of the proteins.
+     */
+    public synchronized PathwayClosure getProteinClosure() {
+        if (proteinClosure == null) {
+            PathwayClosure closure = proteinsToPathways != null ? Futures.getUnchecked(proteinsToPathways)
+                    : PathwayClosure.build(getProteinsToReactions(), MappingStore.STRING, getReactionsToPathways(), getPathwaysToTopLevelPathways());
+            proteinClosure = closure.withMapping(this);
+        }
+        return proteinClosure;
+    }
+
+    /**
+     * Gets the closure of the proteoforms to the reactions, pathways and top level pathways, with the identifiers of
+     * the tables of the mapping. It is read from its file when the mapping has one, otherwise it is built once from the
+     * tables of the proteoforms.
+     */
+    public synchronized PathwayClosure getProteoformClosure() {
+        if (proteoformClosure == null) {
+            PathwayClosure closure = proteoformsToPathways != null ? Futures.getUnchecked(proteoformsToPathways)
+                    : PathwayClosure.build(getProteoformsToReactions(), MappingStore.PROTEOFORM, getReactionsToPathways(), getPathwaysToTopLevelPathways());
+            proteoformClosure = closure.withMapping(this);
+        }
+        return proteoformClosure;
+    }
+
     private void loadMapsEnsembl(String mapping_path) throws FileNotFoundException {
         loadMapsForUniprot(mapping_path);
-        if (ensemblToUniprot.size() == 0)
-            ensemblToUniprot = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "ensemblToProteins.gz");
+        if (ensemblToUniprot == null) {
+            ensemblToUniprot = submit(mapping_path, "ensemblToProteins", () -> getSetMultimap(mapping_path, "ensemblToProteins"));
+        }
     }
 
     private void loadMapsForRsids(String mapping_path) throws FileNotFoundException {
         loadMapsForUniprot(mapping_path);
     }
 
-    public ImmutableSetMultimap<String, String> getRsidsToProteins(int chromosome, String mapping_path) throws FileNotFoundException {
-        if (loadedChromosome != chromosome) {
-            System.out.println("Loading data for chromosome " + chromosome);
-            this.rsIdsToProteins = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "rsIdsToProteins" + chromosome + ".gz");
-            loadedChromosome = chromosome;
+    /**
+     * Gets the index of the rsids of all the chromosomes. It is read from its file when the mapping has one, otherwise
+     * it is built once from the tables of the chromosomes.
+     */
+    public synchronized RsidIndex getRsidIndex(String mapping_path) throws FileNotFoundException {
+        if (rsIdIndex == null) {
+            if (exists(mapping_path, RsidIndex.FILE_NAME)) {
+                try {
+                    rsIdIndex = RsidIndex.read(openFile(mapping_path, RsidIndex.FILE_NAME));
+                } catch (FileNotFoundException e) {
+                    throw e;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read the file: " + RsidIndex.FILE_NAME, e);
+                }
+            } else {
+                System.out.println("Building the index of the rsids...");
+                // The tables are read one at a time, not on the loader threads, so only one of them is in memory
+                RsidIndex.Builder builder = new RsidIndex.Builder();
+                for (int chr = 1; chr <= 22; chr++) {
+                    builder.add(chr, getSetMultimap(mapping_path, "rsIdsToProteins" + chr, MappingStore.STRING, MappingStore.STRING));
+                }
+                rsIdIndex = builder.build();
+            }
+        }
+        return rsIdIndex;
+    }
+
+    /**
+     * Gets the index of the regions of the proteins in all the chromosomes. It is read from its file when the mapping
+     * has one, otherwise it is built once from the tables of the chromosomes.
+     */
+    public synchronized RegionIndex getRegionIndex(String mapping_path) throws FileNotFoundException {
+        if (regionIndex == null) {
+            if (exists(mapping_path, RegionIndex.FILE_NAME)) {
+                try {
+                    regionIndex = RegionIndex.read(openFile(mapping_path, RegionIndex.FILE_NAME));
+                } catch (FileNotFoundException e) {
+                    throw e;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read the file: " + RegionIndex.FILE_NAME, e);
+                }
+            } else {
+                System.out.println("Building the index of the regions of the proteins...");
+                SortedMap<Integer, Future<SetMultimap<Long, String>>> tables = new TreeMap<>();
+                for (int chr = 1; chr <= 22; chr++) {
+                    String name = "chrBpToProteins" + chr;
+                    tables.put(chr, submit(mapping_path, name,
+                            () -> getSetMultimap(mapping_path, name, MappingStore.LONG, MappingStore.STRING)));
+                }
+                RegionIndex.Builder builder = new RegionIndex.Builder();
+                for (Map.Entry<Integer, Future<SetMultimap<Long, String>>> table : tables.entrySet()) {
+                    builder.add(table.getKey(), Futures.getUnchecked(table.getValue()));
+                }
+                regionIndex = builder.build();
+            }
         }
-        return rsIdsToProteins;
+        return regionIndex;
     }
 
     private void loadMapsChrBp(String mapping_path) throws FileNotFoundException {
         loadMapsForUniprot(mapping_path);
     }
 
-    public ImmutableSetMultimap<Long, String> getChrBpToProteins(int chromosome, String mapping_path) throws FileNotFoundException {
+    /**
+     * Gets the proteins of the base pairs of a chromosome, with the keys of {@link VariantTable#chrBpKey(int, long)}.
+     * Only the table of the last chromosome requested is kept.
+     */
+    public synchronized VariantTable getChrBpToProteins(int chromosome, String mapping_path) throws FileNotFoundException {
         if (loadedChromosome != chromosome) {
-            System.out.println("Loading data for chromosome " + chromosome);
-            this.chrBpToProteins = (ImmutableSetMultimap<Long, String>) getSerializedObject(mapping_path, "chrBpToProteins" + chromosome + ".gz");
+            this.chrBpToProteins = null;
+            this.chrBpToProteins = loadChrBpToProteins(chromosome, mapping_path);
             loadedChromosome = chromosome;
         }
         return chrBpToProteins;
     }
 
+    /**
+     * Loads the proteins of the base pairs of a chromosome, without keeping them in the mapping, so that the tables of
+     * several chromosomes can be loaded at the same time.
+     */
+    public VariantTable loadChrBpToProteins(int chromosome, String mapping_path) throws FileNotFoundException {
+        System.out.println("Loading data for chromosome " + chromosome);
+        VariantTable.Builder builder = new VariantTable.Builder();
+        SetMultimap<Long, String> table = getSetMultimap(mapping_path, "chrBpToProteins" + chromosome, MappingStore.LONG, MappingStore.STRING);
+        for (Map.Entry<Long, Collection<String>> bp : table.asMap().entrySet()) {
+            builder.put(VariantTable.chrBpKey(chromosome, bp.getKey()), bp.getValue());
+        }
+        return builder.build();
+    }
+
     public void loadMapsForProteoforms(String mapping_path) throws FileNotFoundException {
         loadMapsBasic(mapping_path);
-        if (proteinsToProteoforms.size() == 0) {
-            proteinsToProteoforms = (ImmutableSetMultimap<String, Proteoform>) getSerializedObject(mapping_path, "proteinsToProteoforms.gz");
+        if (proteinsToProteoforms == null) {
+            proteinsToProteoforms = submit(mapping_path, "proteinsToProteoforms",
+                    () -> getSetMultimap(mapping_path, "proteinsToProteoforms", MappingStore.STRING, MappingStore.PROTEOFORM));
         }
 
-        if (proteoformsToReactions.size() == 0) {
-            proteoformsToReactions = (ImmutableSetMultimap<Proteoform, String>) getSerializedObject(mapping_path, "proteoformsToReactions.gz");
+        if (proteoformsToReactions == null) {
+            proteoformsToReactions = submit(mapping_path, "proteoformsToReactions",
+                    () -> getSetMultimap(mapping_path, "proteoformsToReactions", MappingStore.PROTEOFORM, MappingStore.STRING));
+        }
+        if (proteoformsToPathways == null) {
+            proteoformsToPathways = submitClosure(mapping_path, PathwayClosure.PROTEOFORMS_FILE_NAME);
         }
     }
 
@@ -224,26 +446,67 @@ public class Mapping {
         loadMapsForProteoforms(mapping_path);
     }
 
+    private <K, V> SetMultimap<K, V> getSetMultimap(String mapping_path, String name, MappingStore.Codec<K> keyCodec, MappingStore.Codec<V> valueCodec) throws FileNotFoundException {
+        if (store != null) {
+            return store.getSetMultimap(name, keyCodec, valueCodec);
+        }
+        if (ShardedSetMultimap.exists(mapping_path, name)) {
+            return ShardedSetMultimap.open(mapping_path, name, keyCodec, valueCodec);
+        }
+        return (SetMultimap<K, V>) getSerializedObject(mapping_path, name + ".gz");
+    }
+
+    /**
+     * Gets a table of identifiers. The tables from the .gz files are copied to integer tables over the dictionary of the
+     * mapping, so each identifier is kept once no matter in how many tables it appears.
+     */
+    private MappedSetMultimap<String, String> getSetMultimap(String mapping_path, String name) throws FileNotFoundException {
+        if (store != null) {
+            return store.getSetMultimap(name);
+        }
+        return MappedSetMultimap.copyOf((SetMultimap<String, String>) getSerializedObject(mapping_path, name + ".gz"), ids);
+    }
+
+    /**
+     * Gets a table of identifiers that is only used for a few lookups, such as the tables of the networks. When the
+     * mapping has the table in shards, only the shards with the requested keys are decompressed.
+     */
+    private SetMultimap<String, String> getLazySetMultimap(String mapping_path, String name) throws FileNotFoundException {
+        if (store == null && ShardedSetMultimap.exists(mapping_path, name)) {
+            return ShardedSetMultimap.open(mapping_path, name, MappingStore.STRING, MappingStore.STRING);
+        }
+        return getSetMultimap(mapping_path, name);
+    }
+
+    private Map<String, String> getMap(String mapping_path, String name) throws FileNotFoundException {
+        if (store != null) {
+            return store.getMap(name);
+        }
+        if (ShardedSetMultimap.exists(mapping_path, name)) {
+            return ShardedSetMultimap.open(mapping_path, name, MappingStore.STRING, MappingStore.STRING).asSingleValueMap();
+        }
+        return (Map<String, String>) getSerializedObject(mapping_path, name + ".gz");
+    }
+
+    private Map<String, Reaction> getReactions(String mapping_path) throws FileNotFoundException {
+        if (store != null) {
+            return store.getReactions();
+        }
+        return (Map<String, Reaction>) getSerializedObject(mapping_path, "reactions.gz");
+    }
+
+    private Map<String, Pathway> getPathways(String mapping_path) throws FileNotFoundException {
+        if (store != null) {
+            return store.getPathways();
+        }
+        return (Map<String, Pathway>) getSerializedObject(mapping_path, "pathways.gz");
+    }
+
     // Empty path means use resources.
     // Non empty path means search for the serialized file in the path
     public static Object getSerializedObject(String path, String fileName) throws FileNotFoundException {
         Object obj = null;
-        InputStream inputStream;
-        if (path.length() > 0) {
-            if(!path.endsWith("/")){
-                path += "./";
-            }
-            File file = new File(path + fileName);
-            if (!file.exists()) {
-                throw new FileNotFoundException("Could not find the file: " + fileName + " at the location: " + path);
-            }
-            inputStream = new FileInputStream(file);
-        } else {
-            if(ClassLoader.getSystemResource(fileName) == null){
-                throw new FileNotFoundException("Could not find the file: " +  fileName + " in the jar file resources.");
-            }
-            inputStream = ClassLoader.getSystemResourceAsStream(fileName);
-        }
+        InputStream inputStream = openFile(path, fileName);
         try {
             GZIPInputStream gis = new GZIPInputStream(inputStream);
             ObjectInputStream ois = new ObjectInputStream(gis);
@@ -256,12 +519,39 @@ public class Mapping {
         return obj;
     }
 
+    /**
+     * Opens a file of the static mapping, from the path or from the resources in the jar file when the path is empty.
+     */
+    static InputStream openFile(String path, String fileName) throws FileNotFoundException {
+        if (path.length() > 0) {
+            if(!path.endsWith("/")){
+                path += "./";
+            }
+            File file = new File(path + fileName);
+            if (!file.exists()) {
+                throw new FileNotFoundException("Could not find the file: " + fileName + " at the location: " + path);
+            }
+            return new FileInputStream(file);
+        }
+        if(ClassLoader.getSystemResource(fileName) == null){
+            throw new FileNotFoundException("Could not find the file: " +  fileName + " in the jar file resources.");
+        }
+        return ClassLoader.getSystemResourceAsStream(fileName);
+    }
+
+    static boolean exists(String path, String fileName) {
+        if (path.length() > 0) {
+            return new File(path.endsWith("/") ? path : path + "./", fileName).exists();
+        }
+        return ClassLoader.getSystemResource(fileName) != null;
+    }
+
     public void loadMapsForGeneNetwork(String mapping_path) throws FileNotFoundException {
 
         loadMapsForGenes(mapping_path); // genesToProteins, proteinsToReactions, reactions, pathways, reactionsToPathways
 
         //proteinsToGenes
-        for (Map.Entry<String, String> entry : genesToProteins.entries()) {
+        for (Map.Entry<String, String> entry : getGenesToProteins().entries()) {
             String gene = entry.getKey();
             String protein = entry.getValue();
             proteinsToGenes.put(protein, gene);
@@ -274,20 +564,24 @@ public class Mapping {
 
         loadMapsForUniprot(mapping_path);  // proteinsToReactions, reactions, pathways, reactionsToPathways
 
-        proteinsToNames = (ImmutableMap<String, String>) getSerializedObject(mapping_path, "proteinsToNames.gz");
+        if (proteinsToNames == null) {
+            proteinsToNames = submit(mapping_path, "proteinsToNames", () -> getMap(mapping_path, "proteinsToNames"));
+        }
 
-        if (proteinsToComplexes.size() == 0) {
-            proteinsToComplexes = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "proteinsToComplexes.gz");
+        if (proteinsToComplexes == null) {
+            proteinsToComplexes = submit(mapping_path, "proteinsToComplexes",
+                    () -> getLazySetMultimap(mapping_path, "proteinsToComplexes"));
         }
-        if (complexesToProteins.size() == 0) {
-            complexesToProteins = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "complexesToProteins.gz");
+        if (complexesToProteins == null) {
+            complexesToProteins = submit(mapping_path, "complexesToProteins",
+                    () -> getLazySetMultimap(mapping_path, "complexesToProteins"));
         }
-        if (setsToProteins.size() == 0) {
-            setsToProteins = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "setsToProteins.gz");
+        if (setsToProteins == null) {
+            setsToProteins = submit(mapping_path, "setsToProteins", () -> getLazySetMultimap(mapping_path, "setsToProteins"));
         }
 
-        if (proteinsToSets.size() == 0) {
-            proteinsToSets = (ImmutableSetMultimap<String, String>) getSerializedObject(mapping_path, "proteinsToSets.gz");
+        if (proteinsToSets == null) {
+            proteinsToSets = submit(mapping_path, "proteinsToSets", () -> getLazySetMultimap(mapping_path, "proteinsToSets"));
         }
     }
 
@@ -295,19 +589,25 @@ public class Mapping {
 
         loadMapsForProteoforms(mapping_path);
 
-        proteinsToNames = (ImmutableMap<String, String>) getSerializedObject(mapping_path, "proteinsToNames.gz");
+        if (proteinsToNames == null) {
+            proteinsToNames = submit(mapping_path, "proteinsToNames", () -> getMap(mapping_path, "proteinsToNames"));
+        }
 
-        if (proteoformsToComplexes.size() == 0) {
-            proteoformsToComplexes = (ImmutableSetMultimap<Proteoform, String>) getSerializedObject(mapping_path, "proteoformsToComplexes.gz");
+        if (proteoformsToComplexes == null) {
+            proteoformsToComplexes = submit(mapping_path, "proteoformsToComplexes",
+                    () -> getSetMultimap(mapping_path, "proteoformsToComplexes", MappingStore.PROTEOFORM, MappingStore.STRING));
         }
-        if (complexesToProteoforms.size() == 0) {
-            complexesToProteoforms = (ImmutableSetMultimap<String, Proteoform>) getSerializedObject(mapping_path, "complexesToProteoforms.gz");
+        if (complexesToProteoforms == null) {
+            complexesToProteoforms = submit(mapping_path, "complexesToProteoforms",
+                    () -> getSetMultimap(mapping_path, "complexesToProteoforms", MappingStore.STRING, MappingStore.PROTEOFORM));
         }
-        if (setsToProteoforms.size() == 0) {
-            setsToProteoforms = (ImmutableSetMultimap<String, Proteoform>) getSerializedObject(mapping_path, "setsToProteoforms.gz");
+        if (setsToProteoforms == null) {
+            setsToProteoforms = submit(mapping_path, "setsToProteoforms",
+                    () -> getSetMultimap(mapping_path, "setsToProteoforms", MappingStore.STRING, MappingStore.PROTEOFORM));
         }
-        if (proteoformsToSets.size() == 0) {
-            proteoformsToSets = (ImmutableSetMultimap<Proteoform, String>) getSerializedObject(mapping_path, "proteoformsToSets.gz");
+        if (proteoformsToSets == null) {
+            proteoformsToSets = submit(mapping_path, "proteoformsToSets",
+                    () -> getSetMultimap(mapping_path, "proteoformsToSets", MappingStore.PROTEOFORM, MappingStore.STRING));
         }
     }
 }
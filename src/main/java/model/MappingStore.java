@@ -0,0 +1,461 @@
+package model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Directory with the static mapping tables in a binary format that is memory mapped and queried in place.
+ * <p>
+ * Every identifier type (proteins, reactions, pathways, proteoforms...) is a domain: a {@link StringTable} sorted
+ * with {@link StringTable#UTF8_ORDER} in the file "domain.ids". Each table is an {@link IntAdjacency} in the file
+ * "table.adj" with one row per identifier of its key domain, and targets that are identifiers of its value domain.
+ * The file {@value #INDEX_FILE} lists the tables with their key and value domains.</p>
+ * <p>
+ * Stores are created from the serialized .gz files with {@link matcher.tools.MappingConverter}.</p>
+ */
+public class MappingStore {
+
+    public static final String INDEX_FILE = "mapping.idx";
+    static final String FORMAT_VERSION = "1";
+
+    static final String REACTIONS = "reactions";
+    static final String PATHWAYS = "pathways";
+    static final String REACTION_NAMES = "reactionsToNames";
+    static final String PATHWAY_NAMES = "pathwaysToNames";
+    static final String PATHWAY_TOTALS = "pathwaysToTotals";
+    static final String REACTION_PROTEIN_PARTICIPANTS = "reactionsToProteinParticipants";
+    static final String REACTION_PROTEOFORM_PARTICIPANTS = "reactionsToProteoformParticipants";
+
+    /**
+     * Translates the keys and values of the tables to the strings stored in the domains.
+     * <p>
+     * The stored string starts with the key of the value in its domain. It can continue after a tab with details that
+     * do not take part in the equality of the values, which are only used to decode them as they were converted.</p>
+     */
+    public interface Codec<T> {
+        String encode(T value);
+
+        T decode(String value);
+
+        /**
+         * Gets the string that identifies the value in its domain. Equal values have the same key.
+         */
+        default String encodeKey(T value) {
+            return encode(value);
+        }
+    }
+
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public String encode(String value) {
+            return value;
+        }
+
+        @Override
+        public String decode(String value) {
+            return value;
+        }
+    };
+
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public String encode(Long value) {
+            return value.toString();
+        }
+
+        @Override
+        public Long decode(String value) {
+            return Long.valueOf(value);
+        }
+    };
+
+    /**
+     * Proteoforms in the SIMPLE format. The key has the PTMs sorted, so that equal proteoforms have the same key, and
+     * the PTMs in their original order follow after a tab when the order is different.
+     */
+    public static final Codec<Proteoform> PROTEOFORM = new Codec<Proteoform>() {
+        @Override
+        public String encode(Proteoform value) {
+            String key = encodeKey(value);
+            String str = ProteoformFormat.SIMPLE.getString(value);
+            return str.equals(key) ? key : key + "\t" + str;
+        }
+
+        @Override
+        public String encodeKey(Proteoform value) {
+            List<Pair<String, Long>> ptms = new ArrayList<>(value.getPtms());
+            Collections.sort(ptms);
+            StringBuilder str = new StringBuilder(value.getUniProtAccWithIsoform()).append(";");
+            for (int i = 0; i < ptms.size(); i++) {
+                if (i > 0) {
+                    str.append(",");
+                }
+                str.append(ptms.get(i).getKey()).append(":")
+                        .append(Proteoform.interpretCoordinateFromLongToString(ptms.get(i).getValue()));
+            }
+            return str.toString();
+        }
+
+        @Override
+        public Proteoform decode(String value) {
+            int tab = value.indexOf('\t');
+            Proteoform proteoform;
+            try {
+                proteoform = ProteoformFormat.SIMPLE.getProteoform(tab < 0 ? value : value.substring(0, tab));
+            } catch (ParseException e) {
+                throw new IllegalStateException("Invalid proteoform in the mapping store: " + value, e);
+            }
+            if (tab >= 0) {
+                // Parsing sorts the PTMs, so the original order is set directly
+                List<Pair<String, Long>> ptms = new ArrayList<>();
+                for (String ptm : value.substring(value.indexOf(';', tab) + 1).split(",")) {
+                    int colon = ptm.lastIndexOf(':');
+                    ptms.add(new MutablePair<>(ptm.substring(0, colon),
+                            Proteoform.interpretCoordinateFromStringToLong(ptm.substring(colon + 1))));
+                }
+                proteoform.setPtms(ptms);
+            }
+            return proteoform;
+        }
+    };
+
+    private final File directory;
+    private final Properties index;
+    private final Map<String, StringTable> domains = new HashMap<>();
+
+    private MappingStore(File directory, Properties index) {
+        this.directory = directory;
+        this.index = index;
+    }
+
+    /**
+     * Checks if the path is a directory with a mapping store.
+     */
+    public static boolean isStore(String path) {
+        return path != null && path.length() > 0 && new File(path, INDEX_FILE).isFile();
+    }
+
+    public static MappingStore open(String path) throws FileNotFoundException {
+        File directory = new File(path);
+        Properties index = new Properties();
+        try (InputStream in = new FileInputStream(new File(directory, INDEX_FILE))) {
+            index.load(in);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the mapping index at: " + path, e);
+        }
+        if (!FORMAT_VERSION.equals(index.getProperty("version"))) {
+            throw new IllegalStateException("Unsupported mapping store version " + index.getProperty("version") + " at: " + path);
+        }
+        return new MappingStore(directory, index);
+    }
+
+    public boolean contains(String table) {
+        return index.getProperty("table." + table) != null;
+    }
+
+    private synchronized StringTable getDomain(String domain) throws FileNotFoundException {
+        StringTable ids = domains.get(domain);
+        if (ids == null) {
+            ids = StringTable.read(map(domain + ".ids"));
+            domains.put(domain, ids);
+        }
+        return ids;
+    }
+
+    private IntAdjacency getAdjacency(String table) throws FileNotFoundException {
+        return IntAdjacency.read(map(table + ".adj"));
+    }
+
+    private String[] getTableDomains(String table) throws FileNotFoundException {
+        String value = index.getProperty("table." + table);
+        if (value == null) {
+            throw new FileNotFoundException("Could not find the table: " + table + " at the location: " + directory);
+        }
+        return value.split(",");
+    }
+
+    private ByteBuffer map(String fileName) throws FileNotFoundException {
+        File file = new File(directory, fileName);
+        if (!file.exists()) {
+            throw new FileNotFoundException("Could not find the file: " + fileName + " at the location: " + directory);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error mapping file: " + file, e);
+        }
+    }
+
+    public <K, V> MappedSetMultimap<K, V> getSetMultimap(String table, Codec<K> keyCodec, Codec<V> valueCodec) throws FileNotFoundException {
+        String[] tableDomains = getTableDomains(table);
+        return new MappedSetMultimap<>(getDomain(tableDomains[0]), getDomain(tableDomains[1]), getAdjacency(table), keyCodec, valueCodec);
+    }
+
+    public MappedSetMultimap<String, String> getSetMultimap(String table) throws FileNotFoundException {
+        return getSetMultimap(table, STRING, STRING);
+    }
+
+    public Map<String, String> getMap(String table) throws FileNotFoundException {
+        return getSetMultimap(table, STRING, STRING).asSingleValueMap();
+    }
+
+    /**
+     * Gets the reactions with their participants. Each reaction is decoded the first time it is requested.
+     */
+    public Map<String, Reaction> getReactions() throws FileNotFoundException {
+        final StringTable ids = getDomain(REACTIONS);
+        final Map<String, String> names = getMap(REACTION_NAMES);
+        final SetMultimap<String, String> proteinParticipants = getSetMultimap(REACTION_PROTEIN_PARTICIPANTS);
+        final SetMultimap<String, String> proteoformParticipants = getSetMultimap(REACTION_PROTEOFORM_PARTICIPANTS);
+        final Reaction[] cache = new Reaction[ids.size()];
+
+        return new AbstractMap<String, Reaction>() {
+            private Reaction decode(int id) {
+                Reaction reaction = cache[id];
+                if (reaction == null) {
+                    String stId = ids.get(id);
+                    reaction = new Reaction(stId, names.get(stId));
+                    for (String participant : proteinParticipants.get(stId)) {
+                        int tab = participant.lastIndexOf('\t');
+                        reaction.addParticipant(participant.substring(0, tab), Role.valueOf(participant.substring(tab + 1)));
+                    }
+                    for (String participant : proteoformParticipants.get(stId)) {
+                        int tab = participant.lastIndexOf('\t');
+                        reaction.addParticipant(PROTEOFORM.decode(participant.substring(0, tab)), Role.valueOf(participant.substring(tab + 1)));
+                    }
+                    cache[id] = reaction;
+                }
+                return reaction;
+            }
+
+            private int id(Object key) {
+                return key instanceof String && names.containsKey(key) ? ids.indexOf((String) key) : -1;
+            }
+
+            @Override
+            public Reaction get(Object key) {
+                int id = id(key);
+                return id < 0 ? null : decode(id);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return id(key) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return names.size();
+            }
+
+            @Override
+            public Set<Entry<String, Reaction>> entrySet() {
+                return new AbstractSet<Entry<String, Reaction>>() {
+                    @Override
+                    public Iterator<Entry<String, Reaction>> iterator() {
+                        final Iterator<String> keys = names.keySet().iterator();
+                        return new Iterator<Entry<String, Reaction>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return keys.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, Reaction> next() {
+                                String stId = keys.next();
+                                return new SimpleImmutableEntry<>(stId, decode(ids.indexOf(stId)));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return names.size();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Gets the pathways with their names and totals. The pathways are few, so they are created all at once.
+     */
+    public ImmutableMap<String, Pathway> getPathways() throws FileNotFoundException {
+        StringTable ids = getDomain(PATHWAYS);
+        Map<String, String> names = getMap(PATHWAY_NAMES);
+        IntAdjacency totals = getAdjacency(PATHWAY_TOTALS);
+        ImmutableMap.Builder<String, Pathway> builder = ImmutableMap.builder();
+        for (int id = 0; id < ids.size(); id++) {
+            String stId = ids.get(id);
+            if (!names.containsKey(stId)) {
+                continue;
+            }
+            Pathway pathway = new Pathway(stId, names.get(stId));
+            pathway.setNumEntitiesTotal(totals.get(id, 0));
+            pathway.setNumReactionsTotal(totals.get(id, 1));
+            pathway.setNumEntitiesTotalByProteoform(totals.get(id, 2));
+            builder.put(stId, pathway);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects the tables of a mapping and writes them as a mapping store.
+     */
+    public static class Writer {
+
+        private final Map<String, SortedMap<String, String>> domains = new LinkedHashMap<>();
+        private final Map<String, String[]> tableDomains = new LinkedHashMap<>();
+        private final Map<String, Map<String, List<String>>> tables = new LinkedHashMap<>();
+        private Map<String, Pathway> pathways = Collections.emptyMap();
+
+        /**
+         * Gets the strings of a domain by their key. The first string added with a key is the one stored.
+         */
+        private SortedMap<String, String> domain(String name) {
+            return domains.computeIfAbsent(name, k -> new TreeMap<>(StringTable.UTF8_ORDER));
+        }
+
+        private static <T> String add(SortedMap<String, String> domain, Codec<T> codec, T value) {
+            String key = codec.encodeKey(value);
+            if (!domain.containsKey(key)) {
+                domain.put(key, codec.encode(value));
+            }
+            return key;
+        }
+
+        /**
+         * Adds a table. The values of each key keep the iteration order of the multimap.
+         */
+        public <K, V> void addTable(String table, String keyDomain, Codec<K> keyCodec, String valueDomain, Codec<V> valueCodec,
+                                    SetMultimap<K, V> multimap) {
+            Map<String, List<String>> rows = new LinkedHashMap<>();
+            domain(keyDomain);
+            domain(valueDomain);
+            for (Map.Entry<K, V> entry : multimap.entries()) {
+                String key = add(domain(keyDomain), keyCodec, entry.getKey());
+                String value = add(domain(valueDomain), valueCodec, entry.getValue());
+                rows.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+            }
+            tableDomains.put(table, new String[]{keyDomain, valueDomain});
+            tables.put(table, rows);
+        }
+
+        public void addTable(String table, String keyDomain, String valueDomain, SetMultimap<String, String> multimap) {
+            addTable(table, keyDomain, STRING, valueDomain, STRING, multimap);
+        }
+
+        public void addMap(String table, String keyDomain, String valueDomain, Map<String, String> map) {
+            Map<String, List<String>> rows = new LinkedHashMap<>();
+            domain(keyDomain);
+            domain(valueDomain);
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                rows.put(add(domain(keyDomain), STRING, entry.getKey()),
+                        Collections.singletonList(add(domain(valueDomain), STRING, entry.getValue())));
+            }
+            tableDomains.put(table, new String[]{keyDomain, valueDomain});
+            tables.put(table, rows);
+        }
+
+        public void addReactions(Map<String, Reaction> reactions) {
+            Map<String, String> names = new LinkedHashMap<>();
+            LinkedHashMultimap<String, String> proteins = LinkedHashMultimap.create();
+            LinkedHashMultimap<String, String> proteoforms = LinkedHashMultimap.create();
+            for (Reaction reaction : reactions.values()) {
+                names.put(reaction.getStId(), reaction.getDisplayName());
+                for (Map.Entry<String, Role> entry : reaction.getProteinParticipantsWithRole().entries()) {
+                    proteins.put(reaction.getStId(), entry.getKey() + "\t" + entry.getValue().name());
+                }
+                for (Map.Entry<Proteoform, Role> entry : reaction.getProteoformParticipants().entries()) {
+                    proteoforms.put(reaction.getStId(), PROTEOFORM.encode(entry.getKey()) + "\t" + entry.getValue().name());
+                }
+            }
+            addMap(REACTION_NAMES, REACTIONS, "names", names);
+            addTable(REACTION_PROTEIN_PARTICIPANTS, REACTIONS, "proteinParticipants", proteins);
+            addTable(REACTION_PROTEOFORM_PARTICIPANTS, REACTIONS, "proteoformParticipants", proteoforms);
+        }
+
+        public void addPathways(Map<String, Pathway> pathways) {
+            Map<String, String> names = new LinkedHashMap<>();
+            for (Pathway pathway : pathways.values()) {
+                names.put(pathway.getStId(), pathway.getDisplayName());
+            }
+            addMap(PATHWAY_NAMES, PATHWAYS, "names", names);
+            this.pathways = pathways;
+        }
+
+        /**
+         * Writes the domains, the tables and the index to the directory.
+         */
+        public void write(String path) throws IOException {
+            File directory = new File(path);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create the directory: " + path);
+            }
+
+            Map<String, Map<String, Integer>> ids = new HashMap<>();
+            for (Map.Entry<String, SortedMap<String, String>> domain : domains.entrySet()) {
+                try (DataOutputStream out = open(directory, domain.getKey() + ".ids")) {
+                    StringTable.write(domain.getValue().values(), out);
+                }
+                Map<String, Integer> domainIds = new HashMap<>();
+                for (String value : domain.getValue().keySet()) {
+                    domainIds.put(value, domainIds.size());
+                }
+                ids.put(domain.getKey(), domainIds);
+            }
+
+            Properties index = new Properties();
+            index.setProperty("version", FORMAT_VERSION);
+            for (Map.Entry<String, Map<String, List<String>>> table : tables.entrySet()) {
+                String[] tableDomain = tableDomains.get(table.getKey());
+                Map<String, Integer> keyIds = ids.get(tableDomain[0]);
+                Map<String, Integer> valueIds = ids.get(tableDomain[1]);
+                List<int[]> rows = new ArrayList<>(domains.get(tableDomain[0]).size());
+                for (String key : domains.get(tableDomain[0]).keySet()) {
+                    List<String> values = table.getValue().getOrDefault(key, Collections.emptyList());
+                    int[] row = new int[values.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = valueIds.get(values.get(i));
+                    }
+                    rows.add(row);
+                }
+                try (DataOutputStream out = open(directory, table.getKey() + ".adj")) {
+                    IntAdjacency.write(rows, out);
+                }
+                index.setProperty("table." + table.getKey(), tableDomain[0] + "," + tableDomain[1]);
+            }
+
+            if (domains.containsKey(PATHWAYS)) {
+                List<int[]> rows = new ArrayList<>(domains.get(PATHWAYS).size());
+                for (String stId : domains.get(PATHWAYS).keySet()) {
+                    Pathway pathway = pathways.get(stId);
+                    rows.add(pathway == null ? new int[]{0, 0, 0} : new int[]{pathway.getNumEntitiesTotal(),
+                            pathway.getNumReactionsTotal(), pathway.getNumEntitiesTotalByProteoform()});
+                }
+                try (DataOutputStream out = open(directory, PATHWAY_TOTALS + ".adj")) {
+                    IntAdjacency.write(rows, out);
+                }
+            }
+
+            try (OutputStream out = new FileOutputStream(new File(directory, INDEX_FILE))) {
+                index.store(out, "PathwayMatcher mapping store");
+            }
+        }
+
+        private static DataOutputStream open(File directory, String fileName) throws FileNotFoundException {
+            return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, fileName)), 1 << 16));
+        }
+    }
+}
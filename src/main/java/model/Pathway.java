@@ -14,6 +14,8 @@ import java.util.TreeSet;
  */
 public class Pathway implements Comparable<Pathway>, Serializable {
 
+    private static final long serialVersionUID = -5101962507595708920L; // Keeps the serialized mapping files readable
+
     // Inherent attributes of a pathway
     // These are filled in the Search stage
     private String stId;
@@ -49,6 +51,19 @@ public class Pathway implements Comparable<Pathway>, Serializable {
         entitiesFDR = 1;
     }
 
+    /**
+     * Create a new instance with the inherent attributes of the pathway, without the search and analysis results.
+     *
+     * @param pathway The pathway to copy
+     */
+    public Pathway(Pathway pathway) {
+        this(pathway.stId, pathway.displayName);
+        this.topLevelPathwaySet = pathway.topLevelPathwaySet;
+        this.numEntitiesTotal = pathway.numEntitiesTotal;
+        this.numEntitiesTotalByProteoform = pathway.numEntitiesTotalByProteoform;
+        this.numReactionsTotal = pathway.numReactionsTotal;
+    }
+
     public String getStId() {
         return stId;
     }
@@ -0,0 +1,316 @@
+package model;
+
+import com.google.common.collect.SetMultimap;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Closure of the entities of a mapping to the reactions, pathways and top level pathways they are found in, so that a
+ * search expands each entity with one lookup instead of walking the tables of reactions and pathways for each hit.
+ * <p>
+ * Each entity has a list of rows of reaction, pathway and top level pathway, in the order of the tables it is built
+ * from: the reactions of the entity, the pathways of each reaction and the top level pathways of each pathway. A
+ * pathway without top level pathways has one row without top level pathway. The entities are found by the keys of
+ * their codec, so equal proteoforms find the same rows.</p>
+ * <p>
+ * The closures are stored in the files {@value #PROTEINS_FILE_NAME} and {@value #PROTEOFORMS_FILE_NAME}, next to the
+ * serialized .gz files or in a mapping store. When a file is not there, the mapping builds the closure from its tables
+ * the first time it is used. A closure is used through {@link #withMapping(Mapping)}, which translates its reactions
+ * and pathways to the identifiers of the tables of the mapping.</p>
+ */
+public class PathwayClosure {
+
+    public static final String PROTEINS_FILE_NAME = "proteinsToPathways.idx";
+    public static final String PROTEOFORMS_FILE_NAME = "proteoformsToPathways.idx";
+    static final int FORMAT_VERSION = 1;
+
+    private final Map<String, Integer> keys;
+    private final int[] offsets;    // Start of the rows of each key, with one more offset for the end
+    private final int[] reactions;  // Index of the reaction of each row in the reaction names
+    private final int[] pathways;
+    private final int[] topLevelPathways;   // -1 for the rows without top level pathway
+    private final String[] reactionNames;
+    private final String[] pathwayNames;
+
+    // Set in the closures returned by withMapping
+    private int[] reactionIds;
+    private int[] pathwayIds;
+    private int[] topLevelPathwayIds;
+    private Pathway[] pathwayValues;
+
+    private PathwayClosure(Map<String, Integer> keys, int[] offsets, int[] reactions, int[] pathways, int[] topLevelPathways,
+                           String[] reactionNames, String[] pathwayNames) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.reactions = reactions;
+        this.pathways = pathways;
+        this.topLevelPathways = topLevelPathways;
+        this.reactionNames = reactionNames;
+        this.pathwayNames = pathwayNames;
+    }
+
+    /**
+     * Builds the closure of the entities of a table to reactions.
+     *
+     * @param entitiesToReactions        Reaction stIds of each entity
+     * @param codec                      Codec of the entities, which gives their keys
+     * @param reactionsToPathways        Pathway stIds of each reaction
+     * @param pathwaysToTopLevelPathways Top level pathway stIds of each pathway
+     */
+    public static <K> PathwayClosure build(SetMultimap<K, String> entitiesToReactions, MappingStore.Codec<K> codec,
+                                           SetMultimap<String, String> reactionsToPathways,
+                                           SetMultimap<String, String> pathwaysToTopLevelPathways) {
+        Map<String, Integer> keys = new HashMap<>();
+        Map<String, Integer> reactionIndexes = new HashMap<>();
+        Map<String, Integer> pathwayIndexes = new HashMap<>();
+        List<String> reactionNames = new ArrayList<>();
+        List<String> pathwayNames = new ArrayList<>();
+        IntList offsets = new IntList();
+        IntList reactions = new IntList();
+        IntList pathways = new IntList();
+        IntList topLevelPathways = new IntList();
+
+        offsets.add(0);
+        for (Map.Entry<K, Collection<String>> entity : entitiesToReactions.asMap().entrySet()) {
+            int start = reactions.size();
+            for (String reaction : entity.getValue()) {
+                int reactionIndex = getIndex(reaction, reactionIndexes, reactionNames);
+                for (String pathway : reactionsToPathways.get(reaction)) {
+                    int pathwayIndex = getIndex(pathway, pathwayIndexes, pathwayNames);
+                    Set<String> topLevel = pathwaysToTopLevelPathways.get(pathway);
+                    if (topLevel.isEmpty()) {
+                        reactions.add(reactionIndex);
+                        pathways.add(pathwayIndex);
+                        topLevelPathways.add(-1);
+                    }
+                    for (String topLevelPathway : topLevel) {
+                        reactions.add(reactionIndex);
+                        pathways.add(pathwayIndex);
+                        topLevelPathways.add(getIndex(topLevelPathway, pathwayIndexes, pathwayNames));
+                    }
+                }
+            }
+            if (reactions.size() > start) {
+                keys.put(codec.encodeKey(entity.getKey()), keys.size());
+                offsets.add(reactions.size());
+            }
+        }
+        return new PathwayClosure(keys, offsets.toArray(), reactions.toArray(), pathways.toArray(), topLevelPathways.toArray(),
+                reactionNames.toArray(new String[0]), pathwayNames.toArray(new String[0]));
+    }
+
+    private static int getIndex(String name, Map<String, Integer> indexes, List<String> names) {
+        Integer index = indexes.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            indexes.put(name, index);
+        }
+        return index;
+    }
+
+    public static PathwayClosure read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported version " + version + " of the pathway closure.");
+            }
+            String[] reactionNames = readStrings(in);
+            String[] pathwayNames = readStrings(in);
+            int keyCount = in.readInt();
+            Map<String, Integer> keys = new HashMap<>(keyCount * 2);
+            int[] offsets = new int[keyCount + 1];
+            for (int k = 0; k < keyCount; k++) {
+                keys.put(in.readUTF(), k);
+                offsets[k + 1] = in.readInt();
+            }
+            int rows = offsets[keyCount];
+            int[] reactions = new int[rows];
+            int[] pathways = new int[rows];
+            int[] topLevelPathways = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                reactions[r] = in.readInt();
+                pathways[r] = in.readInt();
+                topLevelPathways[r] = in.readInt();
+            }
+            return new PathwayClosure(keys, offsets, reactions, pathways, topLevelPathways, reactionNames, pathwayNames);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
+
+    /**
+     * Writes the closure to a file in the directory.
+     *
+     * @param fileName {@value #PROTEINS_FILE_NAME} or {@value #PROTEOFORMS_FILE_NAME}
+     */
+    public void write(String path, String fileName) throws IOException {
+        File file = new File(path, fileName);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(FORMAT_VERSION);
+            writeStrings(out, reactionNames);
+            writeStrings(out, pathwayNames);
+            String[] sortedKeys = new String[keys.size()];
+            for (Map.Entry<String, Integer> key : keys.entrySet()) {
+                sortedKeys[key.getValue()] = key.getKey();
+            }
+            out.writeInt(sortedKeys.length);
+            for (int k = 0; k < sortedKeys.length; k++) {
+                out.writeUTF(sortedKeys[k]);
+                out.writeInt(offsets[k + 1]);
+            }
+            for (int r = 0; r < reactions.length; r++) {
+                out.writeInt(reactions[r]);
+                out.writeInt(pathways[r]);
+                out.writeInt(topLevelPathways[r]);
+            }
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    /**
+     * Gets a copy of the closure with the reactions and pathways of a mapping. The reactions and pathways are the
+     * identifiers of the reactionsToPathways table, and the top level pathways the identifiers of the
+     * pathwaysToTopLevelPathways table, or -1 when the mapping does not have the top level pathways.
+     *
+     * @throws IllegalStateException If a reaction or pathway of the closure is not in the mapping
+     */
+    public PathwayClosure withMapping(Mapping mapping) {
+        Identifiers reactionIdentifiers = mapping.getReactionsToPathways().getKeyIdentifiers();
+        Identifiers pathwayIdentifiers = mapping.getReactionsToPathways().getValueIdentifiers();
+        Identifiers topLevelIdentifiers = mapping.getPathwaysToTopLevelPathways().getValueIdentifiers();
+
+        PathwayClosure closure = new PathwayClosure(keys, offsets, reactions, pathways, topLevelPathways, reactionNames, pathwayNames);
+        closure.reactionIds = new int[reactionNames.length];
+        for (int i = 0; i < reactionNames.length; i++) {
+            closure.reactionIds[i] = getId(reactionIdentifiers, reactionNames[i]);
+        }
+        closure.pathwayIds = new int[pathwayNames.length];
+        closure.topLevelPathwayIds = new int[pathwayNames.length];
+        closure.pathwayValues = new Pathway[pathwayNames.length];
+        for (int i = 0; i < pathwayNames.length; i++) {
+            // The top level pathways are also in the names, but only the pathways of reactions have to be in the table
+            closure.pathwayIds[i] = pathwayIdentifiers.indexOfKey(pathwayNames[i]);
+            closure.topLevelPathwayIds[i] = topLevelIdentifiers.indexOfKey(pathwayNames[i]);
+            closure.pathwayValues[i] = mapping.getPathways().get(pathwayNames[i]);
+        }
+        for (int pathway : pathways) {
+            if (closure.pathwayIds[pathway] < 0 || closure.pathwayValues[pathway] == null) {
+                throw new IllegalStateException("The pathway " + pathwayNames[pathway] + " of the closure is not in the mapping.");
+            }
+        }
+        return closure;
+    }
+
+    private static int getId(Identifiers identifiers, String name) {
+        int id = identifiers.indexOfKey(name);
+        if (id < 0) {
+            throw new IllegalStateException("The reaction " + name + " of the closure is not in the mapping.");
+        }
+        return id;
+    }
+
+    /**
+     * Number of entities with at least one row.
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Gets the index of an entity.
+     *
+     * @param key Key of the entity in its codec
+     * @return The index, or -1 if the entity is not in any pathway
+     */
+    public int indexOf(String key) {
+        Integer index = keys.get(key);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * First row of the entity with the index.
+     */
+    public int getStart(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Row after the last row of the entity with the index.
+     */
+    public int getEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    public String getReactionStId(int row) {
+        return reactionNames[reactions[row]];
+    }
+
+    public String getPathwayStId(int row) {
+        return pathwayNames[pathways[row]];
+    }
+
+    /**
+     * @return The top level pathway stId, or null if the pathway of the row has no top level pathways
+     */
+    public String getTopLevelPathwayStId(int row) {
+        return topLevelPathways[row] < 0 ? null : pathwayNames[topLevelPathways[row]];
+    }
+
+    public int getReactionId(int row) {
+        return reactionIds[reactions[row]];
+    }
+
+    public int getPathwayId(int row) {
+        return pathwayIds[pathways[row]];
+    }
+
+    public Pathway getPathway(int row) {
+        return pathwayValues[pathways[row]];
+    }
+
+    /**
+     * @return The identifier of the top level pathway, or -1 if the pathway of the row has no top level pathways
+     */
+    public int getTopLevelPathwayId(int row) {
+        return topLevelPathways[row] < 0 ? -1 : topLevelPathwayIds[topLevelPathways[row]];
+    }
+
+    /**
+     * Growable array of ints for building the closure.
+     */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -17,6 +17,10 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     private List<Pair<String, Long>> ptms; // The list of post-translational modifications: PSI-MOD type ->
     // Sites set
     private Set<model.Snp> sourceSnpSet; // The genetic variants that lead to this proteoform
+    private transient PtmArray ptmArray; // The ptms sorted by type and site, computed when first needed
+    private transient int hash; // Hash of the content, 0 until it is computed
+    private transient ProteoformPool pool; // The pool where this is the canonical instance, null if it is not interned
+    private transient int id; // Id in the pool
     // * This structure can not take "null" as a value, then when the coordinates
     // are null they are represented as -1.
     private static final long serialVersionUID = 1L;
@@ -48,12 +52,16 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     }
 
     public void setUniProtAcc(String uniProtAcc) {
+        checkNotInterned();
         UniProtAcc = uniProtAcc;
+        hash = 0;
     }
 
     /********************/
     public void setStartCoordinate(Long startCoordinate) {
+        checkNotInterned();
         this.startCoordinate = startCoordinate == null ? -1L : startCoordinate;
+        hash = 0;
     }
 
     public Long getStartCoordinate() {
@@ -61,7 +69,9 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     }
 
     public void setStringStartCoordinate(String coordinate) {
+        checkNotInterned();
         this.startCoordinate = interpretCoordinateFromStringToLong(coordinate);
+        hash = 0;
     }
 
     public String getStringStartCoordinate() {
@@ -96,7 +106,9 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     /***************************/
 
     public void setEndCoordinate(Long endCoordinate) {
+        checkNotInterned();
         this.endCoordinate = endCoordinate == null ? -1L : endCoordinate;
+        hash = 0;
     }
 
     public Long getEndCoordinate() {
@@ -104,7 +116,9 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     }
 
     public void setStringEndCoordinate(String coordinate) {
+        checkNotInterned();
         this.endCoordinate = interpretCoordinateFromStringToLong(coordinate);
+        hash = 0;
     }
 
     public String getStringEndCoordinate() {
@@ -128,7 +142,23 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     // }
 
     public void setPtms(List<Pair<String, Long>> ptms) {
+        checkNotInterned();
         this.ptms = ptms;
+        this.ptmArray = null;
+        hash = 0;
+    }
+
+    /**
+     * Gets the ptms in the compact form used to match the proteoforms. The ptms should be changed only with
+     * {@link #setPtms(List)}, {@link #addPtm(String, Long)} and {@link #removePtm(int)} once it is used.
+     */
+    public PtmArray getPtmArray() {
+        PtmArray ptmArray = this.ptmArray;
+        if (ptmArray == null) {
+            ptmArray = PtmArray.of(ptms);
+            this.ptmArray = ptmArray;
+        }
+        return ptmArray;
     }
 
     public Set<Snp> getSourceSnpSet() {
@@ -136,6 +166,7 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     }
 
     public void setSourceSnpSet(Set<Snp> sourceSnpSet) {
+        checkNotInterned();
         this.sourceSnpSet = sourceSnpSet;
     }
 
@@ -153,16 +184,68 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
     }
 
     public void addPtm(String modType, Long coordinate) {
+        checkNotInterned();
         if (coordinate == null) {
             coordinate = -1L;
         }
         ptms.add(new MutablePair<>(modType, coordinate));
         Collections.sort(ptms);
+        ptmArray = null;
+        hash = 0;
+    }
+
+    public Pair<String, Long> removePtm(int index) {
+        checkNotInterned();
+        ptmArray = null;
+        hash = 0;
+        return ptms.remove(index);
     }
 
+    private void checkNotInterned() {
+        if (pool != null) {
+            throw new IllegalStateException("The proteoform " + UniProtAcc + " is in a pool and can not be changed.");
+        }
+    }
+
+    ProteoformPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Makes this the canonical instance of its content in a pool. The proteoform can not be changed after.
+     */
+    void setPool(ProteoformPool pool, int id) {
+        if (ptms != null) {
+            this.ptms = Collections.unmodifiableList(ptms);
+        }
+        this.pool = pool;
+        this.id = id;
+    }
+
+    /**
+     * Gets the id of this proteoform in its {@link ProteoformPool}.
+     *
+     * @return The id, or -1 if the proteoform is not in a pool
+     */
+    public int getId() {
+        return pool != null ? id : -1;
+    }
+
+    /**
+     * Hash of the accession, the coordinates and the distinct ptms, so the proteoforms of the same protein are spread
+     * in the hash tables. It is computed once and kept until the proteoform changes.
+     */
     @Override
     public int hashCode() {
-        return UniProtAcc != null ? UniProtAcc.hashCode() : 0;
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = UniProtAcc != null ? UniProtAcc.hashCode() : 0;
+            hash = 31 * hash + Objects.hashCode(startCoordinate);
+            hash = 31 * hash + Objects.hashCode(endCoordinate);
+            hash = 31 * hash + (ptms != null ? getPtmArray().hashCode() : 0);
+            this.hash = hash;
+        }
+        return hash;
     }
 
     @Override
@@ -174,6 +257,10 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
 
         Proteoform that = (Proteoform) obj;
 
+        // The proteoforms of a pool are different from each other
+        if (pool != null && pool == that.pool)
+            return id == that.id;
+
         // noinspection RedundantIfStatement
         if (UniProtAcc != null ? !UniProtAcc.equals(that.UniProtAcc) : that.UniProtAcc != null)
             return false;
@@ -184,17 +271,11 @@ public class Proteoform implements Comparable<Proteoform>, Serializable {
         if (endCoordinate != null ? !endCoordinate.equals(that.endCoordinate) : that.endCoordinate != null)
             return false;
 
-        // Verify the number of ptms is equal
-        if (ptms != null ? ptms.size() != that.getPtms().size() : that.getPtms() != null)
-            return false;
-
-        // Verify the ptms are all equal
-        for (Pair<String, Long> entry : ptms) {
-            if (!that.getPtms().contains(new MutablePair<>(entry.getKey(), entry.getValue())))
-                return false;
-        }
+        if (ptms == null || that.ptms == null)
+            return ptms == that.ptms;
 
-        return true;
+        // Verify the number of ptms is equal and the ptms are all equal
+        return getPtmArray().equals(that.getPtmArray());
     }
 
     /**
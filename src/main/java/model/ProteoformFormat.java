@@ -537,6 +537,13 @@ public enum ProteoformFormat {
 
     public abstract Proteoform getProteoform(String line, int i) throws ParseException;
 
+    /**
+     * Reads a proteoform and gets its canonical instance in a pool, so the duplicates of the input share one instance.
+     */
+    public Proteoform getProteoform(String line, int i, ProteoformPool pool) throws ParseException {
+        return pool.intern(getProteoform(line, i));
+    }
+
     /**
      * Verifies that the string completely matches the format.
      *
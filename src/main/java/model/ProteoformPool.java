@@ -0,0 +1,82 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of canonical proteoforms: each group of equal proteoforms has one shared instance in the pool, with an id that
+ * does not change. The instances of a pool can not be changed, and two of them are equal only if they have the same
+ * id, so they are compared without comparing their ptms.
+ * <p>
+ * A pool can have a parent, whose proteoforms are used before adding new ones. The {@link Mapping} keeps the pool of
+ * the reference proteoforms, and each search has a pool for its input, child of the pool of the mapping, so the input
+ * never grows the pool of the mapping.</p>
+ */
+public class ProteoformPool {
+
+    private final ProteoformPool parent;
+    private final Map<Proteoform, Proteoform> proteoforms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public ProteoformPool() {
+        this(null);
+    }
+
+    public ProteoformPool(ProteoformPool parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Gets the canonical instance of a proteoform. When the pool and its parents do not have one yet, the proteoform
+     * itself becomes the canonical instance, or a copy of it if it is already in another pool.
+     */
+    public Proteoform intern(Proteoform proteoform) {
+        Proteoform canonical = find(proteoform);
+        if (canonical != null) {
+            return canonical;
+        }
+        Proteoform added = proteoform.getPool() == null ? proteoform : copy(proteoform);
+        return proteoforms.computeIfAbsent(added, key -> {
+            key.setPool(this, nextId.getAndIncrement());
+            return key;
+        });
+    }
+
+    /**
+     * Gets the canonical instance of a proteoform in the pool or its parents.
+     *
+     * @return The instance, or null if there is not one yet
+     */
+    public Proteoform find(Proteoform proteoform) {
+        for (ProteoformPool pool = this; pool != null; pool = pool.parent) {
+            if (proteoform.getPool() == pool) {
+                return proteoform;
+            }
+            Proteoform canonical = pool.proteoforms.get(proteoform);
+            if (canonical != null) {
+                return canonical;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Number of proteoforms in the pool, without the ones of the parents.
+     */
+    public int size() {
+        return proteoforms.size();
+    }
+
+    private static Proteoform copy(Proteoform proteoform) {
+        Proteoform copy = new Proteoform(proteoform.getUniProtAccWithIsoform(), new ArrayList<>(proteoform.getPtms()));
+        copy.setStartCoordinate(proteoform.getStartCoordinate());
+        copy.setEndCoordinate(proteoform.getEndCoordinate());
+        if (proteoform.getSourceSnpSet() != null) {
+            copy.setSourceSnpSet(new HashSet<>(proteoform.getSourceSnpSet()));
+        }
+        return copy;
+    }
+}
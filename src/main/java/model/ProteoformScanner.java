@@ -0,0 +1,252 @@
+package model;
+
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the proteoforms and modified peptides of the input in one pass over each line, checking the format while
+ * reading it, instead of matching the line with a regular expression and then parsing it again.
+ * <p>
+ * Each method accepts the same lines as the regular expression of its format, and throws a {@link ParseException}
+ * for the other lines, with the position of the first character that does not follow the format as the error offset.
+ * The PSI-MOD ids are parsed as numbers and share one string for each id.</p>
+ */
+public class ProteoformScanner {
+
+    private static final int MAX_SITE_DIGITS = 11;
+    private static final String[] modIds = new String[100000];    // Strings of the PSI-MOD ids read so far
+
+    private final String line;
+    private int pos;
+    private final List<Pair<String, Long>> ptms = new ArrayList<>();   // Sorted once the line is read
+
+    private ProteoformScanner(String line) {
+        this.line = line;
+    }
+
+    /**
+     * Reads a proteoform in the simple format: the UniProt accession with an optional isoform, and after a semicolon
+     * the list of modifications as PSI-MOD id (with an optional MOD: prefix) and site, separated by commas. For
+     * example: P01308;00798:31,MOD:00798:43
+     */
+    public static Proteoform readSimple(String line) throws ParseException {
+        ProteoformScanner scanner = new ProteoformScanner(line);
+        int start = scanner.pos;
+        scanner.readUniProtAccession();
+        scanner.readIsoform();
+        String accession = line.substring(start, scanner.pos);
+        if (!scanner.atEnd()) {
+            scanner.expect(';');
+            scanner.readPtmList();
+        }
+        return scanner.getProteoform(accession);
+    }
+
+    /**
+     * Reads a modified peptide: the sequence of the peptide, and after a semicolon the list of modifications as in
+     * {@link #readSimple(String)}, with the sites in the peptide. The sequence is kept as the accession of the
+     * proteoform, as the search reads them.
+     */
+    public static Proteoform readModifiedPeptide(String line) throws ParseException {
+        ProteoformScanner scanner = new ProteoformScanner(line);
+        while (!scanner.atEnd() && isAminoAcid(scanner.peek())) {
+            scanner.pos++;
+        }
+        if (scanner.pos == 0) {
+            throw scanner.error("an amino acid");
+        }
+        String peptide = line.substring(0, scanner.pos);
+        if (!scanner.atEnd()) {
+            scanner.expect(';');
+            scanner.readPtmList();
+        }
+        return scanner.getProteoform(peptide);
+    }
+
+    private void addPtm(String mod, long site) {
+        ptms.add(new MutablePair<>(mod, site));
+    }
+
+    /**
+     * Creates the proteoform of the line with the modifications read, sorted as {@link Proteoform#addPtm(String, Long)}
+     * keeps them.
+     */
+    private Proteoform getProteoform(String accession) {
+        Collections.sort(ptms);
+        return new Proteoform(accession, ptms);
+    }
+
+    /**
+     * Reads an optional first modification and the modifications after commas until the end of the line.
+     */
+    private void readPtmList() throws ParseException {
+        if (!atEnd() && peek() != ',') {
+            readPtm();
+        }
+        while (!atEnd()) {
+            expect(',');
+            readPtm();
+        }
+    }
+
+    private void readPtm() throws ParseException {
+        if (line.startsWith("MOD:", pos)) {
+            pos += 4;
+        }
+        String mod = readModId();
+        expect(':');
+        addPtm(mod, readSite());
+    }
+
+    /**
+     * Reads a UniProt accession: a letter O, P or Q, a digit, three letters or digits and a digit, or another letter
+     * and a digit followed by one or two groups of a letter, two letters or digits and a digit.
+     */
+    private void readUniProtAccession() throws ParseException {
+        char first = atEnd() ? 0 : peek();
+        if (!(first >= 'A' && first <= 'Z')) {
+            throw error("a UniProt accession");
+        }
+        pos++;
+        expectDigit();
+        if (first == 'O' || first == 'P' || first == 'Q') {
+            for (int i = 0; i < 3; i++) {
+                if (atEnd() || !isUpperOrDigit(peek())) {
+                    throw error("a letter or a digit of the UniProt accession");
+                }
+                pos++;
+            }
+            expectDigit();
+            return;
+        }
+        readAccessionGroup();
+        // The second group is optional: the accession ends when the next character can not start it
+        if (pos + 4 <= line.length() && isAccessionGroup(pos)) {
+            pos += 4;
+        }
+    }
+
+    private void readAccessionGroup() throws ParseException {
+        if (atEnd() || !isUpper(peek())) {
+            throw error("a letter of the UniProt accession");
+        }
+        pos++;
+        for (int i = 0; i < 2; i++) {
+            if (atEnd() || !isUpperOrDigit(peek())) {
+                throw error("a letter or a digit of the UniProt accession");
+            }
+            pos++;
+        }
+        expectDigit();
+    }
+
+    private boolean isAccessionGroup(int at) {
+        return isUpper(line.charAt(at))
+                && isUpperOrDigit(line.charAt(at + 1))
+                && isUpperOrDigit(line.charAt(at + 2))
+                && isDigit(line.charAt(at + 3));
+    }
+
+    private void readIsoform() throws ParseException {
+        if (!atEnd() && peek() == '-') {
+            pos++;
+            readDigits(1, 2);
+        }
+    }
+
+    private String readModId() throws ParseException {
+        int start = pos;
+        int id = (int) readDigits(5, 5);
+        String mod = modIds[id];
+        if (mod == null) {
+            mod = line.substring(start, pos);
+            modIds[id] = mod;
+        }
+        return mod;
+    }
+
+    /**
+     * Reads a site of a modification: a number or null.
+     *
+     * @return The site, or -1 for null
+     */
+    private long readSite() throws ParseException {
+        if (atNull()) {
+            pos += 4;
+            return -1L;
+        }
+        if (atEnd() || !isDigit(peek())) {
+            throw error("a site or null");
+        }
+        return readDigits(1, MAX_SITE_DIGITS);
+    }
+
+    private boolean atNull() {
+        return line.regionMatches(true, pos, "null", 0, 4);
+    }
+
+    /**
+     * Reads a number of at least min and at most max digits. The digits after the max are left for the next read.
+     */
+    private long readDigits(int min, int max) throws ParseException {
+        long value = 0;
+        int digits = 0;
+        while (digits < max && !atEnd() && isDigit(peek())) {
+            value = value * 10 + (peek() - '0');
+            pos++;
+            digits++;
+        }
+        if (digits < min) {
+            throw error(min == max ? min + " digits" : "a digit");
+        }
+        return value;
+    }
+
+    private void expectDigit() throws ParseException {
+        if (atEnd() || !isDigit(peek())) {
+            throw error("a digit");
+        }
+        pos++;
+    }
+
+    private void expect(char c) throws ParseException {
+        if (atEnd() || peek() != c) {
+            throw error("'" + c + "'");
+        }
+        pos++;
+    }
+
+    private boolean atEnd() {
+        return pos >= line.length();
+    }
+
+    private char peek() {
+        return line.charAt(pos);
+    }
+
+    private ParseException error(String expected) {
+        String found = atEnd() ? "the end of the line" : "'" + peek() + "'";
+        return new ParseException("Expected " + expected + " at column " + (pos + 1) + " but found " + found + ".", pos);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isUpperOrDigit(char c) {
+        return isUpper(c) || isDigit(c);
+    }
+
+    private static boolean isAminoAcid(char c) {
+        return "ARNDBCEQZGHILKMFPSTWYV".indexOf(c) >= 0;
+    }
+}
@@ -0,0 +1,285 @@
+package model;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact form of the post translational modifications of a proteoform, to compare them without boxing.
+ * <p>
+ * The PSI-MOD types are interned to ints, the same for all the proteoforms, and the modifications are kept in two
+ * parallel arrays sorted by type and then by site. The unknown sites are -1 and go first in their type, so the
+ * modifications of two proteoforms are compared by walking both arrays at the same time. The sites are also kept
+ * sorted without their types, for the comparisons that ignore the types.</p>
+ */
+public final class PtmArray {
+
+    public static final long UNKNOWN_SITE = -1L;
+
+    private static final Map<String, Integer> typeIds = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextTypeId = new AtomicInteger();
+
+    public static final PtmArray EMPTY = new PtmArray(new int[0], new long[0], 0);
+
+    private final int[] types;
+    private final long[] sites;
+    private final long[] sortedSites;   // The sites sorted without their types
+    private final int hash;
+
+    private PtmArray(int[] types, long[] sites, int hash) {
+        this.types = types;
+        this.sites = sites;
+        this.hash = hash;
+        this.sortedSites = sites.clone();
+        Arrays.sort(sortedSites);
+        moveUnknownSitesFirst(sortedSites, 0, sortedSites.length);
+    }
+
+    /**
+     * Gets the int of a PSI-MOD type, the same for every call with the type.
+     */
+    public static int getTypeId(String type) {
+        return typeIds.computeIfAbsent(type, t -> nextTypeId.getAndIncrement());
+    }
+
+    /**
+     * Encodes a list of modifications. A null site is unknown, the same as -1.
+     */
+    public static PtmArray of(List<Pair<String, Long>> ptms) {
+        if (ptms.isEmpty()) {
+            return EMPTY;
+        }
+        long[] keys = new long[ptms.size()];
+        for (int i = 0; i < keys.length; i++) {
+            // The type in the high bits and the position in the low bits, to sort the positions by type
+            keys[i] = (long) getTypeId(ptms.get(i).getKey()) << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] types = new int[keys.length];
+        long[] sites = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            Long site = ptms.get((int) keys[i]).getValue();
+            types[i] = (int) (keys[i] >>> 32);
+            sites[i] = site == null ? UNKNOWN_SITE : site;
+        }
+        int hash = 0;
+        for (int start = 0, end; start < types.length; start = end) {
+            end = getGroupEnd(types, start);
+            Arrays.sort(sites, start, end);
+            moveUnknownSitesFirst(sites, start, end);
+            // The ids of the types depend on the order they were seen, so the hash uses the type names
+            int typeHash = ptms.get((int) keys[start]).getKey().hashCode();
+            for (int i = start; i < end; i++) {
+                if (i == start || sites[i] != sites[i - 1]) {
+                    hash += mix(31 * typeHash + Long.hashCode(sites[i]));
+                }
+            }
+        }
+        return new PtmArray(types, sites, hash);
+    }
+
+    /**
+     * Spreads the bits of the hash of a modification, so the sum of the hashes of different modifications rarely
+     * collides.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Moves the unknown sites of a sorted range before the others, in case of other negative sites.
+     */
+    private static void moveUnknownSitesFirst(long[] sites, int start, int end) {
+        int unknown = start;
+        for (int i = start; i < end; i++) {
+            if (sites[i] == UNKNOWN_SITE) {
+                System.arraycopy(sites, unknown, sites, unknown + 1, i - unknown);
+                sites[unknown++] = UNKNOWN_SITE;
+            }
+        }
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public boolean isEmpty() {
+        return types.length == 0;
+    }
+
+    public int getType(int ptm) {
+        return types[ptm];
+    }
+
+    public long getSite(int ptm) {
+        return sites[ptm];
+    }
+
+    /**
+     * The site of the position in the order of the sites without types.
+     */
+    public long getSortedSite(int position) {
+        return sortedSites[position];
+    }
+
+    /**
+     * Checks if each modification of this array can be matched by a modification of the other: with the same type if
+     * the types are used, and sites at most the margin away from each other. An unknown site matches any site.
+     *
+     * @param margin Maximum distance between the sites, negative is the same as 0
+     */
+    public boolean allMatchedIn(PtmArray that, long margin, boolean useTypes) {
+        margin = Math.max(margin, 0);
+        int groupStart = 0;   // Modifications of that with the type of the current modification
+        int groupEnd = useTypes ? 0 : that.size();
+        int next = 0;
+        for (int i = 0; i < size(); i++) {
+            if (useTypes && (i == 0 || types[i] != types[i - 1])) {
+                groupStart = groupEnd;
+                while (groupStart < that.size() && that.types[groupStart] < types[i]) {
+                    groupStart++;
+                }
+                groupEnd = groupStart;
+                while (groupEnd < that.size() && that.types[groupEnd] == types[i]) {
+                    groupEnd++;
+                }
+                next = groupStart;
+            }
+            if (groupStart == groupEnd) {
+                return false;
+            }
+            long site = useTypes ? sites[i] : sortedSites[i];
+            long[] thatSites = useTypes ? that.sites : that.sortedSites;
+            if (site == UNKNOWN_SITE || thatSites[groupStart] == UNKNOWN_SITE) {
+                continue;
+            }
+            // The sites increase in both arrays, so the sites of that too far below are never needed again
+            while (next < groupEnd && site - thatSites[next] > margin) {
+                next++;
+            }
+            if (next == groupEnd || thatSites[next] - site > margin) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if some modification of this array can be matched by a modification of the other, as in
+     * {@link #allMatchedIn(PtmArray, long, boolean)}.
+     */
+    public boolean anyMatchedIn(PtmArray that, long margin, boolean useTypes) {
+        margin = Math.max(margin, 0);
+        if (!useTypes) {
+            return anyMatched(sortedSites, 0, size(), that.sortedSites, 0, that.size(), margin);
+        }
+        int i = 0;
+        int j = 0;
+        while (i < size() && j < that.size()) {
+            if (types[i] != that.types[j]) {
+                if (types[i] < that.types[j]) {
+                    i = getGroupEnd(types, i);
+                } else {
+                    j = getGroupEnd(that.types, j);
+                }
+                continue;
+            }
+            int iEnd = getGroupEnd(types, i);
+            int jEnd = getGroupEnd(that.types, j);
+            if (anyMatched(sites, i, iEnd, that.sites, j, jEnd, margin)) {
+                return true;
+            }
+            i = iEnd;
+            j = jEnd;
+        }
+        return false;
+    }
+
+    private static int getGroupEnd(int[] types, int start) {
+        int end = start + 1;
+        while (end < types.length && types[end] == types[start]) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Checks if two sorted ranges of sites have a pair of sites that match, both non empty.
+     */
+    private static boolean anyMatched(long[] a, int i, int aEnd, long[] b, int j, int bEnd, long margin) {
+        if (i == aEnd || j == bEnd) {
+            return false;
+        }
+        if (a[i] == UNKNOWN_SITE || b[j] == UNKNOWN_SITE) {
+            return true;
+        }
+        while (i < aEnd && j < bEnd) {
+            if (Math.abs(a[i] - b[j]) <= margin) {
+                return true;
+            }
+            if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if both arrays have the same distinct modifications, with the same types and sites.
+     */
+    public boolean sameDistinctPtms(PtmArray that) {
+        int i = 0;
+        int j = 0;
+        while (i < size() && j < that.size()) {
+            if (types[i] != that.types[j] || sites[i] != that.sites[j]) {
+                return false;
+            }
+            i = skipRepeated(i);
+            j = that.skipRepeated(j);
+        }
+        return i == size() && j == that.size();
+    }
+
+    /**
+     * Two arrays are equal when they have the same number of modifications and the same distinct modifications, as
+     * the modifications of two equal {@link Proteoform}s.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PtmArray)) {
+            return false;
+        }
+        PtmArray that = (PtmArray) obj;
+        return size() == that.size() && hash == that.hash && sameDistinctPtms(that);
+    }
+
+    /**
+     * Hash of the distinct modifications, independent of their order and of the ids of the types.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private int skipRepeated(int ptm) {
+        int next = ptm + 1;
+        while (next < size() && types[next] == types[ptm] && sites[next] == sites[ptm]) {
+            next++;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,172 @@
+package model;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Index of the post translational modifications of the reference proteoforms of a protein, to find the proteoforms
+ * an input proteoform can match without comparing it with each of them.
+ * <p>
+ * The proteoforms are numbered in the order of the mapping, and each modification of a proteoform is a slot, numbered
+ * after the slots of the proteoforms before it. For each modification type, the sites of the slots are sorted, so the
+ * slots of the type with a site in a range are found by binary search. The slots without site match any site, so they
+ * are kept apart and always found.</p>
+ */
+public class PtmIndex {
+
+    private final Proteoform[] proteoforms;
+    private final int[] slotOffsets;    // First slot of each proteoform, with one more offset for the end
+    private final int[] slotProteoforms;    // Proteoform of each slot
+    private final Map<String, Sites> types = new HashMap<>();
+
+    /**
+     * Slots of a modification type.
+     */
+    private static class Sites {
+        private long[] sites = new long[4];   // Sorted sites
+        private int[] slots = new int[4];     // Slot of each site
+        private int size;
+        private int[] unknownSites = new int[0];  // Slots without site
+
+        void add(long site, int slot) {
+            if (site == -1L) {
+                unknownSites = Arrays.copyOf(unknownSites, unknownSites.length + 1);
+                unknownSites[unknownSites.length - 1] = slot;
+                return;
+            }
+            if (size == sites.length) {
+                sites = Arrays.copyOf(sites, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            sites[size] = site;
+            slots[size] = slot;
+            size++;
+        }
+
+        /**
+         * Sorts the sites, keeping the slots of each site in increasing order.
+         */
+        void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> sites[a] != sites[b] ? Long.compare(sites[a], sites[b]) : Integer.compare(slots[a], slots[b]));
+            long[] sortedSites = new long[size];
+            int[] sortedSlots = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedSites[i] = sites[order[i]];
+                sortedSlots[i] = slots[order[i]];
+            }
+            sites = sortedSites;
+            slots = sortedSlots;
+        }
+
+        void forEach(long site, long margin, IntConsumer consumer) {
+            for (int slot : unknownSites) {
+                consumer.accept(slot);
+            }
+            int from = 0;
+            int to = size;
+            if (site != -1L) {
+                from = lowerBound(site - margin);
+                to = margin < Long.MAX_VALUE - site ? lowerBound(site + margin + 1) : size;
+            }
+            for (int i = from; i < to; i++) {
+                consumer.accept(slots[i]);
+            }
+        }
+
+        private int lowerBound(long site) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sites[middle] < site) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * @param proteoforms Reference proteoforms of a protein, in the order of the mapping
+     */
+    public PtmIndex(Collection<Proteoform> proteoforms) {
+        this.proteoforms = proteoforms.toArray(new Proteoform[0]);
+        slotOffsets = new int[this.proteoforms.length + 1];
+        for (int p = 0; p < this.proteoforms.length; p++) {
+            slotOffsets[p + 1] = slotOffsets[p] + this.proteoforms[p].getPtms().size();
+        }
+        slotProteoforms = new int[slotOffsets[this.proteoforms.length]];
+        for (int p = 0; p < this.proteoforms.length; p++) {
+            int slot = slotOffsets[p];
+            for (Pair<String, Long> ptm : this.proteoforms[p].getPtms()) {
+                slotProteoforms[slot] = p;
+                types.computeIfAbsent(ptm.getKey(), type -> new Sites()).add(ptm.getValue() == null ? -1L : ptm.getValue(), slot);
+                slot++;
+            }
+        }
+        for (Sites sites : types.values()) {
+            sites.sort();
+        }
+    }
+
+    /**
+     * Number of reference proteoforms.
+     */
+    public int size() {
+        return proteoforms.length;
+    }
+
+    public Proteoform get(int proteoform) {
+        return proteoforms[proteoform];
+    }
+
+    /**
+     * Number of slots, the modifications of all the proteoforms.
+     */
+    public int getSlotCount() {
+        return slotProteoforms.length;
+    }
+
+    public int getFirstSlot(int proteoform) {
+        return slotOffsets[proteoform];
+    }
+
+    public int getEndSlot(int proteoform) {
+        return slotOffsets[proteoform + 1];
+    }
+
+    public int getProteoform(int slot) {
+        return slotProteoforms[slot];
+    }
+
+    /**
+     * Finds the slots of the modifications that can match a modification: with its type, and a site at most the
+     * margin away from its site. The slots without site, and all the slots when the modification has no site, are
+     * found too. The slots are found in no particular order.
+     *
+     * @param type   Modification type, or null for any type
+     * @param site   Site, or -1 when the modification has no site
+     * @param margin Maximum distance between the sites. A negative margin finds the same sites as 0.
+     */
+    public void forEachSlot(String type, long site, long margin, IntConsumer consumer) {
+        margin = Math.max(margin, 0);
+        if (type != null) {
+            Sites sites = types.get(type);
+            if (sites != null) {
+                sites.forEach(site, margin, consumer);
+            }
+            return;
+        }
+        for (Sites sites : types.values()) {
+            sites.forEach(site, margin, consumer);
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.io.Serializable;
  */
 public class Reaction implements Comparable<Reaction>, Serializable {
 
+    private static final long serialVersionUID = 2818833219052442475L; // Keeps the serialized mapping files readable
+
     private String stId;
 
     public String getStId() {
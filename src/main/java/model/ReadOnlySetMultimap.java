@@ -0,0 +1,250 @@
+package model;
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+
+import java.util.*;
+
+/**
+ * Base of the read-only multimaps that decode the mapping tables on demand. The subclasses find the values of one key
+ * and iterate the keys; the views of the multimap are built on top of that.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public abstract class ReadOnlySetMultimap<K, V> implements SetMultimap<K, V> {
+
+    /**
+     * Gets the values of a key.
+     *
+     * @return The values in the stored order, or null if the key has no values
+     */
+    protected abstract Set<V> getIfPresent(Object key);
+
+    /**
+     * Iterates the keys that have at least one value, with their values.
+     */
+    protected abstract Iterator<Map.Entry<K, Set<V>>> rowIterator();
+
+    /**
+     * Number of keys that have at least one value.
+     */
+    protected abstract int keyCount();
+
+    /**
+     * Iterates the keys that have at least one value.
+     */
+    protected Iterator<K> keyIterator() {
+        return Iterators.transform(rowIterator(), Map.Entry::getKey);
+    }
+
+    /**
+     * View of the multimap as a map for the tables that have exactly one value per key.
+     *
+     * @return Map from each key to its first value
+     */
+    public Map<K, V> asSingleValueMap() {
+        return new AbstractMap<K, V>() {
+            @Override
+            public V get(Object key) {
+                Set<V> values = getIfPresent(key);
+                return values == null ? null : values.iterator().next();
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return ReadOnlySetMultimap.this.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return keyCount();
+            }
+
+            @Override
+            public Set<Entry<K, V>> entrySet() {
+                return new AbstractSet<Entry<K, V>>() {
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return Iterators.transform(rowIterator(),
+                                row -> new SimpleImmutableEntry<>(row.getKey(), row.getValue().iterator().next()));
+                    }
+
+                    @Override
+                    public int size() {
+                        return keyCount();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getIfPresent(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return values().contains(value);
+    }
+
+    @Override
+    public boolean containsEntry(Object key, Object value) {
+        Set<V> values = getIfPresent(key);
+        return values != null && values.contains(value);
+    }
+
+    @Override
+    public Set<V> get(K key) {
+        Set<V> values = getIfPresent(key);
+        return values == null ? ImmutableSet.of() : values;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return keyIterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return keyCount();
+            }
+        };
+    }
+
+    @Override
+    public Multiset<K> keys() {
+        return ImmutableMultiset.copyOf(Iterators.transform(entries().iterator(), Map.Entry::getKey));
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return Iterators.transform(entries().iterator(), Map.Entry::getValue);
+            }
+
+            @Override
+            public int size() {
+                return ReadOnlySetMultimap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entries() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return Iterators.concat(Iterators.transform(rowIterator(), row -> Iterators.transform(row.getValue().iterator(),
+                        value -> (Map.Entry<K, V>) new AbstractMap.SimpleImmutableEntry<>(row.getKey(), value))));
+            }
+
+            @Override
+            public int size() {
+                return ReadOnlySetMultimap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Map<K, Collection<V>> asMap() {
+        return new AbstractMap<K, Collection<V>>() {
+            @Override
+            public Collection<V> get(Object key) {
+                return getIfPresent(key);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return ReadOnlySetMultimap.this.containsKey(key);
+            }
+
+            @Override
+            public Set<Entry<K, Collection<V>>> entrySet() {
+                return new AbstractSet<Entry<K, Collection<V>>>() {
+                    @Override
+                    public Iterator<Entry<K, Collection<V>>> iterator() {
+                        return Iterators.transform(rowIterator(), row -> new SimpleImmutableEntry<>(row.getKey(), row.getValue()));
+                    }
+
+                    @Override
+                    public int size() {
+                        return keyCount();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(K key, Iterable<? extends V> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(Multimap<? extends K, ? extends V> multimap) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<V> replaceValues(K key, Iterable<? extends V> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<V> removeAll(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Multimap)) return false;
+        return asMap().equals(((Multimap<?, ?>) obj).asMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return asMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
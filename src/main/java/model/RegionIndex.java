@@ -0,0 +1,242 @@
+package model;
+
+import com.google.common.collect.SetMultimap;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Index of the regions of the proteins in the chromosomes, so that a genetic variant inside the region of a protein,
+ * or near it, is mapped to the protein even when its exact base pair is not in the tables of the chromosomes.
+ * <p>
+ * The region of a protein in a chromosome goes from the first to the last base pair of the protein in the table of the
+ * chromosome. The regions are sorted by their start in arrays, with the keys of {@link VariantTable#chrBpKey(int,
+ * long)}, and the arrays are an implicit interval tree: the element in the middle of each range is the root of the
+ * range, and it keeps the largest end of the range. A query only visits the subtrees that can contain a region with
+ * the position, so it takes logarithmic time plus the number of regions found.</p>
+ * <p>
+ * The index is stored in the file {@value #FILE_NAME}, next to the serialized .gz files or in a mapping store. When the
+ * file is not there, the mapping builds the index from the chromosome tables the first time it is used.</p>
+ */
+public class RegionIndex {
+
+    public static final String FILE_NAME = "proteinRegions.idx";
+    static final int FORMAT_VERSION = 1;
+    private static final int SCAN_LEVEL = 3;    // Subtrees up to this level are scanned instead of visited
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;   // Largest end of the subtree of each element
+    private final int[] proteinIds;
+    private final String[] proteins;
+    private final int maxLevel;
+
+    private RegionIndex(long[] starts, long[] ends, int[] proteinIds, String[] proteins) {
+        this.starts = starts;
+        this.ends = ends;
+        this.proteinIds = proteinIds;
+        this.proteins = proteins;
+        this.maxEnds = new long[starts.length];
+        this.maxLevel = buildTree(ends, maxEnds);
+    }
+
+    /**
+     * Collects the regions of the proteins from the tables of the chromosomes.
+     */
+    public static class Builder {
+        private final SortedMap<Integer, Map<String, long[]>> regions = new TreeMap<>();
+
+        /**
+         * Extends the regions of the proteins of a chromosome with the base pairs of its table.
+         */
+        public Builder add(int chromosome, SetMultimap<Long, String> table) {
+            Map<String, long[]> chromosomeRegions = regions.computeIfAbsent(chromosome, chr -> new TreeMap<>());
+            for (Map.Entry<Long, String> entry : table.entries()) {
+                long[] region = chromosomeRegions.get(entry.getValue());
+                if (region == null) {
+                    chromosomeRegions.put(entry.getValue(), new long[]{entry.getKey(), entry.getKey()});
+                } else {
+                    region[0] = Math.min(region[0], entry.getKey());
+                    region[1] = Math.max(region[1], entry.getKey());
+                }
+            }
+            return this;
+        }
+
+        public RegionIndex build() {
+            List<String> proteins = new ArrayList<>();
+            Map<String, Integer> proteinIds = new HashMap<>();
+            List<long[]> all = new ArrayList<>();
+            for (Map.Entry<Integer, Map<String, long[]>> chromosome : regions.entrySet()) {
+                for (Map.Entry<String, long[]> region : chromosome.getValue().entrySet()) {
+                    Integer id = proteinIds.get(region.getKey());
+                    if (id == null) {
+                        id = proteins.size();
+                        proteins.add(region.getKey());
+                        proteinIds.put(region.getKey(), id);
+                    }
+                    int chr = chromosome.getKey();
+                    all.add(new long[]{VariantTable.chrBpKey(chr, region.getValue()[0]), VariantTable.chrBpKey(chr, region.getValue()[1]), id});
+                }
+            }
+            all.sort(Comparator.<long[]>comparingLong(r -> r[0]).thenComparingLong(r -> r[1]).thenComparingLong(r -> r[2]));
+
+            long[] starts = new long[all.size()];
+            long[] ends = new long[all.size()];
+            int[] ids = new int[all.size()];
+            for (int i = 0; i < all.size(); i++) {
+                starts[i] = all.get(i)[0];
+                ends[i] = all.get(i)[1];
+                ids[i] = (int) all.get(i)[2];
+            }
+            return new RegionIndex(starts, ends, ids, proteins.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Sets the largest end of the subtree of each element. The leaves are the elements at even positions, and the
+     * element at position i is at the level of the number of trailing ones of i.
+     *
+     * @return The level of the root
+     */
+    private static int buildTree(long[] ends, long[] maxEnds) {
+        int n = ends.length;
+        if (n == 0) {
+            return 0;
+        }
+        int lastIndex = 0;
+        long last = 0;  // Largest end of the subtree of the last element, which can be the child of a missing node
+        for (int i = 0; i < n; i += 2) {
+            lastIndex = i;
+            last = maxEnds[i] = ends[i];
+        }
+        int level = 1;
+        for (; 1L << level <= n; level++) {
+            int half = 1 << (level - 1);
+            for (int i = (half << 1) - 1; i < n; i += half << 2) {
+                long left = maxEnds[i - half];
+                long right = i + half < n ? maxEnds[i + half] : last;
+                maxEnds[i] = Math.max(ends[i], Math.max(left, right));
+            }
+            lastIndex = (lastIndex >> level & 1) == 1 ? lastIndex - half : lastIndex + half;
+            if (lastIndex < n && maxEnds[lastIndex] > last) {
+                last = maxEnds[lastIndex];
+            }
+        }
+        return level - 1;
+    }
+
+    public static RegionIndex read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported version " + version + " of the index of regions.");
+            }
+            String[] proteins = new String[in.readInt()];
+            for (int i = 0; i < proteins.length; i++) {
+                proteins[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            int[] proteinIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+                proteinIds[i] = in.readInt();
+            }
+            return new RegionIndex(starts, ends, proteinIds, proteins);
+        }
+    }
+
+    /**
+     * Writes the index to the file {@value #FILE_NAME} in the directory.
+     */
+    public void write(String path) throws IOException {
+        File file = new File(path, FILE_NAME);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(proteins.length);
+            for (String protein : proteins) {
+                out.writeUTF(protein);
+            }
+            out.writeInt(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                out.writeLong(starts[i]);
+                out.writeLong(ends[i]);
+                out.writeInt(proteinIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Number of regions.
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Gets the proteins with a region at most a number of base pairs away from a variant, in the same chromosome.
+     *
+     * @param key    Key of the variant, as {@link VariantTable#chrBpKey(int, long)}
+     * @param window Number of base pairs around the regions, 0 for the variants inside the regions
+     * @return The protein accessions, in the order of the start of their regions
+     */
+    public List<String> getProteins(long key, long window) {
+        int chr = VariantTable.getChr(key);
+        long bp = VariantTable.getBp(key);
+        long from = VariantTable.chrBpKey(chr, Math.max(bp - window, 0));
+        long to = VariantTable.chrBpKey(chr, Math.min(bp + window, VariantTable.MAX_BP));
+
+        int n = starts.length;
+        List<String> found = new ArrayList<>(0);
+        if (n == 0) {
+            return found;
+        }
+        // Stack of the subtrees to visit: position of the root, level, and whether the left child was visited
+        int[] stackIndex = new int[64];
+        int[] stackLevel = new int[64];
+        boolean[] stackLeftDone = new boolean[64];
+        int top = 0;
+        stackIndex[top] = (1 << maxLevel) - 1;
+        stackLevel[top] = maxLevel;
+        top++;
+        while (top > 0) {
+            top--;
+            int index = stackIndex[top];
+            int level = stackLevel[top];
+            boolean leftDone = stackLeftDone[top];
+            if (level <= SCAN_LEVEL) {
+                int first = index >> level << level;
+                int end = Math.min(first + (1 << (level + 1)) - 1, n);
+                for (int i = first; i < end && starts[i] <= to; i++) {
+                    if (ends[i] >= from) {
+                        found.add(proteins[proteinIds[i]]);
+                    }
+                }
+            } else if (!leftDone) {
+                int left = index - (1 << (level - 1));
+                stackLeftDone[top] = true;
+                top++;
+                if (left >= n || maxEnds[left] >= from) {
+                    stackIndex[top] = left;
+                    stackLevel[top] = level - 1;
+                    stackLeftDone[top] = false;
+                    top++;
+                }
+            } else if (index < n && starts[index] <= to) {
+                if (ends[index] >= from) {
+                    found.add(proteins[proteinIds[index]]);
+                }
+                stackIndex[top] = index + (1 << (level - 1));
+                stackLevel[top] = level - 1;
+                stackLeftDone[top] = false;
+                top++;
+            }
+        }
+        return found;
+    }
+}
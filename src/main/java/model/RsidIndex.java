@@ -0,0 +1,138 @@
+package model;
+
+import com.google.common.collect.SetMultimap;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Index of the proteins of the rsids of all the chromosomes, so that a search with rsids probes one table instead of
+ * loading the table of each chromosome.
+ * <p>
+ * The index is a {@link VariantTable} with one key for each rsid in each chromosome: the number of the rsid followed
+ * by the chromosome in the lowest bits, so the keys of an rsid are next to each other. The proteins of the entries are
+ * in the order of the chromosome tables.</p>
+ * <p>
+ * The index is stored in the file {@value #FILE_NAME}, next to the serialized .gz files or in a mapping store. When the
+ * file is not there, the mapping builds the index from the chromosome tables the first time it is used.</p>
+ */
+public class RsidIndex {
+
+    public static final String FILE_NAME = "rsIdsToProteins.idx";
+    static final int FORMAT_VERSION = 2;
+    private static final int CHR_BITS = 5;
+    private static final int MAX_DIGITS = 17;   // The number fits with the chromosome in a long
+
+    private final VariantTable table;
+
+    private RsidIndex(VariantTable table) {
+        this.table = table;
+    }
+
+    public static RsidIndex read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported version " + version + " of the rsid index.");
+            }
+            return new RsidIndex(VariantTable.read(in));
+        }
+    }
+
+    /**
+     * Writes the index to the file {@value #FILE_NAME} in the directory.
+     */
+    public void write(String path) throws IOException {
+        File file = new File(path, FILE_NAME);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(FORMAT_VERSION);
+            table.write(out);
+        }
+    }
+
+    /**
+     * Gets the number of an rsid, for example 4039 for "rs4039".
+     *
+     * @return The number, or -1 if the string is not an rsid or the number is too large
+     */
+    static long parseRsid(String rsid) {
+        if (rsid.length() < 3 || rsid.length() > MAX_DIGITS + 2 || !rsid.startsWith("rs")) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 2; i < rsid.length(); i++) {
+            char c = rsid.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static long getKey(long rsid, int chromosome) {
+        return rsid << CHR_BITS | chromosome;
+    }
+
+    /**
+     * Builds the index one chromosome at a time. The rsids and proteins of a table are copied when it is added, so the
+     * table of each chromosome can be dropped before reading the next one.
+     */
+    public static class Builder {
+        private final VariantTable.Builder table = new VariantTable.Builder();
+
+        /**
+         * Adds the table of rsids to proteins of a chromosome.
+         */
+        public Builder add(int chromosome, SetMultimap<String, String> rsIdsToProteins) {
+            for (Map.Entry<String, Collection<String>> rsid : rsIdsToProteins.asMap().entrySet()) {
+                long number = parseRsid(rsid.getKey());
+                if (number < 0) {
+                    throw new IllegalArgumentException("Invalid rsid in the table of chromosome " + chromosome + ": " + rsid.getKey());
+                }
+                table.put(getKey(number, chromosome), rsid.getValue());
+            }
+            return this;
+        }
+
+        public RsidIndex build() {
+            return new RsidIndex(table.build());
+        }
+    }
+
+    /**
+     * Number of pairs of rsid and chromosome.
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Gets the proteins of an rsid in a chromosome.
+     *
+     * @return The protein accessions, or an empty list if the rsid is not in the chromosome
+     */
+    public List<String> getProteins(String rsid, int chromosome) {
+        long number = parseRsid(rsid);
+        return number < 0 ? Collections.emptyList() : table.get(getKey(number, chromosome));
+    }
+
+    /**
+     * Gets the proteins of an rsid in all the chromosomes. The keys of an rsid are next to each other, so they are
+     * found with one search in the index.
+     *
+     * @return The protein accessions of each chromosome where the rsid is, sorted by chromosome
+     */
+    public SortedMap<Integer, List<String>> getProteins(String rsid) {
+        SortedMap<Integer, List<String>> result = new TreeMap<>();
+        long number = parseRsid(rsid);
+        if (number >= 0) {
+            for (Map.Entry<Long, List<String>> entry : table.getRange(getKey(number, 0), getKey(number, (1 << CHR_BITS) - 1)).entrySet()) {
+                result.put((int) (entry.getKey() & ((1 << CHR_BITS) - 1)), entry.getValue());
+            }
+        }
+        return result;
+    }
+}
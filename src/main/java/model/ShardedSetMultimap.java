@@ -0,0 +1,252 @@
+package model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.SetMultimap;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read-only multimap stored as a sequence of compressed shards, each with a range of the keys, that are decompressed
+ * only when a key in their range is requested.
+ * <p>
+ * The file "table.shards" has the number of keys and values of the table, and the first key of each shard. Shard i
+ * is the file "table.i.gz" with the keys of its range in order and their values. The keys and values are the strings
+ * of their {@link MappingStore.Codec}s, and the keys are sorted by their {@link MappingStore.Codec#encodeKey(Object)}.
+ * The files can be in a directory or in the resources of the jar file, like the serialized .gz files.</p>
+ * <p>
+ * Opening the multimap reads only the index, and each shard is decompressed at most once, so a search with a few
+ * proteins reads a few shards of the tables.</p>
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class ShardedSetMultimap<K, V> extends ReadOnlySetMultimap<K, V> {
+
+    public static final String INDEX_EXTENSION = ".shards";
+    static final int FORMAT_VERSION = 1;
+
+    private final String path;
+    private final String table;
+    private final MappingStore.Codec<K> keyCodec;
+    private final MappingStore.Codec<V> valueCodec;
+    private final int keyCount;
+    private final int size;
+    private final String[] firstKeys;
+    private final AtomicReferenceArray<Shard<K, V>> shards;
+
+    /**
+     * Keys of one shard, sorted, with their values.
+     */
+    private static class Shard<K, V> {
+        private final String[] keys;
+        private final List<K> decodedKeys;
+        private final List<Set<V>> values;
+
+        private Shard(String[] keys, List<K> decodedKeys, List<Set<V>> values) {
+            this.keys = keys;
+            this.decodedKeys = decodedKeys;
+            this.values = values;
+        }
+    }
+
+    private ShardedSetMultimap(String path, String table, MappingStore.Codec<K> keyCodec, MappingStore.Codec<V> valueCodec,
+                               int keyCount, int size, String[] firstKeys) {
+        this.path = path;
+        this.table = table;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.keyCount = keyCount;
+        this.size = size;
+        this.firstKeys = firstKeys;
+        this.shards = new AtomicReferenceArray<>(firstKeys.length);
+    }
+
+    /**
+     * Checks if the table is available as shards at the path, or in the resources when the path is empty.
+     */
+    public static boolean exists(String path, String table) {
+        return Mapping.exists(path, table + INDEX_EXTENSION);
+    }
+
+    /**
+     * Opens a sharded table. Reads only the index of the shards.
+     *
+     * @param path Directory with the files, or empty to use the resources
+     */
+    public static <K, V> ShardedSetMultimap<K, V> open(String path, String table, MappingStore.Codec<K> keyCodec,
+                                                       MappingStore.Codec<V> valueCodec) throws FileNotFoundException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Mapping.openFile(path, table + INDEX_EXTENSION)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported version " + version + " of the shards of the table: " + table);
+            }
+            int keyCount = in.readInt();
+            int size = in.readInt();
+            String[] firstKeys = new String[in.readInt()];
+            for (int i = 0; i < firstKeys.length; i++) {
+                firstKeys[i] = in.readUTF();
+            }
+            return new ShardedSetMultimap<>(path, table, keyCodec, valueCodec, keyCount, size, firstKeys);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the index of the table: " + table, e);
+        }
+    }
+
+    /**
+     * Writes a table as shards in the directory.
+     *
+     * @param keysPerShard Maximum number of keys in each shard
+     */
+    public static <K, V> void write(String path, String table, SetMultimap<K, V> multimap, MappingStore.Codec<K> keyCodec,
+                                    MappingStore.Codec<V> valueCodec, int keysPerShard) throws IOException {
+        TreeMap<String, String> keys = new TreeMap<>();    // Encoded key of each key
+        Map<String, List<String>> rows = new HashMap<>();
+        int size = 0;
+        for (Map.Entry<K, Collection<V>> entry : multimap.asMap().entrySet()) {
+            String key = keyCodec.encodeKey(entry.getKey());
+            List<String> values = new ArrayList<>();
+            for (V value : entry.getValue()) {
+                values.add(valueCodec.encode(value));
+            }
+            keys.put(key, keyCodec.encode(entry.getKey()));
+            rows.put(key, values);
+            size += values.size();
+        }
+
+        List<String> firstKeys = new ArrayList<>();
+        Iterator<Map.Entry<String, String>> iterator = keys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            File file = new File(path, table + "." + firstKeys.size() + ".gz");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+                List<Map.Entry<String, String>> shard = new ArrayList<>();
+                while (iterator.hasNext() && shard.size() < keysPerShard) {
+                    shard.add(iterator.next());
+                }
+                firstKeys.add(shard.get(0).getKey());
+                out.writeInt(shard.size());
+                for (Map.Entry<String, String> key : shard) {
+                    out.writeUTF(key.getValue());
+                    List<String> values = rows.get(key.getKey());
+                    out.writeInt(values.size());
+                    for (String value : values) {
+                        out.writeUTF(value);
+                    }
+                }
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(path, table + INDEX_EXTENSION))))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(rows.size());
+            out.writeInt(size);
+            out.writeInt(firstKeys.size());
+            for (String firstKey : firstKeys) {
+                out.writeUTF(firstKey);
+            }
+        }
+    }
+
+    /**
+     * Gets the part of an encoded string used to find it, see {@link MappingStore.Codec#encodeKey(Object)}.
+     */
+    private static String getKey(String encoded) {
+        int tab = encoded.indexOf('\t');
+        return tab < 0 ? encoded : encoded.substring(0, tab);
+    }
+
+    private Shard<K, V> getShard(int index) {
+        Shard<K, V> shard = shards.get(index);
+        if (shard == null) {
+            shard = readShard(index);
+            shards.set(index, shard);
+        }
+        return shard;
+    }
+
+    private Shard<K, V> readShard(int index) {
+        String fileName = table + "." + index + ".gz";
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Mapping.openFile(path, fileName))))) {
+            int count = in.readInt();
+            String[] keys = new String[count];
+            List<K> decodedKeys = new ArrayList<>(count);
+            List<Set<V>> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                keys[i] = getKey(key);
+                decodedKeys.add(keyCodec.decode(key));
+                ImmutableSet.Builder<V> builder = ImmutableSet.builder();
+                for (int j = in.readInt(); j > 0; j--) {
+                    builder.add(valueCodec.decode(in.readUTF()));
+                }
+                values.add(builder.build());
+            }
+            return new Shard<>(keys, decodedKeys, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the shard: " + fileName, e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Set<V> getIfPresent(Object key) {
+        if (key == null) {
+            return null;
+        }
+        String encoded;
+        try {
+            encoded = keyCodec.encodeKey((K) key);
+        } catch (ClassCastException e) {
+            return null;
+        }
+        // The shard is the last one that starts at or before the key
+        int index = Arrays.binarySearch(firstKeys, encoded);
+        if (index < 0) {
+            index = -index - 2;
+            if (index < 0) {
+                return null;
+            }
+        }
+        Shard<K, V> shard = getShard(index);
+        int position = Arrays.binarySearch(shard.keys, encoded);
+        return position < 0 ? null : shard.values.get(position);
+    }
+
+    @Override
+    protected Iterator<Map.Entry<K, Set<V>>> rowIterator() {
+        return Iterators.concat(new Iterator<Iterator<Map.Entry<K, Set<V>>>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < firstKeys.length;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, Set<V>>> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Shard<K, V> shard = getShard(next++);
+                Iterator<K> keys = shard.decodedKeys.iterator();
+                return Iterators.transform(shard.values.iterator(), values -> new AbstractMap.SimpleImmutableEntry<>(keys.next(), values));
+            }
+        });
+    }
+
+    @Override
+    protected int keyCount() {
+        return keyCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
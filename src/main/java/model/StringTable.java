@@ -0,0 +1,154 @@
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only table of strings stored in a (memory mapped) buffer.
+ * <p>
+ * Layout: number of strings n, n + 1 byte offsets, and the UTF-8 bytes of all the strings one after the other.
+ * The position of a string in the table is its identifier. When the strings were written sorted with
+ * {@link #UTF8_ORDER}, {@link #indexOf(String)} finds identifiers with a binary search directly over the bytes.</p>
+ */
+public final class StringTable implements Identifiers {
+
+    /**
+     * Order of the strings as unsigned UTF-8 bytes, the one used by {@link #indexOf(String)}.
+     */
+    public static final Comparator<String> UTF8_ORDER = (s1, s2) -> {
+        byte[] value = s1.getBytes(StandardCharsets.UTF_8);
+        return compare(ByteBuffer.wrap(value), 0, value.length, s2.getBytes(StandardCharsets.UTF_8));
+    };
+
+    private final int size;
+    private final IntBuffer offsets;
+    private final ByteBuffer bytes;
+
+    private StringTable(int size, IntBuffer offsets, ByteBuffer bytes) {
+        this.size = size;
+        this.offsets = offsets;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Reads a table starting at the current position of the buffer, without copying the content.
+     *
+     * @param buffer Buffer with the table, usually a memory mapped file
+     * @return The table backed by the buffer
+     */
+    public static StringTable read(ByteBuffer buffer) {
+        ByteBuffer source = buffer.duplicate();
+        int size = source.getInt();
+        IntBuffer offsets = source.slice().asIntBuffer();
+        offsets.limit(size + 1);
+        source.position(source.position() + (size + 1) * 4);
+        ByteBuffer bytes = source.slice();
+        bytes.limit(offsets.get(size));
+        return new StringTable(size, offsets, bytes);
+    }
+
+    /**
+     * Writes the strings in the given order.
+     *
+     * @param strings The strings of the table
+     * @param out     Output stream
+     */
+    public static void write(Collection<String> strings, DataOutputStream out) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        for (String s : strings) {
+            encoded.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        out.writeInt(encoded.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] e : encoded) {
+            offset += e.length;
+            out.writeInt(offset);
+        }
+        for (byte[] e : encoded) {
+            out.write(e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int id) {
+        int start = offsets.get(id);
+        int length = offsets.get(id + 1) - start;
+        byte[] value = new byte[length];
+        ByteBuffer view = bytes.duplicate();
+        view.position(start);
+        view.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the identifier of a string. Requires the table to be sorted with {@link #UTF8_ORDER}.
+     *
+     * @param value The string to look for
+     * @return The identifier of the string, or -1 if it is not in the table
+     */
+    public int indexOf(String value) {
+        return indexOf(value, false);
+    }
+
+    /**
+     * Finds the identifier of the string that starts with the key followed by a tab or the end of the string.
+     * Requires the table to be sorted with {@link #UTF8_ORDER} and the keys to be unique.
+     *
+     * @param key The part of the string before the first tab
+     * @return The identifier of the string, or -1 if it is not in the table
+     */
+    public int indexOfKey(String key) {
+        return indexOf(key, true);
+    }
+
+    private int indexOf(String value, boolean untilTab) {
+        byte[] key = value.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int start = offsets.get(mid);
+            int end = offsets.get(mid + 1);
+            if (untilTab) {
+                for (int i = start; i < end; i++) {
+                    if (bytes.get(i) == '\t') {
+                        end = i;
+                        break;
+                    }
+                }
+            }
+            int cmp = compare(bytes, start, end, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int compare(ByteBuffer buffer, int start, int end, byte[] key) {
+        int length = end - start;
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,193 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Table from genetic variants to protein accessions, with the variants as primitive long keys so that no boxed keys
+ * are created to store or probe it.
+ * <p>
+ * The keys are sorted in an array and found with a binary search. The proteins of each key are a row of identifiers
+ * of a table of protein accessions, in the order they were added. A variant at a base pair of a chromosome has the
+ * key {@link #chrBpKey(int, long)}, so the keys sort by chromosome and then by base pair.</p>
+ */
+public class VariantTable {
+
+    private static final int BP_BITS = 40;
+    public static final long MAX_BP = (1L << BP_BITS) - 1;
+
+    private final long[] keys;
+    private final int[] offsets;    // Start of the proteins of each key, with one more offset for the end
+    private final int[] values;
+    private final String[] proteins;
+
+    private VariantTable(long[] keys, int[] offsets, int[] values, String[] proteins) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.values = values;
+        this.proteins = proteins;
+    }
+
+    /**
+     * Gets the key of a base pair in a chromosome. The base pairs have at most 11 digits, so they fit in 40 bits.
+     */
+    public static long chrBpKey(int chr, long bp) {
+        return ((long) chr << BP_BITS) | bp;
+    }
+
+    public static int getChr(long key) {
+        return (int) (key >>> BP_BITS);
+    }
+
+    public static long getBp(long key) {
+        return key & MAX_BP;
+    }
+
+    /**
+     * Collects the rows of a table. The keys can be added in any order, each one once.
+     */
+    public static class Builder {
+        private final Map<String, Integer> proteinIds = new HashMap<>();
+        private final List<String> proteins = new ArrayList<>();
+        private long[] keys = new long[16];
+        private int[][] rows = new int[16][];
+        private int size;
+
+        public Builder put(long key, Collection<String> values) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            int[] row = new int[values.size()];
+            int i = 0;
+            for (String protein : values) {
+                Integer id = proteinIds.get(protein);
+                if (id == null) {
+                    id = proteins.size();
+                    proteins.add(protein);
+                    proteinIds.put(protein, id);
+                }
+                row[i++] = id;
+            }
+            keys[size] = key;
+            rows[size] = row;
+            size++;
+            return this;
+        }
+
+        public VariantTable build() {
+            long[] sortedKeys = Arrays.copyOf(keys, size);
+            Arrays.sort(sortedKeys);
+            for (int i = 1; i < size; i++) {
+                if (sortedKeys[i] == sortedKeys[i - 1]) {
+                    throw new IllegalArgumentException("The key " + sortedKeys[i] + " was added twice.");
+                }
+            }
+            // The keys are unique, so the position of each row is the position of its key
+            int[][] sortedRows = new int[size][];
+            for (int i = 0; i < size; i++) {
+                sortedRows[Arrays.binarySearch(sortedKeys, keys[i])] = rows[i];
+            }
+
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[i + 1] = offsets[i] + sortedRows[i].length;
+            }
+            int[] values = new int[offsets[size]];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(sortedRows[i], 0, values, offsets[i], sortedRows[i].length);
+            }
+            return new VariantTable(sortedKeys, offsets, values, proteins.toArray(new String[0]));
+        }
+    }
+
+    static VariantTable read(DataInputStream in) throws IOException {
+        String[] proteins = new String[in.readInt()];
+        for (int i = 0; i < proteins.length; i++) {
+            proteins[i] = in.readUTF();
+        }
+        int count = in.readInt();
+        long[] keys = new long[count];
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            keys[i] = in.readLong();
+        }
+        for (int i = 0; i <= count; i++) {
+            offsets[i] = in.readInt();
+        }
+        int[] values = new int[offsets[count]];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return new VariantTable(keys, offsets, values, proteins);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(proteins.length);
+        for (String protein : proteins) {
+            out.writeUTF(protein);
+        }
+        out.writeInt(keys.length);
+        for (long key : keys) {
+            out.writeLong(key);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Number of keys.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the proteins of a key.
+     *
+     * @return The protein accessions, or an empty list if the key is not in the table
+     */
+    public List<String> get(long key) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        return getRow(index);
+    }
+
+    /**
+     * Gets the proteins of the keys between two keys, both included, with one search in the table.
+     *
+     * @return The protein accessions of each key in the table, sorted by key
+     */
+    public SortedMap<Long, List<String>> getRange(long first, long last) {
+        SortedMap<Long, List<String>> result = new TreeMap<>();
+        int index = Arrays.binarySearch(keys, first);
+        for (index = index < 0 ? -index - 1 : index; index < keys.length && keys[index] <= last; index++) {
+            result.put(keys[index], getRow(index));
+        }
+        return result;
+    }
+
+    private List<String> getRow(int index) {
+        int start = offsets[index];
+        int end = offsets[index + 1];
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                return proteins[values[start + i]];
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+}
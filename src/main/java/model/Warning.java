@@ -1,5 +1,6 @@
 package model;
 
+import java.text.ParseException;
 import java.util.logging.Level;
 
 /**
@@ -39,4 +40,11 @@ public enum Warning {
     public static void sendWarning(Warning warning, int num){
     	System.out.println(Level.WARNING + ":" + warning.getMessage() + " " + num);
     }
+
+    /**
+     * Sends the warning for a row, with the reason from the error of the parser, which includes the column.
+     */
+    public static void sendWarning(Warning warning, int num, ParseException e){
+        System.out.println(Level.WARNING + ":" + warning.getMessage() + " " + num + " " + e.getMessage());
+    }
 }
@@ -0,0 +1,183 @@
+package matcher;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import matcher.tools.ColumnarTable;
+import model.MappingStore;
+import model.Pathway;
+import model.Reaction;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchMatcherTest {
+
+    private File directory;
+    private String mapping;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = java.nio.file.Files.createTempDirectory("batch").toFile();
+        mapping = new File(directory, "mapping").getPath();
+
+        Pathway pathway = new Pathway("R-HSA-10", "Pathway ten");
+        pathway.setNumEntitiesTotal(2);
+        pathway.setNumReactionsTotal(2);
+        pathway.setNumEntitiesTotalByProteoform(2);
+
+        MappingStore.Writer writer = new MappingStore.Writer();
+        writer.addReactions(ImmutableMap.of("R-HSA-1", new Reaction("R-HSA-1", "Reaction one"),
+                "R-HSA-2", new Reaction("R-HSA-2", "Reaction two")));
+        writer.addPathways(ImmutableMap.of("R-HSA-10", pathway));
+        writer.addMap("proteinsToNames", "proteins", "names", ImmutableMap.of("P01308", "INS", "Q9Y6K9", "NEMO"));
+        writer.addTable("proteinsToReactions", "proteins", "reactions",
+                ImmutableSetMultimap.of("P01308", "R-HSA-1", "Q9Y6K9", "R-HSA-2"));
+        writer.addTable("reactionsToPathways", "reactions", "pathways",
+                ImmutableSetMultimap.of("R-HSA-1", "R-HSA-10", "R-HSA-2", "R-HSA-10"));
+        writer.addTable("pathwaysToTopLevelPathways", "pathways", "pathways", ImmutableSetMultimap.of());
+        writer.addTable("genesToProteins", "genes", "proteins",
+                ImmutableSetMultimap.of("INS", "P01308", "IKBKG", "Q9Y6K9"));
+        writer.addTable("chrBpToProteins1", "chrBp1", MappingStore.LONG, "proteins", MappingStore.STRING,
+                ImmutableSetMultimap.of(100L, "P01308"));
+        writer.addTable("chrBpToProteins2", "chrBp2", MappingStore.LONG, "proteins", MappingStore.STRING,
+                ImmutableSetMultimap.of(200L, "Q9Y6K9"));
+        writer.write(mapping);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        Files.asCharSink(file, StandardCharsets.UTF_8).write(content);
+        return file;
+    }
+
+    private String read(String path) throws IOException {
+        return Files.asCharSource(new File(directory, path), StandardCharsets.UTF_8).read();
+    }
+
+    @Test
+    void getInputFilesTest() throws IOException {
+        File first = write("lists/b.txt", "INS\n");
+        File second = write("lists/a.txt", "IKBKG\n");
+        File manifest = write("manifest.txt", "# Clusters\nlists/b.txt\n\n" + second.getAbsolutePath() + "\n");
+
+        assertEquals(Arrays.asList(second, first), BatchMatcher.getInputFiles(new File(directory, "lists").getPath()));
+        assertEquals(Arrays.asList(first.getAbsoluteFile(), second), BatchMatcher.getInputFiles(manifest.getPath()));
+        assertThrows(IOException.class, () -> BatchMatcher.getInputFiles(new File(directory, "missing.txt").getPath()));
+    }
+
+    @Test
+    void getOutputNamesTest() {
+        List<String> names = BatchMatcher.getOutputNames(Arrays.asList(
+                new File("a/cluster1.txt"), new File("b/cluster1.txt"), new File("cluster2"), new File("a/cluster1.csv")));
+
+        assertEquals(Arrays.asList("cluster1", "cluster1_2", "cluster2", "cluster1_3"), names);
+    }
+
+    @Test
+    void matchBatchTest() throws IOException {
+        write("lists/cluster1.txt", "INS\n");
+        write("lists/cluster2.txt", "INS\nIKBKG\n");
+        String output = new File(directory, "output").getPath();
+
+        String[] args = {"match-batch", "-t", "gene", "-i", new File(directory, "lists").getPath(), "-o", output,
+                "--mapping", mapping, "--threads", "2"};
+        Main.main(args);
+        Main.MatchBatchCommand command = Main.commandLine.getSubcommands().get("match-batch").getCommand();
+
+        assertTrue(command.isWasExecuted());
+        assertEquals(0, command.getFailed());
+        String first = read("output/cluster1/search.tsv");
+        assertTrue(first.contains("INS\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten"));
+        assertFalse(first.contains("IKBKG"));
+        assertTrue(read("output/cluster1/analysis.tsv").contains("R-HSA-10\t\"Pathway ten\"\t1\t2\t0.5\t"));
+        assertTrue(read("output/cluster2/search.tsv").contains("IKBKG\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-10\tPathway ten"));
+        assertTrue(read("output/cluster2/analysis.tsv").contains("R-HSA-10\t\"Pathway ten\"\t2\t2\t1.0\t"));
+    }
+
+    @Test
+    void formatTest() throws IOException {
+        write("lists/cluster1.txt", "INS\nIKBKG\n");
+        String output = new File(directory, "output").getPath();
+
+        String[] args = {"match-batch", "-t", "gene", "-i", new File(directory, "lists").getPath(), "-o", output,
+                "--mapping", mapping, "--format", "columnar"};
+        Main.main(args);
+
+        assertFalse(new File(directory, "output/cluster1/search.tsv").exists());
+        ColumnarTable search = ColumnarTable.read(new FileInputStream(new File(directory, "output/cluster1/search.col")));
+        assertEquals(2, search.getRowCount());
+        assertEquals("IKBKG", search.get(1, search.indexOf("GENE")));
+        assertEquals(1, search.getDictionary(search.indexOf("PATHWAY_STID")).size());
+        ColumnarTable analysis = ColumnarTable.read(new FileInputStream(new File(directory, "output/cluster1/analysis.col")));
+        assertEquals(1, analysis.getRowCount());
+        assertEquals("2", analysis.get(0, analysis.indexOf("# Entities Found")));
+
+        args[args.length - 1] = "tsv_gz";
+        Main.main(args);
+        try (InputStream in = new GZIPInputStream(new FileInputStream(new File(directory, "output/cluster1/search.tsv.gz")))) {
+            String text = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+            assertTrue(text.contains("IKBKG\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-10\tPathway ten"));
+        }
+        assertTrue(new File(directory, "output/cluster1/analysis.tsv.gz").isFile());
+    }
+
+    @Test
+    void chrBpBatchTest() throws IOException {
+        for (int f = 1; f <= 4; f++) {
+            write("lists/variants" + f + ".txt", "1 100\n2 200\n2 300\n");
+        }
+        ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(outContent));
+        try {
+            BatchMatcher matcher = new BatchMatcher(model.InputType.CHRBP, mapping, false);
+            assertEquals(0, matcher.run(BatchMatcher.getInputFiles(new File(directory, "lists").getPath()),
+                    new File(directory, "output").getPath(), 4));
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        // Each file loads the tables of its chromosomes once, also when the other files need other chromosomes
+        String out = outContent.toString();
+        assertEquals(4, out.split("Loading data for chromosome 1\\R", -1).length - 1, out);
+        assertEquals(4, out.split("Loading data for chromosome 2\\R", -1).length - 1, out);
+        for (int f = 1; f <= 4; f++) {
+            String search = read("output/variants" + f + "/search.tsv");
+            assertTrue(search.contains("1\t100\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten"), search);
+            assertTrue(search.contains("2\t200\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-10\tPathway ten"), search);
+        }
+    }
+
+    @Test
+    void missingFileTest() throws IOException {
+        write("lists/cluster1.txt", "INS\n");
+        File manifest = write("manifest.txt", "lists/cluster1.txt\nlists/missing.txt\n");
+
+        BatchMatcher matcher = new BatchMatcher(model.InputType.GENE, mapping, false);
+        assertEquals(1, matcher.run(BatchMatcher.getInputFiles(manifest.getPath()), new File(directory, "output").getPath(), 1));
+        assertTrue(new File(directory, "output/cluster1/search.tsv").isFile());
+        assertFalse(new File(directory, "output/missing").exists());
+    }
+}
@@ -79,7 +79,7 @@ public class MainArgumentsTest {
     void Matcher_subcommandsRegistered_Test(TestInfo testInfo) {
         CommandLine commandLine = new CommandLine(new Main.PathwayMatcher());
         Map<String, CommandLine> commandMap = commandLine.getSubcommands();
-        assertEquals(10, commandMap.size());
+        assertEquals(12, commandMap.size());
     }
 
     @Test
@@ -89,6 +89,20 @@ public class MainArgumentsTest {
         assertTrue(commandMap.get("match-uniprot").getCommand() instanceof Main.MatchUniprotCommand, "match-uniprot");
     }
 
+    @Test
+    void Matcher_serveSubcommandRegistered_Test() {
+        CommandLine commandLine = new CommandLine(new Main.PathwayMatcher());
+        Map<String, CommandLine> commandMap = commandLine.getSubcommands();
+        assertTrue(commandMap.get("serve").getCommand() instanceof Main.ServeCommand, "serve");
+    }
+
+    @Test
+    void Matcher_matchBatchSubcommandRegistered_Test() {
+        CommandLine commandLine = new CommandLine(new Main.PathwayMatcher());
+        Map<String, CommandLine> commandMap = commandLine.getSubcommands();
+        assertTrue(commandMap.get("match-batch").getCommand() instanceof Main.MatchBatchCommand, "match-batch");
+    }
+
     @Test
     void Matcher_NoArguments_showsUsageText_test() {
         String[] args = {};
@@ -126,6 +140,52 @@ public class MainArgumentsTest {
         assertTrue(errContent.toString().startsWith("Unknown options: -i, "), "Help message was not shown.");
     }
 
+    @Test
+    void Matcher_zeroThreads_printsUsageError_Test() {
+        String[] args = {
+                "match-uniprot",
+                "-i", "src/test/resources/Proteins/Valid/singleProtein.txt",
+                "--threads", "0"};
+        Main.main(args);
+        assertTrue(errContent.toString().startsWith("Invalid value for option '--threads': '0' must be at least 1"), errContent.toString());
+        assertTrue(errContent.toString().contains("Usage: java -jar PathwayMatcher.jar match-uniprot"), "Usage message was not shown.");
+    }
+
+    @Test
+    void Matcher_zeroBatchThreads_printsUsageError_Test() {
+        String[] args = {"match-batch", "-t", "gene", "-i", "src/test/resources/Proteins/Valid", "--threads", "0"};
+        Main.main(args);
+        assertTrue(errContent.toString().startsWith("Invalid value for option '--threads': '0' must be at least 1"), errContent.toString());
+        assertTrue(errContent.toString().contains("Usage: java -jar PathwayMatcher.jar match-batch"), "Usage message was not shown.");
+    }
+
+    @Test
+    void Matcher_negativeServeWorkers_printsUsageError_Test() {
+        String[] args = {"serve", "--workers", "-1"};
+        Main.main(args);
+        assertTrue(errContent.toString().startsWith("Invalid value for option '--workers': '-1' must be at least 1"), errContent.toString());
+        assertTrue(errContent.toString().contains("Usage: java -jar PathwayMatcher.jar serve"), "Usage message was not shown.");
+    }
+
+    @Test
+    void Matcher_negativePermutations_printsUsageError_Test() {
+        String[] args = {
+                "match-uniprot",
+                "-i", "src/test/resources/Proteins/Valid/singleProtein.txt",
+                "--permutations", "-5"};
+        Main.main(args);
+        assertTrue(errContent.toString().startsWith("Invalid value for option '--permutations': '-5' must be at least 0"), errContent.toString());
+        assertTrue(errContent.toString().contains("Usage: java -jar PathwayMatcher.jar match-uniprot"), "Usage message was not shown.");
+    }
+
+    @Test
+    void Matcher_negativeBatchPermutations_printsUsageError_Test() {
+        String[] args = {"match-batch", "-t", "gene", "-i", "src/test/resources/Proteins/Valid", "--permutations", "-5"};
+        Main.main(args);
+        assertTrue(errContent.toString().startsWith("Invalid value for option '--permutations': '-5' must be at least 0"), errContent.toString());
+        assertTrue(errContent.toString().contains("Usage: java -jar PathwayMatcher.jar match-batch"), "Usage message was not shown.");
+    }
+
     @Test
     void Matcher_argumentsFirstWithHelpSecond_printsUnknownArgumentsMessage_Test() {
         String[] args = {
@@ -0,0 +1,117 @@
+package matcher;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.io.CharStreams;
+import model.MappingStore;
+import model.Pathway;
+import model.Proteoform;
+import model.Reaction;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchServerTest {
+
+    private static String path;
+    private static MatchServer server;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        path = Files.createTempDirectory("mapping").toString();
+
+        Pathway pathway = new Pathway("R-HSA-10", "Pathway ten");
+        pathway.setNumEntitiesTotal(2);
+        pathway.setNumReactionsTotal(2);
+        pathway.setNumEntitiesTotalByProteoform(2);
+
+        MappingStore.Writer writer = new MappingStore.Writer();
+        writer.addReactions(ImmutableMap.of("R-HSA-1", new Reaction("R-HSA-1", "Reaction one"),
+                "R-HSA-2", new Reaction("R-HSA-2", "Reaction two")));
+        writer.addPathways(ImmutableMap.of("R-HSA-10", pathway));
+        writer.addMap("proteinsToNames", "proteins", "names", ImmutableMap.of("P01308", "INS", "Q9Y6K9", "NEMO"));
+        writer.addTable("proteinsToReactions", "proteins", "reactions",
+                ImmutableSetMultimap.of("P01308", "R-HSA-1", "Q9Y6K9", "R-HSA-2"));
+        writer.addTable("reactionsToPathways", "reactions", "pathways",
+                ImmutableSetMultimap.of("R-HSA-1", "R-HSA-10", "R-HSA-2", "R-HSA-10"));
+        writer.addTable("pathwaysToTopLevelPathways", "pathways", "pathways", ImmutableSetMultimap.of());
+        writer.addTable("genesToProteins", "genes", "proteins", ImmutableSetMultimap.of("INS", "P01308"));
+        writer.addTable("ensemblToProteins", "ensembl", "proteins", ImmutableSetMultimap.of("ENSP00000250971", "P01308"));
+        writer.addTable("proteinsToProteoforms", "proteins", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                ImmutableSetMultimap.of("P01308", new Proteoform("P01308")));
+        writer.addTable("proteoformsToReactions", "proteoforms", MappingStore.PROTEOFORM, "reactions", MappingStore.STRING,
+                ImmutableSetMultimap.of(new Proteoform("P01308"), "R-HSA-1"));
+        writer.write(path);
+
+        server = new MatchServer(path, 0, 2);
+        server.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        server.stop();
+        FileUtils.deleteDirectory(new File(path));
+    }
+
+    private static String post(String request, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + request).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return connection.getResponseCode() + "\n" + CharStreams.toString(reader);
+        }
+    }
+
+    @Test
+    void searchUniprotTest() throws IOException {
+        String response = post("/match-uniprot?output=search", "P01308\nQ9Y6K9\n");
+        assertTrue(response.startsWith("200\n"));
+        assertTrue(response.contains("P01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten"));
+        assertTrue(response.contains("Q9Y6K9\tR-HSA-2\tReaction two\tR-HSA-10\tPathway ten"));
+    }
+
+    @Test
+    void analysisIsNotSharedBetweenRequestsTest() throws IOException {
+        String first = post("/match-uniprot?output=analysis", "P01308\n");
+        post("/match-uniprot?output=analysis", "Q9Y6K9\n");
+        String again = post("/match-uniprot?output=analysis", "P01308\n");
+
+        assertTrue(first.contains("R-HSA-10\t\"Pathway ten\"\t1\t2\t0.5\t"));
+        assertEquals(first, again);
+    }
+
+    @Test
+    void searchGenesTest() throws IOException {
+        String response = post("/match-genes?output=search", "INS\n");
+        assertTrue(response.contains("INS\tP01308\tR-HSA-1"));
+    }
+
+    @Test
+    void unknownSubcommandTest() throws IOException {
+        assertTrue(post("/match-something", "P01308\n").startsWith("404\n"));
+    }
+
+    @Test
+    void invalidOutputTest() throws IOException {
+        assertTrue(post("/match-uniprot?output=graph", "P01308\n").startsWith("400\n"));
+    }
+
+    @Test
+    void negativePermutationsTest() throws IOException {
+        String response = post("/match-uniprot?permutations=-3", "P01308\n");
+        assertTrue(response.startsWith("400\nInvalid permutations: -3"), response);
+    }
+}
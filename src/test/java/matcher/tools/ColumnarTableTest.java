@@ -0,0 +1,67 @@
+package matcher.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTableTest {
+
+    private static ColumnarTable writeRead(ColumnarTable.Writer writer, ByteArrayOutputStream bytes) throws IOException {
+        writer.close();
+        return ColumnarTable.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    void writeReadTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarTable.Writer writer = new ColumnarTable.Writer(bytes, Arrays.asList("UNIPROT", "PATHWAY_STID"));
+        writer.accept(new String[]{"P01308", "R-HSA-10"});
+        writer.accept(new String[]{"P01308", "R-HSA-20"});
+        writer.accept(new String[]{"Q9Y6K9", "R-HSA-10"});
+        ColumnarTable table = writeRead(writer, bytes);
+
+        assertEquals(Arrays.asList("UNIPROT", "PATHWAY_STID"), table.getColumnNames());
+        assertEquals(1, table.indexOf("PATHWAY_STID"));
+        assertEquals(-1, table.indexOf("REACTION_STID"));
+        assertEquals(3, table.getRowCount());
+        assertEquals("Q9Y6K9", table.get(2, 0));
+        assertEquals(Arrays.asList("R-HSA-10", "R-HSA-20"), table.getDictionary(1));
+        assertEquals(table.getCode(0, 1), table.getCode(2, 1));
+    }
+
+    @Test
+    void groupsTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarTable.Writer writer = new ColumnarTable.Writer(bytes, Arrays.asList("ROW", "PARITY", "NAME"));
+        int rows = ColumnarTable.GROUP_SIZE * 2 + 5;
+        for (int row = 0; row < rows; row++) {
+            // Values longer than 64K and not ASCII are kept
+            writer.accept(new String[]{Integer.toString(row), row % 2 == 0 ? "even" : "odd", row == rows - 1 ? new String(new char[70000]).replace('\0', '\u00e9') : "\u03b1"});
+        }
+        ColumnarTable table = writeRead(writer, bytes);
+
+        assertEquals(rows, table.getRowCount());
+        assertEquals(rows, table.getDictionary(0).size());
+        assertEquals(2, table.getDictionary(1).size());
+        for (int row = 0; row < rows; row++) {
+            assertEquals(Integer.toString(row), table.get(row, 0));
+            assertEquals(row % 2 == 0 ? "even" : "odd", table.get(row, 1));
+        }
+        assertEquals(70000, table.get(rows - 1, 2).length());
+        assertEquals("\u03b1", table.get(0, 2));
+    }
+
+    @Test
+    void invalidTest() throws IOException {
+        ColumnarTable.Writer writer = new ColumnarTable.Writer(new ByteArrayOutputStream(), Arrays.asList("UNIPROT", "PATHWAY_STID"));
+        assertThrows(IllegalArgumentException.class, () -> writer.accept(new String[]{"P01308"}));
+        writer.close();
+
+        assertThrows(IOException.class, () -> ColumnarTable.read(new ByteArrayInputStream("UNIPROT\tPATHWAY_STID".getBytes())));
+    }
+}
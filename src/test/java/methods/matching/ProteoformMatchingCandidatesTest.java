@@ -0,0 +1,68 @@
+package methods.matching;
+
+import model.MatchType;
+import model.Proteoform;
+import model.PtmIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProteoformMatchingCandidatesTest {
+
+    private static final String[] TYPES = {"00046", "00047", "00048"};
+
+    private static Proteoform randomProteoform(Random random) {
+        Proteoform proteoform = new Proteoform(random.nextInt(8) == 0 ? "P04637-2" : "P04637");
+        if (random.nextInt(4) == 0) {
+            proteoform.setStartCoordinate((long) random.nextInt(10));
+        }
+        if (random.nextInt(4) == 0) {
+            proteoform.setEndCoordinate(390L + random.nextInt(10));
+        }
+        int ptms = random.nextInt(5);
+        for (int i = 0; i < ptms; i++) {
+            proteoform.addPtm(TYPES[random.nextInt(TYPES.length)], random.nextInt(10) == 0 ? null : (long) random.nextInt(40));
+        }
+        return proteoform;
+    }
+
+    @Test
+    void candidatesTest() {
+        Random random = new Random(42);
+        int compared = 0;
+        int pairs = 0;
+        for (int test = 0; test < 200; test++) {
+            List<Proteoform> references = new ArrayList<>();
+            int size = random.nextInt(30);
+            for (int i = 0; i < size; i++) {
+                references.add(randomProteoform(random));
+            }
+            PtmIndex index = new PtmIndex(references);
+
+            for (int input = 0; input < 20; input++) {
+                Proteoform iP = random.nextInt(4) == 0 && size > 0 ? references.get(random.nextInt(size)) : randomProteoform(random);
+                Long margin = (long) random.nextInt(5) - 1;
+                for (MatchType matchType : MatchType.values()) {
+                    ProteoformMatching matcher = ProteoformMatching.getInstance(matchType);
+                    BitSet candidates = matcher.getCandidates(iP, index, margin);
+                    if (matchType == MatchType.SUBSET) {
+                        compared += candidates.cardinality();
+                        pairs += size;
+                    }
+                    for (int rP = 0; rP < size; rP++) {
+                        if (matcher.matches(iP, references.get(rP), margin)) {
+                            assertTrue(candidates.get(rP), matchType + " " + iP.toString(null) + " " + references.get(rP).toString(null) + " " + margin);
+                        }
+                    }
+                }
+            }
+        }
+        // The index leaves out most of the proteoforms
+        assertTrue(compared < pairs / 2, compared + " of " + pairs);
+    }
+}
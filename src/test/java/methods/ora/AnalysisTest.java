@@ -8,6 +8,7 @@ import model.ProteoformFormat;
 import org.junit.jupiter.api.BeforeAll;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,4 +45,22 @@ class AnalysisTest {
         assertEquals(0.001349, analysisResult.getHitPathwayByStid("R-HSA-5653656").getReactionsRatio(), 0.01);
         assertEquals(0.001199, analysisResult.getHitPathwayByStid("R-HSA-5653656").getEntitiesRatio(), 0.01);
     }
-}
\ No newline at end of file
+
+    @org.junit.jupiter.api.Test
+    void analysisEntitiesFoundTest() throws IOException {
+        List<String> input = new ArrayList<>();
+        input.add("P01308");
+        input.add("Q9Y6K9");
+        input.add("P60484");
+        SearchResult searchResult = Search.searchWithUniProt(input, mapping, true);
+        AnalysisResult analysisResult = Analysis.analysis(searchResult, mapping.getProteinsToReactions().keySet().size());
+
+        // The entities found written are the ones of the ratio and the p-value
+        int[] records = new int[1];
+        analysisResult.forEachRecord(InputType.UNIPROT, record -> {
+            assertEquals(Double.parseDouble(record[4]), Integer.parseInt(record[2]) / Double.parseDouble(record[3]), record[0]);
+            records[0]++;
+        });
+        assertEquals(searchResult.getHitPathways().size(), records[0]);
+    }
+}
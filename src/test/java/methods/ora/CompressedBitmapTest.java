@@ -0,0 +1,67 @@
+package methods.ora;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedBitmapTest {
+
+    @Test
+    void ofTest() {
+        CompressedBitmap bitmap = CompressedBitmap.of(70000, 3, 3, 65535, 0, 65536);
+
+        assertEquals(5, bitmap.cardinality());
+        assertTrue(bitmap.contains(0));
+        assertTrue(bitmap.contains(65535));
+        assertTrue(bitmap.contains(65536));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(1));
+        assertFalse(bitmap.contains(-3));
+        assertFalse(bitmap.contains(1 << 20));
+
+        assertEquals(0, CompressedBitmap.of().cardinality());
+        assertThrows(IllegalArgumentException.class, () -> CompressedBitmap.of(4, -1));
+    }
+
+    @Test
+    void andCardinalityTest() {
+        CompressedBitmap a = CompressedBitmap.of(1, 2, 3, 100000, 200000);
+        CompressedBitmap b = CompressedBitmap.of(2, 3, 4, 200000, 300000);
+
+        assertEquals(3, a.andCardinality(b));
+        assertEquals(3, b.andCardinality(a));
+        assertEquals(0, a.andCardinality(CompressedBitmap.of()));
+    }
+
+    @Test
+    void sameAsBitSetTest() {
+        Random random = new Random(42);
+        for (int test = 0; test < 50; test++) {
+            // Sparse and dense chunks, so that arrays and bitmaps are intersected with each other
+            BitSet[] sets = new BitSet[2];
+            CompressedBitmap[] bitmaps = new CompressedBitmap[2];
+            for (int s = 0; s < 2; s++) {
+                int count = random.nextInt(3) == 0 ? random.nextInt(20_000) : random.nextInt(300);
+                int range = random.nextBoolean() ? 1 << 16 : 1 << 19;
+                int[] values = new int[count];
+                sets[s] = new BitSet();
+                for (int i = 0; i < count; i++) {
+                    values[i] = random.nextInt(range);
+                    sets[s].set(values[i]);
+                }
+                bitmaps[s] = CompressedBitmap.of(values);
+                assertEquals(sets[s].cardinality(), bitmaps[s].cardinality());
+            }
+            BitSet common = (BitSet) sets[0].clone();
+            common.and(sets[1]);
+            assertEquals(common.cardinality(), bitmaps[0].andCardinality(bitmaps[1]));
+            assertEquals(common.cardinality(), bitmaps[1].andCardinality(bitmaps[0]));
+            for (int value = sets[0].nextSetBit(0); value >= 0; value = sets[0].nextSetBit(value + 1)) {
+                assertTrue(bitmaps[0].contains(value));
+            }
+        }
+    }
+}
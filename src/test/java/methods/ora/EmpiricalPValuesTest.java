@@ -0,0 +1,57 @@
+package methods.ora;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmpiricalPValuesTest {
+
+    // Pathways of 50, 200 and 3 of the first entities of a population of 1000
+    private static final CompressedBitmap[] MEMBERS = {
+            CompressedBitmap.of(IntStream.range(0, 50).toArray()),
+            CompressedBitmap.of(IntStream.range(0, 200).toArray()),
+            CompressedBitmap.of(0, 1, 2)};
+
+    @Test
+    void hypergeometricTest() {
+        int permutations = 20000;
+        double[] pValues = new EmpiricalPValues(permutations, 7, 2).pValues(MEMBERS, new int[]{6, 5, 1}, 40, 1000);
+
+        // The samples are drawn without replacement, so the p-values are close to the hypergeometric ones
+        PValueKernel kernel = new PValueKernel(1000);
+        int[] sizes = {50, 200, 3};
+        int[] found = {6, 5, 1};
+        for (int index = 0; index < MEMBERS.length; index++) {
+            double expected = kernel.hypergeometricUpperTail(1000, sizes[index], 40, found[index]);
+            double error = Math.sqrt(expected * (1 - expected) / permutations);
+            assertEquals(expected, pValues[index], 4 * error + 1.0 / permutations, "pathway " + index);
+        }
+    }
+
+    @Test
+    void threadsTest() {
+        int[] found = {3, 9, 1};
+        double[] expected = new EmpiricalPValues(1000, 11, 1).pValues(MEMBERS, found, 40, 1000);
+
+        assertArrayEquals(expected, new EmpiricalPValues(1000, 11, 4).pValues(MEMBERS, found, 40, 1000));
+        assertFalse(Arrays.equals(expected, new EmpiricalPValues(1000, 12, 1).pValues(MEMBERS, found, 40, 1000)));
+    }
+
+    @Test
+    void limitsTest() {
+        double[] pValues = new EmpiricalPValues(99, 1, 1).pValues(MEMBERS, new int[]{0, 41, 3}, 40, 1000);
+
+        // No entities found is always reached, more than the sample never, and the input counts as a sample
+        assertEquals(1.0, pValues[0]);
+        assertEquals(0.01, pValues[1]);
+        assertTrue(pValues[2] >= 0.01 && pValues[2] < 0.1);
+
+        // The whole population is sampled
+        assertArrayEquals(new double[]{1.0, 1.0, 1.0}, new EmpiricalPValues(10, 1, 1).pValues(MEMBERS, new int[]{50, 200, 3}, 2000, 1000));
+
+        assertThrows(IllegalArgumentException.class, () -> new EmpiricalPValues(0, 1, 1));
+    }
+}
@@ -0,0 +1,73 @@
+package methods.ora;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.distribution.HypergeometricDistribution;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PValueKernelTest {
+
+    @Test
+    void binomialUpperTailTest() {
+        PValueKernel kernel = new PValueKernel(20000);
+        Random random = new Random(42);
+        for (int test = 0; test < 2000; test++) {
+            int n = 1 + random.nextInt(random.nextBoolean() ? 50 : 15000);
+            double p = random.nextDouble() * (random.nextBoolean() ? 0.01 : 0.5);
+            int k = random.nextInt(n + 2);
+            double expected = 1 - new BinomialDistribution(n, p).cumulativeProbability(k - 1);
+            assertEquals(expected, kernel.binomialUpperTail(n, p, k), 1e-12, "n " + n + ", p " + p + ", k " + k);
+        }
+    }
+
+    @Test
+    void exactValuesTest() {
+        PValueKernel kernel = new PValueKernel(13000);
+
+        // Sums of the exact terms with 60 digits
+        assertEquals(0.14501266582959212916, kernel.binomialUpperTail(12839, 0.22667608605033163, 2961), 1e-15);
+        assertEquals(0.87204588937695793877, kernel.hypergeometricUpperTail(2178, 398, 356, 58), 1e-15);
+    }
+
+    @Test
+    void binomialLimitsTest() {
+        PValueKernel kernel = new PValueKernel(10);
+
+        assertEquals(1.0, kernel.binomialUpperTail(10, 0.3, 0));
+        assertEquals(0.0, kernel.binomialUpperTail(10, 0.3, 11));
+        assertEquals(0.0, kernel.binomialUpperTail(10, 0.0, 1));
+        assertEquals(1.0, kernel.binomialUpperTail(10, 1.0, 10));
+        assertEquals(Math.pow(0.3, 10), kernel.binomialUpperTail(10, 0.3, 10), 1e-18);
+
+        // The table grows for more trials than the population
+        assertEquals(Math.pow(0.5, 100), kernel.binomialUpperTail(100, 0.5, 100), 1e-40);
+    }
+
+    @Test
+    void smallPValuesTest() {
+        PValueKernel kernel = new PValueKernel(1000);
+
+        // The upper tail is summed, so the p-values below the precision of 1 - cdf keep their value
+        double pValue = kernel.binomialUpperTail(1000, 0.001, 20);
+        assertTrue(pValue > 0 && pValue < 1e-17);
+        assertEquals(new BinomialDistribution(1000, 0.001).probability(20), pValue, pValue * 0.1);
+    }
+
+    @Test
+    void hypergeometricUpperTailTest() {
+        PValueKernel kernel = new PValueKernel(12000);
+        Random random = new Random(7);
+        for (int test = 0; test < 2000; test++) {
+            int population = 1 + random.nextInt(random.nextBoolean() ? 100 : 12000);
+            int successes = random.nextInt(Math.min(population, 500) + 1);
+            int sample = random.nextInt(population + 1);
+            int k = random.nextInt(Math.min(successes, sample) + 2);
+            double expected = new HypergeometricDistribution(population, successes, sample).upperCumulativeProbability(k);
+            assertEquals(expected, kernel.hypergeometricUpperTail(population, successes, sample, k), 1e-12,
+                    "N " + population + ", K " + successes + ", n " + sample + ", k " + k);
+        }
+    }
+}
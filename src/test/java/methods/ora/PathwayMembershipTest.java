@@ -0,0 +1,43 @@
+package methods.ora;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import model.MappingStore;
+import model.PathwayClosure;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathwayMembershipTest {
+
+    private static PathwayClosure build() {
+        return PathwayClosure.build(
+                ImmutableSetMultimap.of("P01308", "R-HSA-1", "P01308", "R-HSA-2", "P04637", "R-HSA-2", "Q9Y6K9", "R-HSA-3"),
+                MappingStore.STRING,
+                ImmutableSetMultimap.of("R-HSA-1", "R-HSA-10", "R-HSA-1", "R-HSA-20", "R-HSA-2", "R-HSA-20", "R-HSA-3", "R-HSA-10"),
+                ImmutableSetMultimap.of("R-HSA-10", "R-HSA-100", "R-HSA-10", "R-HSA-200"));
+    }
+
+    @Test
+    void countFoundTest() {
+        PathwayClosure closure = build();
+        PathwayMembership membership = PathwayMembership.of(closure);
+        int insulin = closure.indexOf("P01308");
+        int p53 = closure.indexOf("P04637");
+
+        assertEquals(2, membership.getMembers("R-HSA-10").cardinality());
+        assertEquals(2, membership.getMembers("R-HSA-20").cardinality());
+        assertEquals(0, membership.getMembers("R-HSA-100").cardinality());
+
+        CompressedBitmap entities = CompressedBitmap.of(insulin, p53);
+        assertEquals(1, membership.countFound("R-HSA-10", entities));
+        assertEquals(2, membership.countFound("R-HSA-20", entities));
+        assertEquals(0, membership.countFound("R-HSA-30", entities));
+    }
+
+    @Test
+    void ofTest() {
+        PathwayClosure closure = build();
+
+        assertSame(PathwayMembership.of(closure), PathwayMembership.of(closure));
+    }
+}
@@ -0,0 +1,174 @@
+package methods.search;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import methods.ora.Analysis;
+import model.*;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactionHitsTest {
+
+    private static final int PROTEINS = 40;
+    private static final int REACTIONS = 30;
+    private static final int PATHWAYS = 12;
+    private static final int TOP_LEVEL_PATHWAYS = 3;
+
+    private static String path;
+    private static List<String> proteins = new ArrayList<>();
+    private static List<String> proteoforms = new ArrayList<>();
+    private int minPartSize;
+
+    private static String getReaction(Random random) {
+        return "R-HSA-" + (1 + random.nextInt(REACTIONS));
+    }
+
+    @BeforeAll
+    static void setUp() throws IOException, ParseException {
+        path = Files.createTempDirectory("mapping").toString();
+        Random random = new Random(7);
+
+        ImmutableMap.Builder<String, Reaction> reactions = ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<String, String> reactionsToPathways = ImmutableSetMultimap.builder();
+        for (int r = 1; r <= REACTIONS; r++) {
+            reactions.put("R-HSA-" + r, new Reaction("R-HSA-" + r, "Reaction " + r));
+            for (int p = random.nextInt(3); p >= 0; p--) {
+                reactionsToPathways.put("R-HSA-" + r, "R-HSA-" + (100 + random.nextInt(PATHWAYS)));
+            }
+        }
+
+        // The first pathways are top level pathways, and the others have none, one or two of them
+        ImmutableMap.Builder<String, Pathway> pathways = ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<String, String> pathwaysToTopLevelPathways = ImmutableSetMultimap.builder();
+        for (int p = 0; p < PATHWAYS; p++) {
+            Pathway pathway = new Pathway("R-HSA-" + (100 + p), "Pathway " + p);
+            pathway.setNumEntitiesTotal(10 + p);
+            pathway.setNumReactionsTotal(5 + p);
+            pathway.setNumEntitiesTotalByProteoform(20 + p);
+            pathways.put(pathway.getStId(), pathway);
+            if (p >= TOP_LEVEL_PATHWAYS) {
+                for (int t = random.nextInt(3); t > 0; t--) {
+                    pathwaysToTopLevelPathways.put(pathway.getStId(), "R-HSA-" + (100 + random.nextInt(TOP_LEVEL_PATHWAYS)));
+                }
+            }
+        }
+
+        ImmutableMap.Builder<String, String> proteinsToNames = ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<String, String> proteinsToReactions = ImmutableSetMultimap.builder();
+        ImmutableSetMultimap.Builder<String, Proteoform> proteinsToProteoforms = ImmutableSetMultimap.builder();
+        ImmutableSetMultimap.Builder<Proteoform, String> proteoformsToReactions = ImmutableSetMultimap.builder();
+        for (int i = 0; i < PROTEINS; i++) {
+            String protein = String.format("P1%04d", i);
+            proteins.add(protein);
+            proteinsToNames.put(protein, "Protein " + i);
+            for (int r = random.nextInt(4); r >= 0; r--) {
+                proteinsToReactions.put(protein, getReaction(random));
+            }
+            for (String line : new String[]{protein, protein + ";00046:" + (1 + i % 7)}) {
+                Proteoform proteoform = ProteoformFormat.SIMPLE.getProteoform(line);
+                proteoforms.add(line);
+                proteinsToProteoforms.put(protein, proteoform);
+                for (int r = random.nextInt(3); r >= 0; r--) {
+                    proteoformsToReactions.put(proteoform, getReaction(random));
+                }
+            }
+        }
+
+        MappingStore.Writer writer = new MappingStore.Writer();
+        writer.addReactions(reactions.build());
+        writer.addPathways(pathways.build());
+        writer.addMap("proteinsToNames", "proteins", "names", proteinsToNames.build());
+        writer.addTable("proteinsToReactions", "proteins", "reactions", proteinsToReactions.build());
+        writer.addTable("reactionsToPathways", "reactions", "pathways", reactionsToPathways.build());
+        writer.addTable("pathwaysToTopLevelPathways", "pathways", "pathways", pathwaysToTopLevelPathways.build());
+        writer.addTable("proteinsToProteoforms", "proteins", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                proteinsToProteoforms.build());
+        writer.addTable("proteoformsToReactions", "proteoforms", MappingStore.PROTEOFORM, "reactions", MappingStore.STRING,
+                proteoformsToReactions.build());
+        writer.write(path);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(path));
+    }
+
+    @BeforeEach
+    void splitInParts() {
+        // Every hit can be a part, so the hits of the small inputs are expanded on several threads
+        minPartSize = ReactionHits.minPartSize;
+        ReactionHits.minPartSize = 1;
+    }
+
+    @AfterEach
+    void restorePartSize() {
+        ReactionHits.minPartSize = minPartSize;
+    }
+
+    /**
+     * Gets the records of the search, the hit pathways in their order, and the records of the analysis.
+     */
+    private static List<List<String>> getOutput(SearchResult result, InputType inputType) throws IOException {
+        List<String> records = new ArrayList<>();
+        result.forEachRecord(record -> records.add(String.join("\t", record)));
+        List<String> pathways = new ArrayList<>();
+        for (int index = 0; index < result.getPathwayHits().size(); index++) {
+            pathways.add(result.getPathwayHits().getPathway(index).getStId());
+        }
+        List<String> analysis = new ArrayList<>();
+        Analysis.analysis(result, PROTEINS).forEachRecord(inputType, record -> analysis.add(String.join("\t", record)));
+        return Arrays.asList(records, pathways, analysis);
+    }
+
+    private static void assertSameOutput(List<List<String>> expected, List<List<String>> actual) {
+        assertTrue(expected.get(0).size() > PROTEINS, "The search should have records for several parts");
+        assertTrue(expected.get(1).size() > 1, "The search should hit several pathways");
+        assertEquals(expected.get(0), actual.get(0), "Records");
+        assertEquals(expected.get(1), actual.get(1), "Pathway order");
+        assertEquals(expected.get(2), actual.get(2), "Analysis");
+    }
+
+    @Test
+    void searchWithUniProtThreadsTest() throws IOException {
+        List<String> input = new ArrayList<>(proteins);
+        input.addAll(proteins.subList(0, 10));
+        input.add("P99999");
+        Collections.shuffle(input, new Random(11));
+        Mapping mapping = new Mapping(InputType.UNIPROT, true, path);
+
+        for (boolean topLevelPathways : new boolean[]{false, true}) {
+            List<List<String>> expected = getOutput(Search.searchWithUniProt(input, mapping, topLevelPathways, 1), InputType.UNIPROT);
+            List<List<String>> actual = getOutput(Search.searchWithUniProt(input, mapping, topLevelPathways, 4), InputType.UNIPROT);
+            assertSameOutput(expected, actual);
+        }
+    }
+
+    @Test
+    void searchWithProteoformThreadsTest() throws IOException {
+        List<String> input = new ArrayList<>(proteoforms);
+        input.add("P10001;00046:99");
+        input.add("P99999");
+        Collections.shuffle(input, new Random(13));
+        Mapping mapping = new Mapping(InputType.PROTEOFORM, true, path);
+
+        for (boolean topLevelPathways : new boolean[]{false, true}) {
+            List<List<String>> expected = getOutput(Search.searchWithProteoform(input, mapping, topLevelPathways,
+                    MatchType.SUBSET, 0L, 1), InputType.PROTEOFORM);
+            List<List<String>> actual = getOutput(Search.searchWithProteoform(input, mapping, topLevelPathways,
+                    MatchType.SUBSET, 0L, 4), InputType.PROTEOFORM);
+            assertSameOutput(expected, actual);
+        }
+    }
+}
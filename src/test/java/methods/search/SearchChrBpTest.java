@@ -5,10 +5,15 @@ import model.Mapping;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -40,4 +45,45 @@ class SearchChrBpTest {
         assertTrue(result.containsPathwayByStid("R-HSA-264876"));
         assertTrue(result.containsPathwayByStid("R-HSA-74749"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchWithChr_BpThreads() throws FileNotFoundException {
+        List<String> input = new ArrayList<>();
+        input.add("11 2176134L"); //P01308
+        input.add("1 1L"); //Not found
+        input.add("11 2176042L"); //P01308
+        input.add("11 -1L"); //Not found
+
+        SearchResult result = Search.searchWithChrBp(input, mapping, true, "", 4, -1);
+
+        assertEquals(1, result.getHitProteins().size());
+        assertTrue(result.getHitProteins().contains("P01308"));
+        assertEquals(21, result.getHitPathways().size());
+        assertEquals(2, result.getMatchedChrBp().length);
+    }
+
+    @Test
+    void searchWithVcf_countsDifferentVariants() throws IOException {
+        // Not sorted, and the repeated variants are not on consecutive lines
+        List<String> input = Arrays.asList("11 2176134", "1 1", "11 2176042", "11 2176134", "1 1", "11 2176042", "11 2176105");
+        File file = Files.createTempFile("variants", ".txt").toFile();
+        try {
+            Files.write(file.toPath(), input);
+            SearchResult chrBp = Search.searchWithChrBp(input, mapping, true, "");
+            assertEquals(4, chrBp.getInputChrBpCount());
+
+            for (int threads : new int[]{1, 4}) {
+                for (long window : new long[]{-1, 0}) {
+                    SearchResult vcf = Search.searchWithVcf(file.getPath(), mapping, true, "", threads, window);
+                    assertEquals(chrBp.getInputChrBpCount(), vcf.getInputChrBpCount(), "Threads " + threads + ", window " + window);
+                    if (window < 0) {
+                        assertArrayEquals(chrBp.getMatchedChrBp(), vcf.getMatchedChrBp());
+                        assertEquals(chrBp.getHitProteins(), vcf.getHitProteins());
+                    }
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package methods.search;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import methods.ora.Analysis;
+import model.InputType;
+import model.Mapping;
+import model.MappingStore;
+import model.MatchType;
+import model.Pathway;
+import model.Proteoform;
+import model.ProteoformFormat;
+import model.Reaction;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultTest {
+
+    private static final String[] PROTEOFORMS = {"P01308", "P01308;00798:31", "P01308;00798:31,00798:43",
+            "P01308;00087:53", "Q9Y6K9", "Q9Y6K9;00046:10", "Q9Y6K9;00046:10,00048:20"};
+
+    private static String path;
+    private static Mapping mapping;
+
+    @BeforeAll
+    static void setUp() throws IOException, ParseException {
+        path = Files.createTempDirectory("mapping").toString();
+
+        MappingStore.Writer writer = new MappingStore.Writer();
+        writer.addReactions(ImmutableMap.of("R-HSA-1", new Reaction("R-HSA-1", "Reaction one"),
+                "R-HSA-2", new Reaction("R-HSA-2", "Reaction two")));
+        writer.addPathways(ImmutableMap.of("R-HSA-10", new Pathway("R-HSA-10", "Pathway ten"),
+                "R-HSA-100", new Pathway("R-HSA-100", "Pathway hundred"),
+                "R-HSA-200", new Pathway("R-HSA-200", "Pathway two hundred")));
+        writer.addMap("proteinsToNames", "proteins", "names", ImmutableMap.of("P01308", "INS", "Q9Y6K9", "NEMO"));
+        writer.addTable("genesToProteins", "genes", "proteins", ImmutableSetMultimap.of("INS", "P01308", "IKBKG", "Q9Y6K9"));
+        writer.addTable("proteinsToReactions", "proteins", "reactions",
+                ImmutableSetMultimap.of("P01308", "R-HSA-1", "Q9Y6K9", "R-HSA-2"));
+        writer.addTable("reactionsToPathways", "reactions", "pathways",
+                ImmutableSetMultimap.of("R-HSA-1", "R-HSA-10", "R-HSA-1", "R-HSA-100", "R-HSA-2", "R-HSA-200"));
+        writer.addTable("pathwaysToTopLevelPathways", "pathways", "pathways",
+                ImmutableSetMultimap.of("R-HSA-10", "R-HSA-100", "R-HSA-10", "R-HSA-200"));
+        ImmutableSetMultimap.Builder<String, Proteoform> proteinsToProteoforms = ImmutableSetMultimap.builder();
+        ImmutableSetMultimap.Builder<Proteoform, String> proteoformsToReactions = ImmutableSetMultimap.builder();
+        for (String line : PROTEOFORMS) {
+            Proteoform proteoform = ProteoformFormat.SIMPLE.getProteoform(line);
+            proteinsToProteoforms.put(proteoform.getUniProtAcc(), proteoform);
+            proteoformsToReactions.put(proteoform, proteoform.getUniProtAcc().equals("P01308") ? "R-HSA-1" : "R-HSA-2");
+        }
+        writer.addTable("proteinsToProteoforms", "proteins", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                proteinsToProteoforms.build());
+        writer.addTable("proteoformsToReactions", "proteoforms", MappingStore.PROTEOFORM, "reactions", MappingStore.STRING,
+                proteoformsToReactions.build());
+        writer.write(path);
+
+        mapping = new Mapping(InputType.GENE, true, path);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(path));
+    }
+
+    private static List<String> getRecords(SearchResult result) throws IOException {
+        List<String> records = new ArrayList<>();
+        result.forEachRecord(record -> records.add(String.join("\t", record)));
+        return records;
+    }
+
+    private static String write(SearchResult result) throws IOException {
+        StringWriter output = new StringWriter();
+        BufferedWriter writer = new BufferedWriter(output);
+        result.writeToFile(writer, "\t");
+        writer.flush();
+        return output.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    @Test
+    void writeToFileTest() throws IOException {
+        SearchResult result = Search.searchWithUniProt(Arrays.asList("P01308", "Q9Y6K9"), mapping, false);
+
+        assertEquals("UNIPROT\tREACTION_STID\tREACTION_DISPLAY_NAME\tPATHWAY_STID\tPATHWAY_DISPLAY_NAME\t\n"
+                + "P01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\n"
+                + "P01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\n"
+                + "Q9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\n", write(result));
+    }
+
+    @Test
+    void writeToFileTopLevelPathwaysTest() throws IOException {
+        SearchResult result = Search.searchWithUniProt(Arrays.asList("P01308", "Q9Y6K9"), mapping, true);
+
+        // As before the records were kept as identifiers, each record of a pathway shows its last top level pathway
+        assertEquals("UNIPROT\tREACTION_STID\tREACTION_DISPLAY_NAME\tPATHWAY_STID\tPATHWAY_DISPLAY_NAME\tTOP_LEVEL_PATHWAY_DISPLAY_NAME\t\n"
+                + "P01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\tR-HSA-200\tPathway two hundred\n"
+                + "P01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\tR-HSA-200\tPathway two hundred\n"
+                + "P01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\tR-HSA-100\tPathway hundred\n"
+                + "Q9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\tR-HSA-200\tPathway two hundred\n", write(result));
+    }
+
+    @Test
+    void writeToFileGenesTest() throws IOException {
+        SearchResult result = Search.searchWithGene(Arrays.asList("IKBKG", "INS", "XYZ"), mapping, false);
+
+        assertEquals("GENE\tUNIPROT\tREACTION_STID\tREACTION_DISPLAY_NAME\tPATHWAY_STID\tPATHWAY_DISPLAY_NAME\t\n"
+                + "IKBKG\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\n"
+                + "INS\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\n"
+                + "INS\tP01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\n", write(result));
+    }
+
+    @Test
+    void forEachRecordTest() throws IOException {
+        SearchResult result = Search.searchWithUniProt(Arrays.asList("P01308", "Q9Y6K9"), mapping, true);
+        List<String> records = getRecords(result);
+
+        assertEquals(4, records.size());
+        assertEquals(records.get(0), records.get(1), "Each record of a pathway shows the last top level pathway");
+        assertTrue(records.get(0).startsWith("P01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\tR-HSA-"));
+        assertTrue(records.contains("P01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\tR-HSA-100\tPathway hundred"));
+        assertEquals("Q9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\tR-HSA-200\tPathway two hundred", records.get(3));
+
+        // The records are expanded again each time
+        assertEquals(records, getRecords(result));
+    }
+
+    @Test
+    void writeToFileSameAsRecordsTest() throws IOException {
+        SearchResult result = Search.searchWithUniProt(Arrays.asList("P01308", "Q9Y6K9"), mapping, false);
+
+        StringBuilder expected = new StringBuilder("UNIPROT\tREACTION_STID\tREACTION_DISPLAY_NAME\tPATHWAY_STID\tPATHWAY_DISPLAY_NAME\t\n");
+        for (String record : getRecords(result)) {
+            expected.append(record).append("\n");
+        }
+        assertEquals(expected.toString(), write(result));
+        assertEquals(3, getRecords(result).size());
+    }
+
+    @Test
+    void searchesDoNotShareHitsTest() throws IOException {
+        Map<String, Double> pValues = new HashMap<>();
+        for (Pathway pathway : mapping.getPathways().values()) {
+            pValues.put(pathway.getStId(), pathway.getPValue());
+        }
+
+        SearchResult first = Search.searchWithUniProt(Arrays.asList("P01308"), mapping, true);
+        Analysis.analysis(first, 2);
+        SearchResult second = Search.searchWithGene(Arrays.asList("IKBKG"), mapping, true);
+        Analysis.analysis(second, 2);
+
+        // The pathways of the mapping are never modified by the searches or the analyses
+        for (Pathway pathway : mapping.getPathways().values()) {
+            assertTrue(pathway.getEntitiesFound().isEmpty(), pathway.getStId());
+            assertTrue(pathway.getReactionsFound().isEmpty(), pathway.getStId());
+            assertEquals(pValues.get(pathway.getStId()), pathway.getPValue(), pathway.getStId());
+        }
+
+        // The second search only has its own hits
+        assertEquals(Arrays.asList("Q9Y6K9"), new ArrayList<>(second.getHitProteins()));
+        assertFalse(second.containsPathwayByStid("R-HSA-10"));
+        assertFalse(second.containsPathwayByStid("R-HSA-100"));
+        Pathway pathway = second.getHitPathwayByStid("R-HSA-200");
+        assertEquals(1, pathway.getEntitiesFound().size());
+        assertTrue(pathway.getEntitiesFound().contains(new Proteoform("Q9Y6K9")));
+        assertEquals(1, pathway.getReactionsFound().size());
+        assertTrue(pathway.getReactionsFound().contains("R-HSA-2"));
+        for (String record : getRecords(second)) {
+            assertFalse(record.contains("P01308"), record);
+        }
+
+        // And the first search keeps its hits
+        assertTrue(first.containsPathwayByStid("R-HSA-10"));
+        assertFalse(first.containsPathwayByStid("R-HSA-200"));
+    }
+
+    @Test
+    void writeToFileProteoformsOrderTest() throws IOException {
+        Mapping proteoformMapping = new Mapping(InputType.PROTEOFORM, false, path);
+        List<String> input = Arrays.asList("Q9Y6K9;00046:10,00048:20", "P01308;00087:53", "Q9Y6K9", "P01308;00798:31,00798:43",
+                "P01308;00798:31", "Q9Y6K9;00046:10", "P01308");
+        SearchResult result = Search.searchWithProteoform(input, proteoformMapping, false, MatchType.STRICT, 0L);
+
+        // The records of the proteoforms are in the order of the input, and not of their hash codes
+        assertEquals("PROTEOFORM\tUNIPROT\tREACTION_STID\tREACTION_DISPLAY_NAME\tPATHWAY_STID\tPATHWAY_DISPLAY_NAME\t\n"
+                + "Q9Y6K9;00046:10,00048:20\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\n"
+                + "P01308;00087:53\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\n"
+                + "P01308;00087:53\tP01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\n"
+                + "Q9Y6K9;\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\n"
+                + "P01308;00798:31,00798:43\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\n"
+                + "P01308;00798:31,00798:43\tP01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\n"
+                + "P01308;00798:31\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\n"
+                + "P01308;00798:31\tP01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\n"
+                + "Q9Y6K9;00046:10\tQ9Y6K9\tR-HSA-2\tReaction two\tR-HSA-200\tPathway two hundred\n"
+                + "P01308;\tP01308\tR-HSA-1\tReaction one\tR-HSA-10\tPathway ten\n"
+                + "P01308;\tP01308\tR-HSA-1\tReaction one\tR-HSA-100\tPathway hundred\n", write(result));
+    }
+}
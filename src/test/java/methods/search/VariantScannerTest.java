@@ -0,0 +1,81 @@
+package methods.search;
+
+import model.VariantTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantScannerTest {
+
+    private static VariantScanner scanner(String text) {
+        return new VariantScanner(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void vcfRecordsTest() throws IOException {
+        VariantScanner scanner = scanner("#CHROM\tPOS\tID\tREF\tALT\n4\t401443\trs4039\tA\tG\n\n10  1001147\n");
+
+        assertEquals(VariantScanner.COMMENT, scanner.next());
+        assertEquals(VariantScanner.VARIANT, scanner.next());
+        assertEquals(VariantTable.chrBpKey(4, 401443L), scanner.getKey());
+        assertEquals(2, scanner.getRow());
+        assertEquals(VariantScanner.EMPTY, scanner.next());
+        assertEquals(VariantScanner.VARIANT, scanner.next());
+        assertEquals(VariantTable.chrBpKey(10, 1001147L), scanner.getKey());
+        assertEquals(VariantScanner.END, scanner.next());
+    }
+
+    @Test
+    void chrBpLinesTest() throws IOException {
+        VariantScanner scanner = scanner("11 2176042L\r\n11  2176105L\r35 1L\n11 -1L\nX 100\n1 123456789012\n1 12345678901");
+
+        assertEquals(VariantScanner.VARIANT, scanner.next());
+        assertEquals(VariantTable.chrBpKey(11, 2176042L), scanner.getKey());
+        assertEquals(VariantScanner.INVALID, scanner.next());   // The L needs exactly one space
+        assertEquals(VariantScanner.INVALID, scanner.next());   // The L needs a chromosome up to 29
+        assertEquals(VariantScanner.INVALID, scanner.next());
+        assertEquals(VariantScanner.INVALID, scanner.next());
+        assertEquals(5, scanner.getRow());
+        assertEquals(VariantScanner.INVALID, scanner.next());   // More than 11 digits
+        assertEquals(VariantScanner.VARIANT, scanner.next());
+        assertEquals(VariantTable.chrBpKey(1, 12345678901L), scanner.getKey());
+        assertEquals(VariantScanner.END, scanner.next());
+    }
+
+    @Test
+    void byteOrderMarkTest() throws IOException {
+        VariantScanner scanner = new VariantScanner(new ByteArrayInputStream("\uFEFF7 100\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(VariantScanner.VARIANT, scanner.next());
+        assertEquals(VariantTable.chrBpKey(7, 100L), scanner.getKey());
+    }
+
+    @Test
+    void gzipFileTest() throws IOException {
+        File file = Files.createTempFile("variants", ".vcf.gz").toFile();
+        try {
+            // Two gzip members, like the blocks of a bgzip file
+            try (OutputStream out = new FileOutputStream(file)) {
+                for (String block : new String[]{"1\t100\trs1\tA\tG\n", "2\t200\trs2\tC\tT\n"}) {
+                    GZIPOutputStream gzip = new GZIPOutputStream(out);
+                    gzip.write(block.getBytes(StandardCharsets.ISO_8859_1));
+                    gzip.finish();
+                }
+            }
+            try (VariantScanner scanner = VariantScanner.open(file.getPath())) {
+                assertEquals(VariantScanner.VARIANT, scanner.next());
+                assertEquals(VariantTable.chrBpKey(1, 100L), scanner.getKey());
+                assertEquals(VariantScanner.VARIANT, scanner.next());
+                assertEquals(VariantTable.chrBpKey(2, 200L), scanner.getKey());
+                assertEquals(VariantScanner.END, scanner.next());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
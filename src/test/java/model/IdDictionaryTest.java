@@ -0,0 +1,79 @@
+package model;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdDictionaryTest {
+
+    @Test
+    void internTest() {
+        IdDictionary ids = new IdDictionary();
+        int id = ids.intern("P01308");
+
+        assertEquals(id, ids.intern("P01308"));
+        assertEquals(id, ids.indexOfKey("P01308"));
+        assertEquals("P01308", ids.get(id));
+        assertEquals(-1, ids.indexOfKey("Q9Y6K9"));
+        assertEquals(1, ids.size());
+    }
+
+    @Test
+    void growTest() {
+        IdDictionary ids = new IdDictionary();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, ids.intern("R-HSA-" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, ids.indexOfKey("R-HSA-" + i));
+        }
+        assertEquals(5000, ids.size());
+    }
+
+    @Test
+    void readWhileInterningTest() throws InterruptedException {
+        IdDictionary ids = new IdDictionary();
+        for (int i = 0; i < 100; i++) {
+            ids.intern("P" + i);
+        }
+        Thread loader = new Thread(() -> {
+            for (int i = 0; i < 100000; i++) {
+                ids.intern("R-HSA-" + i);
+            }
+        });
+        loader.start();
+        while (loader.isAlive()) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, ids.indexOfKey("P" + i));
+                assertEquals("P" + i, ids.get(i));
+            }
+        }
+        loader.join();
+        assertEquals(100100, ids.size());
+        assertEquals(100, ids.indexOfKey("R-HSA-0"));
+    }
+
+    @Test
+    void copyOfTest() {
+        IdDictionary ids = new IdDictionary();
+        ImmutableSetMultimap<String, String> multimap = ImmutableSetMultimap.of(
+                "P01308", "R-HSA-2", "P01308", "R-HSA-1", "Q9Y6K9", "R-HSA-1");
+        MappedSetMultimap<String, String> proteinsToReactions = MappedSetMultimap.copyOf(multimap, ids);
+        MappedSetMultimap<String, String> reactionsToPathways = MappedSetMultimap.copyOf(
+                ImmutableSetMultimap.of("R-HSA-1", "R-HSA-10"), ids);
+
+        assertEquals(multimap, proteinsToReactions);
+        assertEquals(2, proteinsToReactions.keySet().size());
+        assertTrue(proteinsToReactions.get("R-HSA-1").isEmpty());
+
+        // The values of one table are the keys of the next one
+        int protein = proteinsToReactions.getKeyId("Q9Y6K9");
+        assertEquals(1, proteinsToReactions.degree(protein));
+        int reaction = proteinsToReactions.getValueId(protein, 0);
+        assertEquals(1, reactionsToPathways.degree(reaction));
+        assertEquals("R-HSA-10", ids.get(reactionsToPathways.getValueId(reaction, 0)));
+        assertEquals(0, reactionsToPathways.degree(protein));
+        assertEquals(0, reactionsToPathways.degree(-1));
+    }
+}
@@ -0,0 +1,156 @@
+package model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingStoreTest {
+
+    private static String path;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        path = Files.createTempDirectory("mapping").toString();
+
+        Reaction reaction = new Reaction("R-HSA-1", "Reaction one");
+        reaction.addParticipant("P01308", Role.INPUT);
+        reaction.addParticipant("P01308", Role.CATALYSTACTIVITY);
+        reaction.addParticipant(new Proteoform("P01308"), Role.OUTPUT);
+        Pathway pathway = new Pathway("R-HSA-10", "Pathway ten");
+        pathway.setNumEntitiesTotal(5);
+        pathway.setNumReactionsTotal(3);
+        pathway.setNumEntitiesTotalByProteoform(7);
+
+        Proteoform proteoform = new Proteoform("P01308");
+        proteoform.addPtm("00046", 30L);
+        proteoform.addPtm("00048", 12L);
+
+        MappingStore.Writer writer = new MappingStore.Writer();
+        writer.addReactions(ImmutableMap.of("R-HSA-1", reaction));
+        writer.addPathways(ImmutableMap.of("R-HSA-10", pathway));
+        writer.addTable("proteinsToReactions", "proteins", "reactions",
+                ImmutableSetMultimap.of("P01308", "R-HSA-2", "P01308", "R-HSA-1", "Q9Y6K9", "R-HSA-1"));
+        writer.addTable("proteoformsToReactions", "proteoforms", MappingStore.PROTEOFORM, "reactions", MappingStore.STRING,
+                ImmutableSetMultimap.of(proteoform, "R-HSA-2"));
+        Proteoform unsorted = new Proteoform("Q9Y6K9");
+        unsorted.setPtms(new ArrayList<>(Arrays.asList(Pair.of("01148", 211L), Pair.of("00048", 97L))));
+        writer.addTable("proteinsToProteoforms", "proteins", MappingStore.STRING, "proteoforms", MappingStore.PROTEOFORM,
+                ImmutableSetMultimap.of("Q9Y6K9", unsorted));
+        writer.addTable("chrBpToProteins1", "chrBp1", MappingStore.LONG, "proteins", MappingStore.STRING,
+                ImmutableSetMultimap.of(14370L, "Q9Y6K9"));
+        writer.write(path);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(path));
+    }
+
+    @Test
+    void isStoreTest() {
+        assertTrue(MappingStore.isStore(path));
+        assertFalse(MappingStore.isStore(""));
+        assertFalse(MappingStore.isStore("src/main/resources/"));
+    }
+
+    @Test
+    void setMultimapTest() throws IOException {
+        SetMultimap<String, String> proteinsToReactions = MappingStore.open(path).getSetMultimap("proteinsToReactions");
+
+        assertEquals(3, proteinsToReactions.size());
+        assertEquals(2, proteinsToReactions.keySet().size());
+        assertTrue(proteinsToReactions.containsKey("P01308"));
+        assertFalse(proteinsToReactions.containsKey("R-HSA-1"));
+        assertTrue(proteinsToReactions.get("P12345").isEmpty());
+
+        // Keeps the order of the values
+        List<String> reactions = new ArrayList<>(proteinsToReactions.get("P01308"));
+        assertEquals("R-HSA-2", reactions.get(0));
+        assertEquals("R-HSA-1", reactions.get(1));
+
+        assertEquals(ImmutableSetMultimap.of("P01308", "R-HSA-2", "P01308", "R-HSA-1", "Q9Y6K9", "R-HSA-1"), proteinsToReactions);
+    }
+
+    @Test
+    void proteoformKeysTest() throws IOException {
+        Proteoform proteoform = new Proteoform("P01308");
+        proteoform.addPtm("00048", 12L);
+        proteoform.addPtm("00046", 30L);
+
+        SetMultimap<Proteoform, String> proteoformsToReactions = MappingStore.open(path)
+                .getSetMultimap("proteoformsToReactions", MappingStore.PROTEOFORM, MappingStore.STRING);
+
+        assertTrue(proteoformsToReactions.containsKey(proteoform));
+        assertTrue(proteoformsToReactions.keySet().contains(proteoform));
+        assertFalse(proteoformsToReactions.containsKey(new Proteoform("P01308")));
+    }
+
+    @Test
+    void proteoformsKeepPtmOrderTest() throws IOException {
+        Proteoform sorted = new Proteoform("Q9Y6K9");
+        sorted.addPtm("00048", 97L);
+        sorted.addPtm("01148", 211L);
+
+        MappingStore store = MappingStore.open(path);
+        Proteoform proteoform = store.getSetMultimap("proteinsToProteoforms", MappingStore.STRING, MappingStore.PROTEOFORM)
+                .get("Q9Y6K9").iterator().next();
+        SetMultimap<Proteoform, String> proteoformsToReactions = store.getSetMultimap("proteoformsToReactions", MappingStore.PROTEOFORM, MappingStore.STRING);
+
+        assertEquals("Q9Y6K9;01148:211,00048:97", ProteoformFormat.SIMPLE.getString(proteoform));
+        assertEquals(sorted, proteoform);
+        assertFalse(proteoformsToReactions.containsKey(proteoform));
+    }
+
+    @Test
+    void longKeysTest() throws IOException {
+        SetMultimap<Long, String> chrBpToProteins = MappingStore.open(path)
+                .getSetMultimap("chrBpToProteins1", MappingStore.LONG, MappingStore.STRING);
+
+        assertTrue(chrBpToProteins.get(14370L).contains("Q9Y6K9"));
+        assertTrue(chrBpToProteins.get(1437L).isEmpty());
+    }
+
+    @Test
+    void reactionsTest() throws IOException {
+        Map<String, Reaction> reactions = MappingStore.open(path).getReactions();
+
+        assertEquals(1, reactions.size());
+        assertFalse(reactions.containsKey("R-HSA-2"));
+        Reaction reaction = reactions.get("R-HSA-1");
+        assertEquals("Reaction one", reaction.getDisplayName());
+        assertEquals(2, reaction.getProteinParticipantsWithRole().get("P01308").size());
+        assertTrue(reaction.getProteoformParticipants().get(new Proteoform("P01308")).contains(Role.OUTPUT));
+    }
+
+    @Test
+    void pathwaysTest() throws IOException {
+        Map<String, Pathway> pathways = MappingStore.open(path).getPathways();
+
+        assertEquals(1, pathways.size());
+        Pathway pathway = pathways.get("R-HSA-10");
+        assertEquals("Pathway ten", pathway.getDisplayName());
+        assertEquals(5, pathway.getNumEntitiesTotal());
+        assertEquals(3, pathway.getNumReactionsTotal());
+        assertEquals(7, pathway.getNumEntitiesTotalByProteoform());
+    }
+
+    @Test
+    void missingTableTest() {
+        assertThrows(IOException.class, () -> MappingStore.open(path).getSetMultimap("genesToProteins"));
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathwayClosureTest {
+
+    private static final SetMultimap<String, String> REACTIONS_TO_PATHWAYS = ImmutableSetMultimap.of(
+            "R-HSA-1", "R-HSA-10", "R-HSA-1", "R-HSA-20", "R-HSA-2", "R-HSA-20");
+    private static final SetMultimap<String, String> PATHWAYS_TO_TOP_LEVEL_PATHWAYS = ImmutableSetMultimap.of(
+            "R-HSA-10", "R-HSA-100", "R-HSA-10", "R-HSA-200");
+
+    private static PathwayClosure build() {
+        return PathwayClosure.build(
+                ImmutableSetMultimap.of("P01308", "R-HSA-1", "P01308", "R-HSA-2", "P04637", "R-HSA-2", "Q9Y6K9", "R-HSA-3"),
+                MappingStore.STRING, REACTIONS_TO_PATHWAYS, PATHWAYS_TO_TOP_LEVEL_PATHWAYS);
+    }
+
+    private static List<String> getRows(PathwayClosure closure, String key) {
+        List<String> rows = new ArrayList<>();
+        int index = closure.indexOf(key);
+        for (int row = closure.getStart(index); row < closure.getEnd(index); row++) {
+            rows.add(closure.getReactionStId(row) + " " + closure.getPathwayStId(row) + " " + closure.getTopLevelPathwayStId(row));
+        }
+        return rows;
+    }
+
+    @Test
+    void buildTest() {
+        PathwayClosure closure = build();
+
+        assertEquals(2, closure.size());
+        assertEquals(Arrays.asList(
+                "R-HSA-1 R-HSA-10 R-HSA-100",
+                "R-HSA-1 R-HSA-10 R-HSA-200",
+                "R-HSA-1 R-HSA-20 null",
+                "R-HSA-2 R-HSA-20 null"), getRows(closure, "P01308"));
+        assertEquals(Arrays.asList("R-HSA-2 R-HSA-20 null"), getRows(closure, "P04637"));
+
+        // The reaction of the protein is not in any pathway
+        assertEquals(-1, closure.indexOf("Q9Y6K9"));
+        assertEquals(-1, closure.indexOf("P69905"));
+    }
+
+    @Test
+    void proteoformKeysTest() throws ParseException {
+        Proteoform proteoform = ProteoformFormat.SIMPLE.getProteoform("P01308;00087:53,00798:31", 1);
+        PathwayClosure closure = PathwayClosure.build(ImmutableSetMultimap.of(proteoform, "R-HSA-2"),
+                MappingStore.PROTEOFORM, REACTIONS_TO_PATHWAYS, PATHWAYS_TO_TOP_LEVEL_PATHWAYS);
+
+        // Equal proteoforms with the modifications in another order have the same key
+        Proteoform same = ProteoformFormat.SIMPLE.getProteoform("P01308;00798:31,00087:53", 1);
+        assertEquals(Arrays.asList("R-HSA-2 R-HSA-20 null"), getRows(closure, MappingStore.PROTEOFORM.encodeKey(same)));
+        Proteoform other = ProteoformFormat.SIMPLE.getProteoform("P01308;00087:53", 1);
+        assertEquals(-1, closure.indexOf(MappingStore.PROTEOFORM.encodeKey(other)));
+    }
+
+    @Test
+    void writeReadTest() throws IOException {
+        File directory = Files.createTempDirectory("mapping").toFile();
+        try {
+            PathwayClosure expected = build();
+            expected.write(directory.getPath(), PathwayClosure.PROTEINS_FILE_NAME);
+            PathwayClosure closure = PathwayClosure.read(new FileInputStream(new File(directory, PathwayClosure.PROTEINS_FILE_NAME)));
+
+            assertEquals(2, closure.size());
+            assertEquals(getRows(expected, "P01308"), getRows(closure, "P01308"));
+            assertEquals(getRows(expected, "P04637"), getRows(closure, "P04637"));
+            assertEquals(-1, closure.indexOf("Q9Y6K9"));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+}
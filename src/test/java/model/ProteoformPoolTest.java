@@ -0,0 +1,72 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProteoformPoolTest {
+
+    private static Proteoform parse(String line) throws ParseException {
+        return ProteoformFormat.SIMPLE.getProteoform(line);
+    }
+
+    @Test
+    void internTest() throws ParseException {
+        ProteoformPool pool = new ProteoformPool();
+        Proteoform first = pool.intern(parse("P01308;00046:15,00047:33"));
+        Proteoform same = pool.intern(parse("P01308;00047:33,00046:15"));
+        Proteoform other = pool.intern(parse("P01308;00046:15"));
+
+        assertSame(first, same);
+        assertNotSame(first, other);
+        assertEquals(0, first.getId());
+        assertEquals(1, other.getId());
+        assertEquals(2, pool.size());
+        assertNotEquals(first, other);
+        assertEquals(-1, parse("P01308").getId());
+    }
+
+    @Test
+    void internedCanNotChangeTest() throws ParseException {
+        Proteoform proteoform = new ProteoformPool().intern(parse("P01308;00046:15"));
+        assertThrows(IllegalStateException.class, () -> proteoform.addPtm("00047", 33L));
+        assertThrows(IllegalStateException.class, () -> proteoform.setStartCoordinate(10L));
+        assertThrows(UnsupportedOperationException.class, () -> proteoform.getPtms().clear());
+    }
+
+    @Test
+    void parentTest() throws ParseException {
+        ProteoformPool references = new ProteoformPool();
+        Proteoform reference = references.intern(parse("P01308;00046:15"));
+        ProteoformPool input = new ProteoformPool(references);
+
+        assertSame(reference, input.intern(parse("P01308;00046:15")));
+        assertSame(reference, input.find(reference));
+        Proteoform added = input.intern(parse("P01308;00046:16"));
+        assertEquals(1, input.size());
+        assertEquals(1, references.size());
+        assertNull(references.find(added));
+    }
+
+    @Test
+    void internFromOtherPoolTest() throws ParseException {
+        Proteoform proteoform = new ProteoformPool().intern(parse("P01308,10-20;00046:15"));
+        ProteoformPool pool = new ProteoformPool();
+        Proteoform copy = pool.intern(proteoform);
+
+        assertNotSame(proteoform, copy);
+        assertEquals(proteoform, copy);
+        assertEquals(proteoform.hashCode(), copy.hashCode());
+        assertSame(copy, pool.intern(proteoform));
+    }
+
+    @Test
+    void getProteoformWithPoolTest() throws ParseException {
+        ProteoformPool pool = new ProteoformPool();
+        Proteoform first = ProteoformFormat.SIMPLE.getProteoform("P01308;00046:15", 1, pool);
+        Proteoform second = ProteoformFormat.SIMPLE.getProteoform("P01308;00046:15", 2, pool);
+        assertSame(first, second);
+    }
+}
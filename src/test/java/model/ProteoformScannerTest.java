@@ -0,0 +1,148 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProteoformScannerTest {
+
+    private static final String NOISE = "ABOPQXZaenpm0123456789:;,-|/+=?.MODULnul \t";
+
+    private static String pick(Random random, String... options) {
+        return options[random.nextInt(options.length)];
+    }
+
+    private static String digits(Random random, int min, int max) {
+        StringBuilder str = new StringBuilder();
+        int count = min + random.nextInt(max - min + 1);
+        for (int i = 0; i < count; i++) {
+            str.append((char) ('0' + random.nextInt(10)));
+        }
+        return str.toString();
+    }
+
+    private static String accession(Random random) {
+        String accession = pick(random, "P01308", "Q9Y6K9", "O00206", "A0A024", "A2RUS2", "A0A0B4J2F0", "P0DP23");
+        if (random.nextInt(3) == 0) {
+            accession += "-" + digits(random, 1, 2);
+        }
+        return accession;
+    }
+
+    private static String site(Random random) {
+        return random.nextInt(6) == 0 ? pick(random, "null", "NULL", "Null") : digits(random, 1, 5);
+    }
+
+    private static String simplePtms(Random random) {
+        StringBuilder str = new StringBuilder();
+        int ptms = random.nextInt(4);
+        for (int i = 0; i < ptms; i++) {
+            if (i > 0) {
+                str.append(",");
+            }
+            str.append(random.nextInt(5) == 0 ? "MOD:" : "").append(pick(random, "00046", "00047", "00798", "01148"))
+                    .append(":").append(site(random));
+        }
+        return str.toString();
+    }
+
+    private static String peptide(Random random) {
+        StringBuilder str = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            str.append("ARNDBCEQZGHILKMFPSTWYV".charAt(random.nextInt(22)));
+        }
+        return str.toString();
+    }
+
+    /**
+     * Changes a few characters of a line, so it is often not valid anymore.
+     */
+    private static String mutate(Random random, String line) {
+        StringBuilder str = new StringBuilder(line);
+        int changes = random.nextInt(3);
+        for (int i = 0; i < changes; i++) {
+            int pos = random.nextInt(str.length() + 1);
+            char c = NOISE.charAt(random.nextInt(NOISE.length()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    str.insert(pos, c);
+                    break;
+                case 1:
+                    if (pos < str.length()) {
+                        str.deleteCharAt(pos);
+                    }
+                    break;
+                default:
+                    if (pos < str.length()) {
+                        str.setCharAt(pos, c);
+                    }
+            }
+        }
+        return str.toString();
+    }
+
+    private interface Reader {
+        Proteoform read(String line) throws ParseException;
+    }
+
+    private static Proteoform readOrNull(Reader reader, String line) {
+        try {
+            return reader.read(line);
+        } catch (ParseException e) {
+            assertTrue(e.getErrorOffset() >= 0 && e.getErrorOffset() <= line.length(), line + " " + e.getErrorOffset());
+            return null;
+        }
+    }
+
+    private static void assertSameProteoform(Proteoform expected, Proteoform actual, String line) {
+        assertEquals(expected.getUniProtAccWithIsoform(), actual.getUniProtAccWithIsoform(), line);
+        assertEquals(expected.getStartCoordinate(), actual.getStartCoordinate(), line);
+        assertEquals(expected.getEndCoordinate(), actual.getEndCoordinate(), line);
+        assertEquals(expected.getPtms(), actual.getPtms(), line);
+    }
+
+    @Test
+    void simpleSameAsPatternTest() throws ParseException {
+        Random random = new Random(11);
+        for (int test = 0; test < 20000; test++) {
+            String line = accession(random) + (random.nextInt(5) == 0 ? "" : ";" + (random.nextInt(8) == 0 ? "," : "") + simplePtms(random));
+            line = random.nextBoolean() ? mutate(random, line) : line;
+            Proteoform proteoform = readOrNull(ProteoformScanner::readSimple, line);
+            assertEquals(InputPatterns.matches_Proteoform_Simple(line), proteoform != null, line);
+            if (proteoform != null) {
+                assertSameProteoform(ProteoformFormat.SIMPLE.getProteoform(line), proteoform, line);
+            }
+        }
+    }
+
+    @Test
+    void modifiedPeptideSameAsPatternTest() throws ParseException {
+        Random random = new Random(12);
+        for (int test = 0; test < 20000; test++) {
+            String line = peptide(random) + (random.nextInt(5) == 0 ? "" : ";" + simplePtms(random));
+            line = random.nextBoolean() ? mutate(random, line) : line;
+            Proteoform proteoform = readOrNull(ProteoformScanner::readModifiedPeptide, line);
+            assertEquals(InputPatterns.matches_Peptite_And_Mod_Sites(line), proteoform != null, line);
+            if (proteoform != null) {
+                assertSameProteoform(ProteoformFormat.SIMPLE.getProteoform(line), proteoform, line);
+            }
+        }
+    }
+
+    @Test
+    void errorColumnTest() {
+        ParseException e = assertThrows(ParseException.class, () -> ProteoformScanner.readSimple("P01308;00046:12,0004:5"));
+        assertEquals(20, e.getErrorOffset());
+        assertTrue(e.getMessage().contains("column 21"), e.getMessage());
+
+        e = assertThrows(ParseException.class, () -> ProteoformScanner.readSimple(""));
+        assertEquals(0, e.getErrorOffset());
+
+        e = assertThrows(ParseException.class, () -> ProteoformScanner.readModifiedPeptide("PEPTIDEX;00046:1"));
+        assertEquals(7, e.getErrorOffset());
+    }
+}
@@ -214,4 +214,42 @@ class ProteoformTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void hashCodeConsistentWithEqualsTest() throws ParseException {
+        ProteoformFormat p = ProteoformFormat.SIMPLE;
+        Proteoform a = p.getProteoform("P01308;00046:15,00048:null,00047:33");
+        Proteoform b = p.getProteoform("P01308;00047:33,00046:15,00048:null");
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        // The same distinct ptms with different repetitions are equal
+        Proteoform c = p.getProteoform("P01308;00046:15,00046:15,00047:33");
+        Proteoform d = p.getProteoform("P01308;00046:15,00047:33,00047:33");
+        assertEquals(c, d);
+        assertEquals(c.hashCode(), d.hashCode());
+    }
+
+    @Test
+    void hashCodeSpreadsProteoformsOfSameProteinTest() throws ParseException {
+        ProteoformFormat p = ProteoformFormat.SIMPLE;
+        assertNotEquals(p.getProteoform("P01308;00046:15").hashCode(), p.getProteoform("P01308;00046:16").hashCode());
+        assertNotEquals(p.getProteoform("P01308;00046:15").hashCode(), p.getProteoform("P01308;00047:15").hashCode());
+        assertNotEquals(p.getProteoform("P01308;00046:1,00047:2").hashCode(), p.getProteoform("P01308;00046:2,00047:1").hashCode());
+        Proteoform subsequence = p.getProteoform("P01308");
+        subsequence.setStartCoordinate(10L);
+        subsequence.setEndCoordinate(20L);
+        assertNotEquals(p.getProteoform("P01308").hashCode(), subsequence.hashCode());
+    }
+
+    @Test
+    void hashCodeChangesWithProteoformTest() {
+        Proteoform proteoform = new Proteoform("P01308");
+        Proteoform other = new Proteoform("P01308");
+        proteoform.hashCode();
+        proteoform.addPtm("00046", 15L);
+        other.addPtm("00046", 15L);
+        assertEquals(other.hashCode(), proteoform.hashCode());
+        proteoform.setStartCoordinate(10L);
+        assertNotEquals(other.hashCode(), proteoform.hashCode());
+    }
+}
@@ -0,0 +1,105 @@
+package model;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PtmArrayTest {
+
+    private static final String[] TYPES = {"00046", "00047", "00048"};
+
+    @Test
+    void sortedByTypeAndSiteTest() throws ParseException {
+        Proteoform proteoform = ProteoformFormat.SIMPLE.getProteoform("P04637;00047:81,00046:33,00046:null,00047:15,00046:15");
+        PtmArray ptms = proteoform.getPtmArray();
+
+        assertEquals(5, ptms.size());
+        for (int i = 1; i < ptms.size(); i++) {
+            assertTrue(ptms.getType(i - 1) <= ptms.getType(i));
+        }
+        int ptm = ptms.getType(0) == PtmArray.getTypeId("00046") ? 0 : 2;
+        assertEquals(PtmArray.getTypeId("00046"), ptms.getType(ptm));
+        assertEquals(-1L, ptms.getSite(ptm));
+        assertEquals(15L, ptms.getSite(ptm + 1));
+        assertEquals(33L, ptms.getSite(ptm + 2));
+
+        assertEquals(-1L, ptms.getSortedSite(0));
+        assertEquals(15L, ptms.getSortedSite(1));
+        assertEquals(15L, ptms.getSortedSite(2));
+        assertEquals(81L, ptms.getSortedSite(4));
+    }
+
+    @Test
+    void typeIdTest() {
+        assertEquals(PtmArray.getTypeId("00046"), PtmArray.getTypeId(new String("00046")));
+        assertNotEquals(PtmArray.getTypeId("00046"), PtmArray.getTypeId("00047"));
+    }
+
+    @Test
+    void emptyTest() {
+        Proteoform proteoform = new Proteoform("P04637");
+        assertSame(PtmArray.EMPTY, proteoform.getPtmArray());
+        assertTrue(PtmArray.EMPTY.allMatchedIn(PtmArray.EMPTY, 0, true));
+        assertFalse(PtmArray.EMPTY.anyMatchedIn(PtmArray.EMPTY, 0, true));
+        assertTrue(PtmArray.EMPTY.sameDistinctPtms(PtmArray.EMPTY));
+    }
+
+    @Test
+    void changedPtmsTest() {
+        Proteoform proteoform = new Proteoform("P04637");
+        assertEquals(0, proteoform.getPtmArray().size());
+        proteoform.addPtm("00046", 15L);
+        assertEquals(1, proteoform.getPtmArray().size());
+        proteoform.removePtm(0);
+        assertEquals(0, proteoform.getPtmArray().size());
+    }
+
+    private static Proteoform randomProteoform(Random random) {
+        Proteoform proteoform = new Proteoform("P04637");
+        int ptms = random.nextInt(6);
+        for (int i = 0; i < ptms; i++) {
+            proteoform.addPtm(TYPES[random.nextInt(TYPES.length)], random.nextInt(8) == 0 ? null : (long) random.nextInt(30));
+        }
+        return proteoform;
+    }
+
+    private static boolean matches(Pair<String, Long> a, Pair<String, Long> b, long margin, boolean useTypes) {
+        if (useTypes && !a.getKey().equals(b.getKey())) {
+            return false;
+        }
+        return a.getValue() == -1L || b.getValue() == -1L || Math.abs(a.getValue() - b.getValue()) <= margin;
+    }
+
+    private static boolean allMatched(List<Pair<String, Long>> a, List<Pair<String, Long>> b, long margin, boolean useTypes) {
+        return a.stream().allMatch(ptm -> b.stream().anyMatch(other -> matches(ptm, other, margin, useTypes)));
+    }
+
+    private static boolean anyMatched(List<Pair<String, Long>> a, List<Pair<String, Long>> b, long margin, boolean useTypes) {
+        return a.stream().anyMatch(ptm -> b.stream().anyMatch(other -> matches(ptm, other, margin, useTypes)));
+    }
+
+    @Test
+    void sameAsPairwiseTest() {
+        Random random = new Random(7);
+        for (int test = 0; test < 5000; test++) {
+            Proteoform a = randomProteoform(random);
+            Proteoform b = randomProteoform(random);
+            long margin = random.nextInt(6) - 1;
+            String message = a.toString(null) + " " + b.toString(null) + " " + margin;
+            for (boolean useTypes : new boolean[]{true, false}) {
+                assertEquals(allMatched(a.getPtms(), b.getPtms(), Math.max(margin, 0), useTypes),
+                        a.getPtmArray().allMatchedIn(b.getPtmArray(), margin, useTypes), message + " " + useTypes);
+                assertEquals(anyMatched(a.getPtms(), b.getPtms(), Math.max(margin, 0), useTypes),
+                        a.getPtmArray().anyMatchedIn(b.getPtmArray(), margin, useTypes), message + " " + useTypes);
+            }
+            assertEquals(new HashSet<>(a.getPtms()).equals(new HashSet<>(b.getPtms())),
+                    a.getPtmArray().sameDistinctPtms(b.getPtmArray()), message);
+        }
+    }
+}
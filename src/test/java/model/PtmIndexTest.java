@@ -0,0 +1,60 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PtmIndexTest {
+
+    private static PtmIndex build() throws ParseException {
+        List<Proteoform> proteoforms = new ArrayList<>();
+        proteoforms.add(ProteoformFormat.SIMPLE.getProteoform("P04637;00046:15,00046:33,00047:81", 1));
+        proteoforms.add(ProteoformFormat.SIMPLE.getProteoform("P04637", 2));
+        proteoforms.add(ProteoformFormat.SIMPLE.getProteoform("P04637;00046:null,00048:15", 3));
+        return new PtmIndex(proteoforms);
+    }
+
+    private static List<Integer> getSlots(PtmIndex index, String type, long site, long margin) {
+        TreeSet<Integer> slots = new TreeSet<>();
+        index.forEachSlot(type, site, margin, slot -> assertTrue(slots.add(slot), "Repeated slot " + slot));
+        return new ArrayList<>(slots);
+    }
+
+    @Test
+    void slotsTest() throws ParseException {
+        PtmIndex index = build();
+
+        assertEquals(3, index.size());
+        assertEquals(5, index.getSlotCount());
+        assertEquals(3, index.getFirstSlot(1));
+        assertEquals(3, index.getEndSlot(1));
+        assertEquals(2, index.getProteoform(4));
+        assertEquals("P04637", index.get(1).getUniProtAcc());
+    }
+
+    @Test
+    void forEachSlotTest() throws ParseException {
+        PtmIndex index = build();
+
+        // The slot without site is always found
+        assertEquals(Arrays.asList(0, 3), getSlots(index, "00046", 15, 0));
+        assertEquals(Arrays.asList(0, 3), getSlots(index, "00046", 17, 2));
+        assertEquals(Arrays.asList(3), getSlots(index, "00046", 18, 2));
+        assertEquals(Arrays.asList(0, 1, 3), getSlots(index, "00046", 24, 9));
+        assertEquals(Arrays.asList(0, 3), getSlots(index, "00046", 15, -1));
+        assertEquals(Arrays.asList(0, 1, 3), getSlots(index, "00046", 15, Long.MAX_VALUE));
+
+        // Without site, all the slots of the type
+        assertEquals(Arrays.asList(0, 1, 3), getSlots(index, "00046", -1, 0));
+
+        // Any type
+        assertEquals(Arrays.asList(0, 3, 4), getSlots(index, null, 15, 0));
+        assertEquals(Arrays.asList(), getSlots(index, "00049", -1, 5));
+    }
+}
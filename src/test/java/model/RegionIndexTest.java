@@ -0,0 +1,103 @@
+package model;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionIndexTest {
+
+    private static RegionIndex build() {
+        return new RegionIndex.Builder()
+                .add(1, ImmutableSetMultimap.of(1000L, "P01308", 1500L, "P01308", 1200L, "P04637", 5000L, "Q9Y6K9"))
+                .add(2, ImmutableSetMultimap.of(1100L, "P01308"))
+                .build();
+    }
+
+    @Test
+    void getProteinsTest() {
+        RegionIndex index = build();
+
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList("P01308"), index.getProteins(VariantTable.chrBpKey(1, 1300L), 0));
+        assertEquals(Arrays.asList("P01308", "P04637"), index.getProteins(VariantTable.chrBpKey(1, 1200L), 0));
+        assertEquals(Arrays.asList("P01308"), index.getProteins(VariantTable.chrBpKey(1, 1000L), 0));
+        assertTrue(index.getProteins(VariantTable.chrBpKey(1, 999L), 0).isEmpty());
+        assertTrue(index.getProteins(VariantTable.chrBpKey(1, 3000L), 0).isEmpty());
+        assertTrue(index.getProteins(VariantTable.chrBpKey(3, 1200L), 0).isEmpty());
+    }
+
+    @Test
+    void windowTest() {
+        RegionIndex index = build();
+
+        assertEquals(Arrays.asList("P01308"), index.getProteins(VariantTable.chrBpKey(1, 990L), 10));
+        assertTrue(index.getProteins(VariantTable.chrBpKey(1, 989L), 10).isEmpty());
+        assertEquals(Arrays.asList("Q9Y6K9"), index.getProteins(VariantTable.chrBpKey(1, 4000L), 1000));
+        assertEquals(Arrays.asList("P01308", "P04637", "Q9Y6K9"), index.getProteins(VariantTable.chrBpKey(1, 3000L), 2000));
+
+        // The window does not reach the regions of other chromosomes
+        assertTrue(index.getProteins(VariantTable.chrBpKey(2, 0L), 100).isEmpty());
+        assertEquals(Arrays.asList("P01308"), index.getProteins(VariantTable.chrBpKey(2, 0L), 1100));
+        assertTrue(index.getProteins(VariantTable.chrBpKey(1, VariantTable.MAX_BP), 1000).isEmpty());
+    }
+
+    @Test
+    void sameAsScanTest() {
+        Random random = new Random(42);
+        SetMultimap<Long, String> table = HashMultimap.create();
+        for (int protein = 0; protein < 500; protein++) {
+            long start = random.nextInt(1_000_000);
+            long length = random.nextInt(10) == 0 ? random.nextInt(200_000) : random.nextInt(5_000);
+            table.put(start, "P" + protein);
+            table.put(start + length, "P" + protein);
+        }
+        RegionIndex index = new RegionIndex.Builder().add(5, table).build();
+
+        for (int query = 0; query < 2000; query++) {
+            long bp = random.nextInt(1_100_000);
+            long window = random.nextInt(3) * 1000L;
+            Set<String> expected = new HashSet<>();
+            for (String protein : new HashSet<>(table.values())) {
+                long first = Long.MAX_VALUE;
+                long last = Long.MIN_VALUE;
+                for (Map.Entry<Long, String> entry : table.entries()) {
+                    if (entry.getValue().equals(protein)) {
+                        first = Math.min(first, entry.getKey());
+                        last = Math.max(last, entry.getKey());
+                    }
+                }
+                if (first - window <= bp && bp <= last + window) {
+                    expected.add(protein);
+                }
+            }
+            List<String> found = index.getProteins(VariantTable.chrBpKey(5, bp), window);
+            assertEquals(expected, new HashSet<>(found), "Base pair " + bp + ", window " + window);
+            assertEquals(expected.size(), found.size());
+        }
+    }
+
+    @Test
+    void writeReadTest() throws IOException {
+        File directory = Files.createTempDirectory("mapping").toFile();
+        try {
+            build().write(directory.getPath());
+            RegionIndex index = RegionIndex.read(new FileInputStream(new File(directory, RegionIndex.FILE_NAME)));
+
+            assertEquals(4, index.size());
+            assertEquals(Arrays.asList("P01308", "P04637"), index.getProteins(VariantTable.chrBpKey(1, 1200L), 0));
+            assertEquals(Arrays.asList("P01308"), index.getProteins(VariantTable.chrBpKey(2, 1100L), 0));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+}
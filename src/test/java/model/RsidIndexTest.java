@@ -0,0 +1,89 @@
+package model;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RsidIndexTest {
+
+    private static RsidIndex build() {
+        return new RsidIndex.Builder()
+                .add(1, ImmutableSetMultimap.of("rs4039", "P01308", "rs4039", "P04637", "rs10031", "Q9Y6K9"))
+                .add(2, ImmutableSetMultimap.of("rs2047", "P01308"))
+                .add(7, ImmutableSetMultimap.of("rs4039", "Q13501"))
+                .build();
+    }
+
+    @Test
+    void getProteinsTest() {
+        RsidIndex index = build();
+
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList("P01308", "P04637"), index.getProteins("rs4039", 1));
+        assertEquals(Arrays.asList("Q13501"), index.getProteins("rs4039", 7));
+        assertEquals(Arrays.asList("P01308"), index.getProteins("rs2047", 2));
+        assertTrue(index.getProteins("rs2047", 1).isEmpty());
+        assertTrue(index.getProteins("rs5019", 1).isEmpty());
+        assertTrue(index.getProteins("rs", 1).isEmpty());
+        assertTrue(index.getProteins("rs123456789012345678", 1).isEmpty());
+    }
+
+    @Test
+    void getProteinsOfAllChromosomesTest() {
+        RsidIndex index = new RsidIndex.Builder()
+                .add(1, ImmutableSetMultimap.of("rs4039", "P01308", "rs4039", "P04637", "rs4038", "Q9Y6K9"))
+                .add(7, ImmutableSetMultimap.of("rs4039", "Q13501", "rs4040", "P01308"))
+                .add(22, ImmutableSetMultimap.of("rs4039", "P04637"))
+                .build();
+
+        SortedMap<Integer, List<String>> proteins = index.getProteins("rs4039");
+        assertEquals(Arrays.asList(1, 7, 22), new ArrayList<>(proteins.keySet()));
+        assertEquals(Arrays.asList("P01308", "P04637"), proteins.get(1));
+        assertEquals(Arrays.asList("Q13501"), proteins.get(7));
+        assertEquals(Arrays.asList("P04637"), proteins.get(22));
+        assertEquals(Collections.singleton(7), index.getProteins("rs4040").keySet());
+        assertTrue(index.getProteins("rs5019").isEmpty());
+        assertTrue(index.getProteins("rs").isEmpty());
+    }
+
+    @Test
+    void parseRsidTest() {
+        assertEquals(4039L, RsidIndex.parseRsid("rs4039"));
+        assertEquals(-1L, RsidIndex.parseRsid("4039"));
+        assertEquals(-1L, RsidIndex.parseRsid("rs40a9"));
+    }
+
+    @Test
+    void invalidRsidTest() {
+        RsidIndex.Builder builder = new RsidIndex.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add(1, ImmutableSetMultimap.of("P01308", "P01308")));
+    }
+
+    @Test
+    void writeReadTest() throws IOException {
+        File directory = Files.createTempDirectory("mapping").toFile();
+        try {
+            build().write(directory.getPath());
+            RsidIndex index = RsidIndex.read(new FileInputStream(new File(directory, RsidIndex.FILE_NAME)));
+
+            assertEquals(4, index.size());
+            assertEquals(Arrays.asList("P01308", "P04637"), index.getProteins("rs4039", 1));
+            assertEquals(Arrays.asList("Q9Y6K9"), index.getProteins("rs10031", 1));
+            assertEquals(Arrays.asList("Q13501"), index.getProteins("rs4039", 7));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSetMultimapTest {
+
+    private static String path;
+    private static final ImmutableSetMultimap<String, String> proteinsToComplexes = ImmutableSetMultimap.<String, String>builder()
+            .put("P01308", "R-HSA-20").put("P01308", "R-HSA-10")
+            .put("P04637", "R-HSA-30")
+            .put("Q9Y6K9", "R-HSA-10")
+            .put("Q13501", "R-HSA-40")
+            .put("O14543", "R-HSA-50")
+            .build();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        path = Files.createTempDirectory("mapping").toString() + "/";
+
+        Proteoform proteoform = new Proteoform("P01308");
+        proteoform.addPtm("00046", 30L);
+
+        ShardedSetMultimap.write(path, "proteinsToComplexes", proteinsToComplexes, MappingStore.STRING, MappingStore.STRING, 2);
+        ShardedSetMultimap.write(path, "proteoformsToComplexes", ImmutableSetMultimap.of(proteoform, "R-HSA-10"),
+                MappingStore.PROTEOFORM, MappingStore.STRING, 2);
+        ShardedSetMultimap.write(path, "proteinsToNames", Multimaps.forMap(ImmutableMap.of("P01308", "INS", "Q9Y6K9", "NEMO")),
+                MappingStore.STRING, MappingStore.STRING, 2);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(path));
+    }
+
+    @Test
+    void existsTest() {
+        assertTrue(ShardedSetMultimap.exists(path, "proteinsToComplexes"));
+        assertFalse(ShardedSetMultimap.exists(path, "complexesToProteins"));
+        assertTrue(new File(path, "proteinsToComplexes.2.gz").exists());
+        assertFalse(new File(path, "proteinsToComplexes.3.gz").exists());
+    }
+
+    @Test
+    void getTest() throws IOException {
+        SetMultimap<String, String> table = ShardedSetMultimap.open(path, "proteinsToComplexes", MappingStore.STRING, MappingStore.STRING);
+
+        assertEquals(2, table.get("P01308").size());
+        assertTrue(table.get("Q13501").contains("R-HSA-40"));
+        assertTrue(table.containsEntry("O14543", "R-HSA-50"));
+        assertTrue(table.get("A00000").isEmpty());  // Before the first shard
+        assertTrue(table.get("P02000").isEmpty());  // Inside a shard
+        assertTrue(table.get("Z99999").isEmpty());  // After the last shard
+
+        // Keeps the order of the values
+        List<String> complexes = new ArrayList<>(table.get("P01308"));
+        assertEquals("R-HSA-20", complexes.get(0));
+        assertEquals("R-HSA-10", complexes.get(1));
+    }
+
+    @Test
+    void wholeTableTest() throws IOException {
+        SetMultimap<String, String> table = ShardedSetMultimap.open(path, "proteinsToComplexes", MappingStore.STRING, MappingStore.STRING);
+
+        assertEquals(6, table.size());
+        assertEquals(5, table.keySet().size());
+        assertEquals(proteinsToComplexes, table);
+    }
+
+    @Test
+    void proteoformKeysTest() throws IOException {
+        Proteoform proteoform = new Proteoform("P01308");
+        proteoform.addPtm("00046", 30L);
+
+        SetMultimap<Proteoform, String> table = ShardedSetMultimap.open(path, "proteoformsToComplexes", MappingStore.PROTEOFORM, MappingStore.STRING);
+
+        assertTrue(table.get(proteoform).contains("R-HSA-10"));
+        assertTrue(table.get(new Proteoform("P01308")).isEmpty());
+    }
+
+    @Test
+    void singleValueMapTest() throws IOException {
+        Map<String, String> names = ShardedSetMultimap.open(path, "proteinsToNames", MappingStore.STRING, MappingStore.STRING).asSingleValueMap();
+
+        assertEquals("INS", names.get("P01308"));
+        assertNull(names.get("P04637"));
+        assertEquals(2, names.size());
+    }
+}
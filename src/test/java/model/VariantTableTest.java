@@ -0,0 +1,44 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantTableTest {
+
+    @Test
+    void chrBpKeyTest() {
+        long key = VariantTable.chrBpKey(22, 99999999999L);
+
+        assertEquals(22, VariantTable.getChr(key));
+        assertEquals(99999999999L, VariantTable.getBp(key));
+        assertTrue(VariantTable.chrBpKey(1, 99999999999L) < VariantTable.chrBpKey(2, 1L));
+    }
+
+    @Test
+    void getTest() {
+        VariantTable table = new VariantTable.Builder()
+                .put(VariantTable.chrBpKey(11, 2176134L), Arrays.asList("P01308"))
+                .put(VariantTable.chrBpKey(11, 2176042L), Arrays.asList("P01308", "P04637"))
+                .put(VariantTable.chrBpKey(1, 2176042L), Arrays.asList("Q9Y6K9"))
+                .build();
+
+        assertEquals(3, table.size());
+        assertEquals(Arrays.asList("P01308", "P04637"), table.get(VariantTable.chrBpKey(11, 2176042L)));
+        assertEquals(Arrays.asList("P01308"), table.get(VariantTable.chrBpKey(11, 2176134L)));
+        assertEquals(Arrays.asList("Q9Y6K9"), table.get(VariantTable.chrBpKey(1, 2176042L)));
+        assertTrue(table.get(VariantTable.chrBpKey(11, 2176105L)).isEmpty());
+        assertTrue(table.get(VariantTable.chrBpKey(2, 2176042L)).isEmpty());
+    }
+
+    @Test
+    void repeatedKeyTest() {
+        VariantTable.Builder builder = new VariantTable.Builder()
+                .put(5L, Collections.singletonList("P01308"))
+                .put(5L, Collections.singletonList("P04637"));
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+}